@@ -1,11 +1,16 @@
 package bot;
 
 import java.security.NoSuchAlgorithmException;
-import java.util.LinkedList;
+import java.util.BitSet;
 
 import datastorage.Terrain;
 import utility.math.Vector2;
 
+/**
+ * Finds the length of the shortest path on a grid from a position to the target, avoiding water and obstacles.
+ * The grid cells are numbered {@code y * width + x} and everything known about them is kept in flat arrays.
+ * The cells still to be checked are kept in a binary heap ordered by their value.
+ */
 public class AStar {
     /**
      * Instantiate a new class for each new {@code Terrain}.
@@ -17,11 +22,29 @@ public class AStar {
         mapCreator = new PathfindingMapCreator(terrain);
     }
 
-    private double[][] map;
-    private Node[][] createdNodes;
+    // Distances between neighbouring cells, in tenths of a cell
+    private static final int STRAIGHT_DISTANCE = 10;
+    private static final int DIAGONAL_DISTANCE = 14;
+    // The 8 neighbours of a cell
+    private static final int[] NEIGHBOUR_X = { 1, 1, 0, -1, -1, -1, 0, 1 };
+    private static final int[] NEIGHBOUR_Y = { 0, 1, 1, 1, 0, -1, -1, -1 };
 
-    private Node originNode;
-    private Node targetNode;
+    private double[][] map;
+    private int width;
+    private int height;
+    // Cost of entering every cell, -1 if the cell is blocked
+    private double[] costToEnter;
+    // Length of the shortest path found so far from the origin to every cell that was reached
+    private double[] distanceToOrigin;
+    // Cells that were reached, and cells whose shortest path is known
+    private final BitSet reached = new BitSet();
+    private final BitSet checked = new BitSet();
+    // Reached cells that are not checked yet, ordered by their value
+    private IndexedMinHeap uncheckedCells;
+
+    private int originX, originY;
+    private int targetX, targetY;
+    private boolean hasTarget = false;
     private Vector2 topLeftPos;
 
     private Terrain terrain;
@@ -55,19 +78,19 @@ public class AStar {
         if (squaresPerGameUnit <= 0) {
             throw new IndexOutOfBoundsException("squaresPerGameUnit was not in the correct range");
         }
-        if (SQUARES_PER_GAME_UNIT != squaresPerGameUnit) {
+        // The map creator caches its maps, so it only returns another map when the resolution or the obstacles
+        // changed
+        double[][] newMap = mapCreator.getMap(squaresPerGameUnit);
+        if (SQUARES_PER_GAME_UNIT != squaresPerGameUnit || map != newMap) {
             SQUARES_PER_GAME_UNIT = squaresPerGameUnit;
-            updateMaps();
-            return;
+            updateMaps(newMap);
         }
-        SQUARES_PER_GAME_UNIT = squaresPerGameUnit;
-        createNodeMap();
     }
 
-    private void updateMaps() {
+    private void updateMaps(double[][] newMap) {
         setMapCorners();
-        setMap(mapCreator.getMap(SQUARES_PER_GAME_UNIT));
-        createNodeMap();
+        setMap(newMap);
+        createCellArrays();
         setTarget(terrain);
     }
 
@@ -79,10 +102,17 @@ public class AStar {
 
     private void setMap(double[][] newMap) {
         map = newMap;
+        height = map.length;
+        width = map[0].length;
     }
 
-    private void createNodeMap() {
-        createdNodes = new Node[map.length][map[0].length];
+    private void createCellArrays() {
+        costToEnter = new double[width * height];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(map[y], 0, costToEnter, y * width, width);
+        }
+        distanceToOrigin = new double[width * height];
+        uncheckedCells = new IndexedMinHeap(width * height);
     }
 
     private void setTarget(Terrain terrain) {
@@ -90,9 +120,9 @@ public class AStar {
             throw new NullPointerException("Target was null");
         }
 
-        int targetXPosition = translateToGridXPosition(terrain.target.position.x);
-        int targetYPosition = translateToGridYPosition(terrain.target.position.y);
-        targetNode = new Node(targetXPosition, targetYPosition);
+        targetX = translateToGridXPosition(terrain.target.position.x);
+        targetY = translateToGridYPosition(terrain.target.position.y);
+        hasTarget = true;
     }
 
     private void checkForNullPosition(Vector2 position) {
@@ -111,19 +141,17 @@ public class AStar {
         if (map == null) {
             throw new NullPointerException("Map instance was null");
         }
-        if (targetNode == null) {
+        if (!hasTarget) {
             throw new NullPointerException("Target instance was null");
         }
     }
 
     private void setupSearch(Vector2 position) {
-        int originXPosition = translateToGridXPosition(position.x);
-        int originYPosition = translateToGridYPosition(position.y);
-        originNode = new Node(originXPosition, originYPosition);
-        originNode.setTarget(targetNode);
-        originNode.setOrigin(originNode);
-        targetNode.setTarget(targetNode);
-        targetNode.setOrigin(originNode);
+        originX = translateToGridXPosition(position.x);
+        originY = translateToGridYPosition(position.y);
+        if (originX < 0 || originX >= width || originY < 0 || originY >= height) {
+            throw new IndexOutOfBoundsException("Position " + position + " is outside of the map");
+        }
     }
     // endregion
 
@@ -133,228 +161,89 @@ public class AStar {
      *         Returns {@code -1} if an unobstructed path does not exist.
      */
     private double aStarPathfinding(Vector2 ballPosition) throws NoSuchAlgorithmException {
-        LinkedList<Node> uncheckedNodes = new LinkedList<>();
-        addCreatedNode(originNode);
-
         double ballOffset = ballPosition.distanceTo(terrain.target.position);
-        if (originNode.getDistanceToNode(targetNode) == 0) {
+        if (getDistance(originX, originY, targetX, targetY) == 0) {
             return ballOffset;
         }
 
-        boolean foundPath = false;
-        Node currentNode = originNode;
-        while (!foundPath) {
-            createSorroundingNodes(currentNode, uncheckedNodes);
-            currentNode = findNodeWithLowestValue(uncheckedNodes);
-
-            if (currentNode == null) {
+        reached.clear();
+        checked.clear();
+        uncheckedCells.clear();
+        int origin = originY * width + originX;
+        int target = targetY * width + targetX;
+        distanceToOrigin[origin] = 0;
+        reached.set(origin);
+        checked.set(origin);
+
+        int currentCell = origin;
+        while (currentCell != target) {
+            checkSurroundingCells(currentCell);
+            if (uncheckedCells.isEmpty()) {
                 // This means that there exists no path to the target
                 throw new NoSuchAlgorithmException("Ball is in water or inside obstacle");
             }
-            uncheckedNodes.remove(currentNode);
-            if (currentNode.equals(targetNode)) {
-                foundPath = true;
-            }
-        }
-        return currentNode.distanceToOrigin + ballOffset;
-    }
-
-    private void createSorroundingNodes(Node origin, LinkedList<Node> uncheckedNodes) {
-        // All 8 sorrounding tiles are checked
-        tryCreateNodeAtDeltaPosition(origin, uncheckedNodes, 1, 0);
-        tryCreateNodeAtDeltaPosition(origin, uncheckedNodes, 1, 1);
-        tryCreateNodeAtDeltaPosition(origin, uncheckedNodes, 0, 1);
-        tryCreateNodeAtDeltaPosition(origin, uncheckedNodes, -1, 1);
-        tryCreateNodeAtDeltaPosition(origin, uncheckedNodes, -1, 0);
-        tryCreateNodeAtDeltaPosition(origin, uncheckedNodes, -1, -1);
-        tryCreateNodeAtDeltaPosition(origin, uncheckedNodes, 0, -1);
-        tryCreateNodeAtDeltaPosition(origin, uncheckedNodes, 1, -1);
-    }
-
-    private void tryCreateNodeAtDeltaPosition(Node connectedTo, LinkedList<Node> uncheckedNodes, int deltaX,
-            int deltaY) {
-        int newXPos = connectedTo.xPosition + deltaX;
-        int newYPos = connectedTo.yPosition + deltaY;
-
-        if (nodeExistsAtPosition(newXPos, newYPos)) {
-            Node nodeAtPosition = createdNodes[newYPos][newXPos];
-            // If the distance from this node to the origin is closer, updates the distance
-            // to be shorter
-            nodeAtPosition.updateDistanceToOrigin(connectedTo);
-            return;
-        }
-        if (canCreateNodeAt(newXPos, newYPos)) {
-            // Creates node at position
-            double costToEnter = map[newYPos][newXPos];
-            Node newNode = new Node(newXPos, newYPos, connectedTo, costToEnter);
-            addCreatedNode(newNode);
-            int insertSpot = findInsertSpot(newNode, uncheckedNodes);
-            uncheckedNodes.add(insertSpot, newNode);
-        }
-    }
-
-    private boolean startedInObstacle(Node currentNode){
-        Vector2 gridPosition = new Vector2(currentNode.xPosition,currentNode.yPosition);
-        Vector2 nodePosition = translatePositionToGameUnits(gridPosition);
-        double valueAtPoint = terrain.terrainFunction.valueAt(nodePosition);
-        if (valueAtPoint < 0) {
-            return true;
+            currentCell = uncheckedCells.poll();
+            checked.set(currentCell);
         }
-        return false;
+        return distanceToOrigin[currentCell] + ballOffset;
     }
 
-    private boolean nodeExistsAtPosition(int x, int y) {
-        if (!isPositionInRange(x, y)) {
-            return false;
-        }
-        return createdNodes[y][x] != null;
-    }
-
-    private int findInsertSpot(Node newNode, LinkedList<Node> uncheckedNodes) {
-        for (int i = 0; i < uncheckedNodes.size(); i++) {
-            Node checkedNode = uncheckedNodes.get(i);
-            if (checkedNode.nodeValue >= newNode.nodeValue
-                    && checkedNode.distanceToTarget >= newNode.distanceToTarget) {
-                return i;
+    /**
+     * Reaches the 8 surrounding cells of a checked cell, or shortens the paths to them
+     */
+    private void checkSurroundingCells(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        for (int i = 0; i < NEIGHBOUR_X.length; i++) {
+            int newX = x + NEIGHBOUR_X[i];
+            int newY = y + NEIGHBOUR_Y[i];
+            if (!isPositionInRange(newX, newY)) {
+                continue;
+            }
+            int newCell = newY * width + newX;
+            if (checked.get(newCell)) {
+                continue;
+            }
+            double stepDistance = NEIGHBOUR_X[i] != 0 && NEIGHBOUR_Y[i] != 0 ? DIAGONAL_DISTANCE : STRAIGHT_DISTANCE;
+            double newDistance = distanceToOrigin[cell] + stepDistance;
+            if (reached.get(newCell)) {
+                // If the distance from this cell to the origin is closer, updates the distance to be shorter
+                if (newDistance < distanceToOrigin[newCell]) {
+                    distanceToOrigin[newCell] = newDistance;
+                    uncheckedCells.decreasePriority(newCell, getCellValue(newCell, newX, newY));
+                }
+            } else if (costToEnter[newCell] != -1) {
+                // There is no unpassable obstacle on this spot
+                distanceToOrigin[newCell] = newDistance;
+                reached.set(newCell);
+                uncheckedCells.add(newCell, getCellValue(newCell, newX, newY));
             }
         }
-        return uncheckedNodes.size();
     }
 
-    private void addCreatedNode(Node node) {
-        createdNodes[node.yPosition][node.xPosition] = node;
-    }
-
-    private boolean canCreateNodeAt(int xPos, int yPos) {
-        // Position in game units
-        if (!isPositionInRange(xPos, yPos)) {
-            return false;
-        }
-        boolean spotIsBlocked = map[yPos][xPos] == -1; // There is an unpassable obstacle on this spot
-        if (spotIsBlocked) {
-            return false;
-        }
-        return true;
+    /**
+     * Gets the sum of the distance to the origin, the estimated distance to the target and the cost to enter
+     */
+    private double getCellValue(int cell, int x, int y) {
+        return distanceToOrigin[cell] + getDistance(x, y, targetX, targetY) + costToEnter[cell];
     }
 
     private boolean isPositionInRange(int xPos, int yPos) {
-        boolean xPositionInRange = xPos > 0 && xPos < createdNodes[0].length;
-        boolean yPositionInRange = yPos > 0 && yPos < createdNodes.length;
+        boolean xPositionInRange = xPos > 0 && xPos < width;
+        boolean yPositionInRange = yPos > 0 && yPos < height;
         return xPositionInRange && yPositionInRange;
     }
 
     /**
-     * 
-     * @param uncheckedNodes the list containing all created but yet unchecked
-     *                       {@code Nodes}
-     * @return a {@code Node} from the list with the lowest {@code nodeValue} or
-     *         {@code null} if the list was empty.
-     *         When the list is empty, it means that there exists no path that would
-     *         not pass through an obstacle
+     * Gets the length of the shortest path between two cells if nothing is in the way, moving straight
+     * and diagonally
      */
-    private Node findNodeWithLowestValue(LinkedList<Node> uncheckedNodes) {
-        if (uncheckedNodes.size() == 0) {
-            return null;
-        }
-        return uncheckedNodes.getFirst();
-    }
-
-    public class Node {
-        public Node(int xPosition, int yPosition) {
-            this.xPosition = xPosition;
-            this.yPosition = yPosition;
-            connectedTo = null;
-            costToEnter = 0;
-        }
-
-        public Node(int xPosition, int yPosition, Node connectedTo, double costToEnter) {
-            this.xPosition = xPosition;
-            this.yPosition = yPosition;
-            this.connectedTo = connectedTo;
-            this.costToEnter = costToEnter;
-            distanceToOrigin = getDistanceToNode(connectedTo) + connectedTo.distanceToOrigin;
-            setTarget(targetNode);
-        }
-
-        /**
-         * The sum of {@code distanceToOrigin}, {@code distanceToTarget} and
-         * {@code costToEnter}.
-         */
-        public double nodeValue;
-        public int xPosition;
-        public int yPosition;
-        public Node connectedTo;
-
-        private double distanceToTarget;
-        private double distanceToOrigin;
-        /**
-         * Cost of entering this node taken from the grid map generated using the
-         * {@code Terrain}'s {@code terrainFunction}
-         */
-        private double costToEnter;
-
-        // region Mutator methods
-        public void setOrigin(Node origin) {
-            distanceToOrigin = getDistanceToNode(origin);
-            updateNodeValue();
-        }
-
-        public void setTarget(Node target) {
-            distanceToTarget = getDistanceToNode(target);
-            updateNodeValue();
-        }
-
-        public void updateDistanceToOrigin(Node checkNode) {
-            double checkDistance = getDistanceToNode(checkNode);
-            double newDistance = checkNode.distanceToOrigin + checkDistance;
-
-            if (distanceToOrigin > newDistance) {
-                distanceToOrigin = newDistance;
-                connectedTo = checkNode;
-                updateNodeValue();
-            }
-        }
-        // endregion
-
-        // region Accessor methods
-        public double getDistanceToNode(Node node) {
-            if (node == null) {
-                return 0;
-            }
-
-            double xDistance = Math.abs(xPosition - node.xPosition);
-            double yDistance = Math.abs(yPosition - node.yPosition);
-
-            double totalDistance = 0;
-            if (xDistance < yDistance) {
-                totalDistance += xDistance * 14;
-                yDistance -= xDistance;
-                totalDistance += yDistance * 10;
-            } else {
-                totalDistance += yDistance * 14;
-                xDistance -= yDistance;
-                totalDistance += xDistance * 10;
-            }
-            return totalDistance;
-        }
-
-        @Override
-        public String toString() {
-            return "x: " + xPosition + " y: " + yPosition;
-        }
-
-        public boolean equals(Node node) {
-            boolean xPositionEquals = xPosition == node.xPosition;
-            boolean yPositionEquals = yPosition == node.yPosition;
-            return xPositionEquals && yPositionEquals;
-        }
-        // endregion
-
-        // region Helper methods
-        private void updateNodeValue() {
-            nodeValue = distanceToOrigin + distanceToTarget + costToEnter;
-        }
-        // endregion
+    private static double getDistance(int x1, int y1, int x2, int y2) {
+        int xDistance = Math.abs(x1 - x2);
+        int yDistance = Math.abs(y1 - y2);
+        int diagonalSteps = Math.min(xDistance, yDistance);
+        int straightSteps = Math.max(xDistance, yDistance) - diagonalSteps;
+        return diagonalSteps * DIAGONAL_DISTANCE + straightSteps * STRAIGHT_DISTANCE;
     }
 
     /**
@@ -407,7 +296,7 @@ public class AStar {
     }
 
     private double distanceFromLastNodeToTarget() {
-        Vector2 targetNodePosition = new Vector2(targetNode.xPosition, targetNode.yPosition);
+        Vector2 targetNodePosition = new Vector2(targetX, targetY);
         Vector2 targetNodePositionInGameUnits = translatePositionToGameUnits(targetNodePosition);
         return terrain.target.position.distanceTo(targetNodePositionInGameUnits);
     }
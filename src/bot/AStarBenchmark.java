@@ -0,0 +1,114 @@
+package bot;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import datastorage.Terrain;
+import datastorage.obstacles.ObstacleBox;
+import datastorage.obstacles.ObstacleTree;
+import utility.BenchmarkTerrains;
+import utility.BenchmarkTimer;
+import utility.math.Vector2;
+
+/**
+ * Measures the time of a distance query of {@link AStar} on the 100x100 game unit map at several resolutions,
+ * and compares it with the queries of a {@link DistanceField}.
+ */
+public class AStarBenchmark {
+    private final Terrain terrain;
+    private final Vector2[] positions;
+
+    public AStarBenchmark(Terrain terrain, int numQueries) {
+        this.terrain = terrain;
+        Random random = new Random(0);
+        positions = new Vector2[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            positions[i] = new Vector2(random.nextDouble() * 90 - 45, random.nextDouble() * 90 - 45);
+        }
+    }
+
+    /**
+     * Runs every query at one resolution
+     * @param squaresPerGameUnit The resolution of the grid
+     * @return A line of csv data: squares per game unit, milliseconds per query, sum of the distances found
+     */
+    public String testResolution(int squaresPerGameUnit) {
+        AStar aStar = new AStar(terrain);
+        double[] sum = new double[1];
+        int[] numFound = new int[1];
+        // The warm-up round also builds the map
+        double time = BenchmarkTimer.time(1, 1, () -> {
+            sum[0] = 0;
+            numFound[0] = 0;
+            for (Vector2 position : positions) {
+                try {
+                    sum[0] += aStar.getDistanceToTarget(position, squaresPerGameUnit);
+                    numFound[0]++;
+                } catch (NoSuchAlgorithmException e) {
+                    // The position is in water or in an obstacle
+                }
+            }
+        });
+        double millisPerQuery = time / 1e6 / positions.length;
+        System.out.println(squaresPerGameUnit + " squares per unit: " + millisPerQuery + " ms/query, " + numFound[0]
+                + " paths, total distance " + sum[0]);
+        return squaresPerGameUnit + ", " + millisPerQuery + ", " + sum[0] + "\n";
+    }
+
+    /**
+     * Runs every query on a distance field and compares the distances with those of AStar
+     * @param squaresPerGameUnit The resolution of the grid
+     * @return A line of csv data: squares per game unit, milliseconds to create the field, milliseconds per query,
+     *         largest difference with AStar
+     */
+    public String testDistanceField(int squaresPerGameUnit) {
+        long start = System.nanoTime();
+        DistanceField field = new DistanceField(terrain, squaresPerGameUnit);
+        double millisToCreate = (System.nanoTime() - start) / 1e6;
+
+        double[] sum = new double[1];
+        double time = BenchmarkTimer.time(9, 1, () -> {
+            for (Vector2 position : positions) {
+                sum[0] += field.getDistanceToTarget(position);
+            }
+        });
+        BenchmarkTimer.preventElimination(sum[0]);
+        double millisPerQuery = time / 1e6 / positions.length;
+
+        AStar aStar = new AStar(terrain);
+        double largestDifference = 0;
+        for (Vector2 position : positions) {
+            try {
+                double aStarDistance = aStar.getDistanceToTarget(position, squaresPerGameUnit);
+                double difference = Math.abs(field.getDistanceToTarget(position) - aStarDistance);
+                largestDifference = Math.max(largestDifference, difference);
+            } catch (NoSuchAlgorithmException e) {
+                // The position is in water or in an obstacle
+            }
+        }
+        System.out.println(squaresPerGameUnit + " squares per unit: field created in " + millisToCreate + " ms, "
+                + millisPerQuery + " ms/query, largest difference with AStar " + largestDifference);
+        return squaresPerGameUnit + ", " + millisToCreate + ", " + millisPerQuery + ", " + largestDifference + "\n";
+    }
+
+    public static void main(String[] args) {
+        // Terrain used by BotTester, with a pond around the origin, a wall of boxes and some trees
+        Terrain terrain = BenchmarkTerrains.createBotTesterTerrain();
+        terrain.obstacles.add(new ObstacleBox(new Vector2(10, 30), new Vector2(12, -30)));
+        for (int i = 0; i < 20; i++) {
+            terrain.obstacles.add(new ObstacleTree(new Vector2(-40 + 4 * i, -20), 1, 1));
+        }
+        terrain.obstaclesChanged();
+        String data = "squares per unit, ms/query, total distance\n";
+        data += new AStarBenchmark(terrain, 200).testResolution(2);
+        data += new AStarBenchmark(terrain, 50).testResolution(4);
+        data += new AStarBenchmark(terrain, 10).testResolution(8);
+        System.out.println(data);
+
+        String fieldData = "squares per unit, ms to create, ms/query, largest difference\n";
+        fieldData += new AStarBenchmark(terrain, 200).testDistanceField(2);
+        fieldData += new AStarBenchmark(terrain, 50).testDistanceField(4);
+        fieldData += new AStarBenchmark(terrain, 10).testDistanceField(8);
+        System.out.println(fieldData);
+    }
+}
@@ -10,13 +10,26 @@ import physics.PhysicsEngine;
 import physics.collisionsystems.BounceCollisionSystem;
 import physics.solvers.RungeKutta4Solver;
 import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import physics.trajectories.FinalPositionSink;
 import utility.math.Vector2;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 public class BotNoiseTester {
+    // The bots and the noise are drawn from this, so a run can be repeated with the same seed
+    private final SplittableRandom random;
+
+    /**
+     * Constructor. Creates a tester.
+     * @param seed The seed of the bots and the noise
+     */
+    public BotNoiseTester(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
     public void saveData(String data, String fileName) {
         try {
             File f = new File("Phase 1/src/bot/results/"+fileName+System.nanoTime()+".csv");
@@ -30,6 +43,7 @@ public class BotNoiseTester {
 
     public String testBotForNoise(IBot bot, GameState gameState, double minNoise, double maxNoise, int numTests) {
         ArrayList<Vector2> shots = new ArrayList<Vector2>();
+        bot.setRandom(random.split());
         for (int i=0; i<100; i++) {
             shots.add(bot.findBestShot(gameState));
         }
@@ -45,15 +59,17 @@ public class BotNoiseTester {
     }
 
     public Vector2 testBotOneNoise(IBot bot, GameState gameState, int numShots, double maxNoise, ArrayList<Vector2> shots) {
-        ShotNoiseGenerator noiseGenerator = new ShotNoiseGenerator();
+        ShotNoiseGenerator noiseGenerator = new ShotNoiseGenerator(random.split());
         double holesInOne = 0;
         double totalDistance = 0;
+        FinalPositionSink trajectory = new FinalPositionSink();
         for (int i=0; i<numShots; i++) {
             Vector2 shot = shots.get(i);
-            ArrayList<Vector2> positions = gameState.simulateShot(
-                    noiseGenerator.addNoiseToShot(shot, maxNoise)
+            gameState.simulateShot(
+                    noiseGenerator.addNoiseToShot(shot, maxNoise),
+                    trajectory
             );
-            double distance = gameState.getTerrain().target.position.distanceTo(positions.get(positions.size()-1));
+            double distance = gameState.getTerrain().target.position.distanceTo(trajectory.getFinalPosition());
             boolean holeInOne = distance <= gameState.getTerrain().target.radius;
 
             if (holeInOne) {
@@ -99,7 +115,10 @@ public class BotNoiseTester {
                 engine
         );
 
-        BotNoiseTester bnt = new BotNoiseTester();
+        // Pass a seed to repeat a run
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        System.out.println("Seed: " + seed);
+        BotNoiseTester bnt = new BotNoiseTester(seed);
 
         bnt.saveData(bnt.testBotForNoise(bot, gameState, 0.001, 0.5, 100), "RandomNoise");
     }
@@ -8,16 +8,20 @@ import bot.heuristics.Heuristic;
 import datastorage.GameState;
 import datastorage.Target;
 import datastorage.Terrain;
+import datastorage.TerrainSampleCache;
 import physics.PhysicsEngine;
 import physics.collisionsystems.StopCollisionSystem;
 import physics.solvers.RungeKutta4Solver;
 import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.FinalPositionSink;
 import utility.math.Vector2;
 import datastorage.Ball;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 public class BotTester {
 
@@ -27,12 +31,25 @@ public class BotTester {
         double averageDistance = 0;
         double averageNumIterations = 0;
         double averageNumSimulations = 0;
+        // Only the final position is needed
+        FinalPositionSink trajectory = new FinalPositionSink();
+        // Shots that end early are still finished to count the steps that were saved
+        bot.setMeasuringSavedSteps(true);
+        long numSteps = 0;
+        long numSavedSteps = 0;
+        long numTerminatedShots = 0;
         // Test a bot multiple times with the same shot
         for (int i=0; i<numShots; i++) {
             System.out.println("Iteration "+(i+1)+"...");
             Vector2 velocity = bot.findBestShot(gameState);
-            ArrayList<Vector2> positions = gameState.simulateShot(velocity);
-            Vector2 finalPosition = positions.get(positions.size()-1);
+            ShotTerminator terminator = bot.getShotTerminator();
+            if (terminator != null) {
+                numSteps += terminator.getNumSteps();
+                numSavedSteps += terminator.getNumSavedSteps();
+                numTerminatedShots += terminator.getNumTerminatedShots();
+            }
+            gameState.simulateShot(velocity, trajectory);
+            Vector2 finalPosition = trajectory.getFinalPosition();
             double distance = finalPosition.distanceTo(gameState.getTerrain().target.position);
             boolean holeInOne = distance <= gameState.getTerrain().target.radius;
             if (holeInOne) {
@@ -44,6 +61,14 @@ public class BotTester {
             data += bot.getNumIterations() + ", " + bot.getNumSimulations() + ", " + distance+"\n";
             System.out.println("Done!");
         }
+        bot.setMeasuringSavedSteps(false);
+        System.out.println("Early termination: " + numTerminatedShots + " shots ended early, "
+                + numSavedSteps + " of " + (numSteps + numSavedSteps) + " steps saved");
+        TerrainSampleCache cache = gameState.getTerrain().getSampleCache();
+        if (cache != null) {
+            System.out.println("Sample cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses ("
+                    + Math.round(100 * cache.getHitRate()) + "% hit)");
+        }
         data = (averageNumIterations/numShots) + ", " + (averageNumSimulations/numShots) +  ", " + (averageDistance/numShots) + ", " + (percentHolesInOne/numShots) + "\n" + data;
         return data;
     }
@@ -70,6 +95,7 @@ public class BotTester {
         terrain.target = new Target();
         terrain.target.position = new Vector2(4, 1);
         terrain.target.radius = 0.15;
+        terrain.obstacles = new ArrayList<>();
         GameState gameState = new GameState(
                 terrain,
                 new Ball(new Vector2(-3, 0), Vector2.zeroVector()),
@@ -80,6 +106,16 @@ public class BotTester {
                 )
         );
 
+        // Pass a seed to repeat a run
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : new SplittableRandom().nextLong();
+        System.out.println("Seed: " + seed);
+        // Pass a grid size after the seed to look the terrain up in a sample cache
+        if (args.length > 1) {
+            terrain.enableSampleCache(Double.parseDouble(args[1]), 1 << 16);
+        }
+        IBot bot = BotFactory.getBot(BotFactory.BotImplementations.HILL_CLIMBING);
+        bot.setRandom(new SplittableRandom(seed));
+
         BotTester bt = new BotTester();
         bt.storeData(
                 bt.testBot(
@@ -96,7 +132,7 @@ public class BotTester {
                                         10
                                 )
                         ),*/
-                        BotFactory.getBot(BotFactory.BotImplementations.HILL_CLIMBING),
+                        bot,
                         gameState,
                         100
                 ),
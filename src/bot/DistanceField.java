@@ -0,0 +1,223 @@
+package bot;
+
+import java.util.Arrays;
+import java.util.List;
+
+import datastorage.Terrain;
+import datastorage.TerrainHeightFunction;
+import datastorage.obstacles.IObstacle;
+import utility.math.Vector2;
+
+/**
+ * The length of the shortest path to the target from every cell of the pathfinding grid, avoiding water and
+ * obstacles. The distances are found once with a Dijkstra search starting from the target, after which the
+ * distance from any position is interpolated from the 4 surrounding cells.
+ * <p>
+ * The distances stay correct until the height function, the corners, the obstacles or the target of the terrain
+ * change, which {@link #isValidFor(Terrain)} checks.
+ * A field is not changed after it is created, so it can be read by several threads.
+ */
+public class DistanceField {
+    // Distances between neighbouring cells, in tenths of a cell, the same as those of AStar
+    private static final int STRAIGHT_DISTANCE = 10;
+    private static final int DIAGONAL_DISTANCE = 14;
+    // The 8 neighbours of a cell
+    private static final int[] NEIGHBOUR_X = { 1, 1, 0, -1, -1, -1, 0, 1 };
+    private static final int[] NEIGHBOUR_Y = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    private final int squaresPerGameUnit;
+    private final int width;
+    private final int height;
+    private final double topLeftX;
+    private final double topLeftY;
+    // Distance from every cell to the target in game units, infinite if the target cannot be reached
+    private final double[] distanceToTarget;
+
+    // What the distances were calculated for
+    private final Terrain terrain;
+    // The water is found with the height function inside the corners
+    private final TerrainHeightFunction terrainFunction;
+    private final double cornerX1;
+    private final double cornerY1;
+    private final double cornerX2;
+    private final double cornerY2;
+    private final List<IObstacle> obstacles;
+    private final int obstacleVersion;
+    private final int numObstacles;
+    private final double targetX;
+    private final double targetY;
+    private final double targetRadius;
+
+    /**
+     * Constructor. Creates the distance field of the current obstacles and target of a terrain.
+     * @param terrain            The terrain, its target must be set
+     * @param squaresPerGameUnit The number of grid cells per game unit
+     */
+    public DistanceField(Terrain terrain, int squaresPerGameUnit) {
+        if (terrain == null) {
+            throw new NullPointerException("Terrain was null");
+        }
+        if (terrain.target == null) {
+            throw new NullPointerException("Target was null");
+        }
+        this.terrain = terrain;
+        this.squaresPerGameUnit = squaresPerGameUnit;
+        terrainFunction = terrain.getTerrainFunction();
+        cornerX1 = terrain.topLeftCorner.x;
+        cornerY1 = terrain.topLeftCorner.y;
+        cornerX2 = terrain.bottomRightCorner.x;
+        cornerY2 = terrain.bottomRightCorner.y;
+        obstacles = terrain.obstacles;
+        obstacleVersion = terrain.getObstacleVersion();
+        numObstacles = obstacles == null ? 0 : obstacles.size();
+        targetX = terrain.target.position.x;
+        targetY = terrain.target.position.y;
+        targetRadius = terrain.target.radius;
+
+        double[][] map = new PathfindingMapCreator(terrain).getMap(squaresPerGameUnit);
+        height = map.length;
+        width = map[0].length;
+        // The same corner as the one the map was created from
+        topLeftX = (int) (terrain.topLeftCorner.x * squaresPerGameUnit) / squaresPerGameUnit;
+        topLeftY = (int) (terrain.topLeftCorner.y * squaresPerGameUnit) / squaresPerGameUnit;
+        distanceToTarget = new double[width * height];
+        findDistances(map);
+    }
+
+    /**
+     * Runs Dijkstra from the target over the whole grid. The cells around the target start with their straight
+     * distance to it, so that the target does not have to lie on a cell.
+     */
+    private void findDistances(double[][] map) {
+        // Distances in tenths of a cell while searching
+        double[] distance = distanceToTarget;
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        boolean[] blocked = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                blocked[y * width + x] = map[y][x] == -1;
+            }
+        }
+        IndexedMinHeap uncheckedCells = new IndexedMinHeap(width * height);
+
+        // The cells inside the target, and the 4 cells around its center even if the target is smaller than a cell
+        double centerX = (targetX - topLeftX) * squaresPerGameUnit;
+        double centerY = (targetY - topLeftY) * squaresPerGameUnit;
+        double radius = targetRadius * squaresPerGameUnit;
+        int minX = Math.max(0, (int) Math.floor(centerX - radius));
+        int maxX = Math.min(width - 1, (int) Math.ceil(centerX + radius));
+        int minY = Math.max(0, (int) Math.floor(centerY - radius));
+        int maxY = Math.min(height - 1, (int) Math.ceil(centerY + radius));
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int cell = y * width + x;
+                double cellDistance = Math.max(0, Math.hypot(x - centerX, y - centerY) - radius);
+                boolean aroundCenter = Math.abs(x - centerX) < 1 && Math.abs(y - centerY) < 1;
+                if (!blocked[cell] && (cellDistance == 0 || aroundCenter)) {
+                    distance[cell] = cellDistance * STRAIGHT_DISTANCE;
+                    uncheckedCells.add(cell, distance[cell]);
+                }
+            }
+        }
+
+        while (!uncheckedCells.isEmpty()) {
+            int cell = uncheckedCells.poll();
+            int x = cell % width;
+            int y = cell / width;
+            for (int i = 0; i < NEIGHBOUR_X.length; i++) {
+                int newX = x + NEIGHBOUR_X[i];
+                int newY = y + NEIGHBOUR_Y[i];
+                if (newX < 0 || newX >= width || newY < 0 || newY >= height) {
+                    continue;
+                }
+                int newCell = newY * width + newX;
+                if (blocked[newCell]) {
+                    continue;
+                }
+                double stepDistance = NEIGHBOUR_X[i] != 0 && NEIGHBOUR_Y[i] != 0 ? DIAGONAL_DISTANCE
+                        : STRAIGHT_DISTANCE;
+                double newDistance = distance[cell] + stepDistance;
+                if (newDistance < distance[newCell]) {
+                    if (uncheckedCells.contains(newCell)) {
+                        uncheckedCells.decreasePriority(newCell, newDistance);
+                    } else {
+                        uncheckedCells.add(newCell, newDistance);
+                    }
+                    distance[newCell] = newDistance;
+                }
+            }
+        }
+
+        // Tenths of a cell to game units
+        for (int cell = 0; cell < distance.length; cell++) {
+            distance[cell] = distance[cell] / STRAIGHT_DISTANCE / squaresPerGameUnit;
+        }
+    }
+
+    /**
+     * Gets the length of the shortest path from a position to the target, interpolated between the 4 cells
+     * around the position. Cells from which the target cannot be reached are left out.
+     * @param position The position
+     * @return The distance in game units, or {@link Double#POSITIVE_INFINITY} if the position is outside of the
+     *         map or none of the cells around it can reach the target
+     */
+    public double getDistanceToTarget(Vector2 position) {
+        double gridX = (position.x - topLeftX) * squaresPerGameUnit;
+        double gridY = (position.y - topLeftY) * squaresPerGameUnit;
+        if (!(gridX >= 0 && gridX <= width - 1 && gridY >= 0 && gridY <= height - 1)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int x = Math.min((int) gridX, width - 2);
+        int y = Math.min((int) gridY, height - 2);
+        double fractionX = gridX - x;
+        double fractionY = gridY - y;
+
+        double weightedSum = 0;
+        double totalWeight = 0;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int corner = 0; corner < 4; corner++) {
+            int dx = corner & 1;
+            int dy = corner >> 1;
+            double distance = distanceToTarget[(y + dy) * width + x + dx];
+            if (distance == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            closestDistance = Math.min(closestDistance, distance);
+            double weight = (dx == 1 ? fractionX : 1 - fractionX) * (dy == 1 ? fractionY : 1 - fractionY);
+            weightedSum += weight * distance;
+            totalWeight += weight;
+        }
+        if (totalWeight == 0) {
+            // The position lies exactly on cells that cannot reach the target
+            return closestDistance;
+        }
+        return weightedSum / totalWeight;
+    }
+
+    /**
+     * Checks whether the distances are still correct for a terrain
+     * @param terrain The terrain
+     * @return {@code false} if it is another terrain, or its height function, corners, obstacles or target changed
+     *         since the field was created
+     */
+    public boolean isValidFor(Terrain terrain) {
+        return terrain == this.terrain
+                && terrain.getTerrainFunction() == terrainFunction
+                && terrain.topLeftCorner.x == cornerX1
+                && terrain.topLeftCorner.y == cornerY1
+                && terrain.bottomRightCorner.x == cornerX2
+                && terrain.bottomRightCorner.y == cornerY2
+                && terrain.obstacles == obstacles
+                && terrain.getObstacleVersion() == obstacleVersion
+                // The size catches obstacles added to the list without going through the terrain
+                && (obstacles == null ? 0 : obstacles.size()) == numObstacles
+                && terrain.target != null
+                && terrain.target.position.x == targetX
+                && terrain.target.position.y == targetY
+                && terrain.target.radius == targetRadius;
+    }
+
+    public int getSquaresPerGameUnit() {
+        return squaresPerGameUnit;
+    }
+}
@@ -0,0 +1,128 @@
+package bot;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of the integers 0 to capacity - 1, each with a priority. The heap knows where every item is,
+ * so the priority of an item can be lowered without searching for it.
+ */
+public class IndexedMinHeap {
+    private final int[] heap; // The items, ordered as a binary heap
+    private final double[] priorities; // The priority of every item
+    private final int[] positions; // The index of every item in the heap, -1 if it is not in the heap
+    private int size = 0;
+
+    /**
+     * Constructor. Creates an empty heap.
+     * @param capacity The number of possible items
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        priorities = new double[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Adds an item that is not in the heap
+     * @param item The item
+     * @param priority The priority of the item, lower comes first
+     */
+    public void add(int item, double priority) {
+        if (positions[item] != -1) {
+            throw new RuntimeException("Item " + item + " is already in the heap");
+        }
+        heap[size] = item;
+        positions[item] = size;
+        priorities[item] = priority;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Lowers the priority of an item in the heap
+     * @param item The item
+     * @param priority The new priority, at most the current one
+     */
+    public void decreasePriority(int item, double priority) {
+        priorities[item] = priority;
+        siftUp(positions[item]);
+    }
+
+    /**
+     * Removes the item with the lowest priority
+     * @return The item
+     */
+    public int poll() {
+        int item = heap[0];
+        positions[item] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return item;
+    }
+
+    public boolean contains(int item) {
+        return positions[item] != -1;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all items, in time proportional to the number of items in the heap
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return positions.length;
+    }
+
+    private void siftUp(int index) {
+        int item = heap[index];
+        double priority = priorities[item];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (priorities[heap[parent]] <= priority) {
+                break;
+            }
+            move(heap[parent], index);
+            index = parent;
+        }
+        move(item, index);
+    }
+
+    private void siftDown(int index) {
+        int item = heap[index];
+        double priority = priorities[item];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && priorities[heap[child + 1]] < priorities[heap[child]]) {
+                child++;
+            }
+            if (priorities[heap[child]] >= priority) {
+                break;
+            }
+            move(heap[child], index);
+            index = child;
+        }
+        move(item, index);
+    }
+
+    private void move(int item, int index) {
+        heap[index] = item;
+        positions[item] = index;
+    }
+}
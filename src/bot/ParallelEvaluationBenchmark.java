@@ -0,0 +1,108 @@
+package bot;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import bot.botimplementations.RandomBot;
+import bot.heuristics.FinalEuclidianDistanceHeuristic;
+import bot.heuristics.Heuristic;
+import datastorage.Ball;
+import datastorage.GameState;
+import datastorage.Terrain;
+import physics.PhysicsEngine;
+import physics.collisionsystems.StopCollisionSystem;
+import physics.solvers.RungeKutta4Solver;
+import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import physics.terminationconditions.ShotTerminator;
+import utility.BenchmarkTerrains;
+import utility.BenchmarkTimer;
+import utility.math.Vector2;
+
+/**
+ * Measures how the evaluation of a batch of shots scales with the number of threads,
+ * and checks that every number of threads gives the same heuristic values.
+ */
+public class ParallelEvaluationBenchmark {
+    private final GameState gameState;
+    private final Heuristic heuristic;
+    private final int batchSize;
+    private final Vector2[] shots;
+    private double[] expectedValues;
+    private double singleThreadTime;
+
+    /**
+     * Constructor. Creates random shots to evaluate.
+     * @param gameState The game state the shots are taken in
+     * @param heuristic The heuristic scoring the shots
+     * @param numShots The number of shots
+     * @param batchSize The number of shots evaluated together, as in RandomBot
+     */
+    public ParallelEvaluationBenchmark(GameState gameState, Heuristic heuristic, int numShots, int batchSize) {
+        this.gameState = gameState;
+        this.heuristic = heuristic;
+        this.batchSize = batchSize;
+        Random random = new Random(0);
+        shots = new Vector2[numShots];
+        for (int i = 0; i < numShots; i++) {
+            shots[i] = new Vector2(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1).normalize()
+                    .scale(random.nextDouble() * Ball.maxSpeed);
+        }
+    }
+
+    /**
+     * Evaluates the shots with a number of threads
+     * @param numThreads The number of threads
+     * @return A line of csv data: batch size, threads, shots/s, speedup over 1 thread
+     */
+    public String testThreads(int numThreads) {
+        ShotEvaluator evaluator = new ShotEvaluator(numThreads);
+        double[][] values = new double[1][];
+        double time = BenchmarkTimer.time(3, 1, () -> {
+            ShotTerminator terminator = new ShotTerminator(gameState);
+            heuristic.addTerminationConditions(terminator, gameState);
+            // A typical value of the best shot halfway through a search, so that some shots end early
+            terminator.setBestShotValue(1);
+            values[0] = new double[shots.length];
+            for (int batchStart = 0; batchStart < shots.length; batchStart += batchSize) {
+                Vector2[] batch = Arrays.copyOfRange(shots, batchStart,
+                        Math.min(shots.length, batchStart + batchSize));
+                double[] batchValues = evaluator.evaluate(batch, gameState, heuristic, terminator);
+                System.arraycopy(batchValues, 0, values[0], batchStart, batch.length);
+            }
+            if (terminator.getNumShots() != shots.length) {
+                throw new RuntimeException("Counted " + terminator.getNumShots() + " of " + shots.length + " shots");
+            }
+        });
+        if (expectedValues == null) {
+            expectedValues = values[0];
+            singleThreadTime = time;
+        } else if (!Arrays.equals(values[0], expectedValues)) {
+            throw new RuntimeException(numThreads + " threads gave different values than 1 thread");
+        }
+        double shotsPerSecond = shots.length / (time / 1e9);
+        double speedup = singleThreadTime / time;
+        System.out.println("Batches of " + batchSize + ", " + numThreads + " threads: " + shotsPerSecond
+                + " shots/s, speedup " + speedup);
+        return batchSize + ", " + numThreads + ", " + shotsPerSecond + ", " + speedup + "\n";
+    }
+
+    public static void main(String[] args) {
+        // Terrain and shot used by BotTester
+        Terrain terrain = BenchmarkTerrains.createBotTesterTerrain();
+        PhysicsEngine engine = new PhysicsEngine(new RungeKutta4Solver(0.01), new SmallVelocityStoppingCondition(),
+                new StopCollisionSystem());
+        GameState gameState = new GameState(terrain, new Ball(new Vector2(-3, 0), Vector2.zeroVector()), engine);
+
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        String data = "batch size, threads, shots/s, speedup\n";
+        // The default batch size of RandomBot, and a batch size that gives 32 threads more than 2 shots each
+        for (int batchSize : new int[] { RandomBot.DEFAULT_BATCH_SIZE, 512 }) {
+            ParallelEvaluationBenchmark peb = new ParallelEvaluationBenchmark(gameState,
+                    new FinalEuclidianDistanceHeuristic(), 2048, batchSize);
+            for (int numThreads : new int[] { 1, 2, 4, 8, 16, 32 }) {
+                data += peb.testThreads(numThreads);
+            }
+        }
+        System.out.println(data);
+    }
+}
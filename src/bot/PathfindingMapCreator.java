@@ -1,9 +1,30 @@
 package bot;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+
 import datastorage.Terrain;
+import datastorage.TerrainHeightFunction;
+import datastorage.obstacles.IObstacle;
+import datastorage.obstacles.ObstacleBox;
+import datastorage.obstacles.ObstacleTree;
+import datastorage.obstacles.ObstacleWall;
 import utility.math.Vector2;
 
+/**
+ * Creates the grids used for pathfinding, where every square is either passable or blocked by water or an obstacle.
+ * The grids are cached per terrain and resolution, and created again when the height function, the corners or the
+ * obstacles of the terrain change.
+ * The returned grids are shared and must not be changed.
+ */
 public class PathfindingMapCreator {
+    // The grids of every terrain, kept until the terrain is garbage collected
+    private static final Map<Terrain, TerrainMaps> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
     public PathfindingMapCreator(Terrain terrain) {
         this.terrain = terrain;
         checkForNullTerrain();
@@ -24,23 +45,54 @@ public class PathfindingMapCreator {
     private Vector2 bottomRightPos;
     public int SQUARES_PER_GAME_UNIT = -1; // How many squares will the map used by AStar pathfinding generate per
 
+    /**
+     * Gets the grid of the terrain, where {@code -1} marks a square in water or in an obstacle and {@code 1} a
+     * passable square. The grid is only created if it is not cached yet or the terrain changed since.
+     * @param squaresPerGameUnit The number of squares per game unit
+     * @return The grid, indexed by {@code [y][x]}. It is shared, so it must not be changed
+     */
     public double[][] getMap(int squaresPerGameUnit) {
         checkSquares(squaresPerGameUnit);
-        double[][] map = createEmptyMap();
-        // We add half a tile, to get a height value at the center of each square
+        TerrainMaps terrainMaps = cache.computeIfAbsent(terrain, t -> new TerrainMaps());
+        synchronized (terrainMaps) {
+            if (!terrainMaps.isValidFor(terrain)) {
+                terrainMaps.reset(terrain);
+            }
+            double[][] map = terrainMaps.maps.get(squaresPerGameUnit);
+            if (map == null) {
+                map = createMap();
+                terrainMaps.maps.put(squaresPerGameUnit, map);
+            }
+            return map;
+        }
+    }
 
-        for (int y = 0; y < map.length; y++) {
-            for (int x = 0; x < map[y].length; x++) {
-                if (cannotGoHere(x, y)) {
-                    map[y][x] = -1; // This value signifies an unpassable obstacle
-                    continue;
-                }
-                map[y][x] = 1;
+    /**
+     * Creates the grid. The rows are checked for water in parallel, after which every obstacle blocks the
+     * squares it covers.
+     */
+    private double[][] createMap() {
+        double[][] map = createEmptyMap();
+        IntStream.range(0, map.length).parallel().forEach(y -> fillRow(map, y));
+        if (terrain.obstacles != null) {
+            for (IObstacle obstacle : terrain.obstacles) {
+                addObstacle(map, obstacle);
             }
         }
         return map;
     }
 
+    /**
+     * Marks the squares of a row in water as blocked, and the other squares as passable
+     */
+    private void fillRow(double[][] map, int y) {
+        double[] heights = getRowHeights(y, map[y].length);
+        for (int x = 0; x < map[y].length; x++) {
+            // -1 signifies an unpassable obstacle
+            map[y][x] = heights[x] < 0 ? -1 : 1;
+        }
+    }
+
     private void checkForNullTerrain() {
         if (terrain == null) {
             throw new NullPointerException("Terrain was null");
@@ -61,18 +113,122 @@ public class PathfindingMapCreator {
         return map;
     }
 
-    private boolean cannotGoHere(int x, int y) {
-        Vector2 positionInGameUnits = translateGridPositionIntoGameUnits(x, y);
-        double value = terrain.getTerrainFunction().valueAt(positionInGameUnits);
-        boolean tileIsObstacle = terrain.isPointInObstacle(positionInGameUnits);
-        boolean cannotGoHere = value < 0 || tileIsObstacle;
+    /**
+     * Evaluates the terrain height at every square of a row at once
+     * @param y The row of the map
+     * @param numSquares The number of squares in the row
+     * @return The height at every square of the row
+     */
+    private double[] getRowHeights(int y, int numSquares) {
+        double[] xs = new double[numSquares];
+        double[] ys = new double[numSquares];
+        for (int x = 0; x < numSquares; x++) {
+            xs[x] = translateGridXPosition(x);
+            ys[x] = translateGridYPosition(y);
+        }
+        double[] heights = new double[numSquares];
+        terrain.getTerrainFunction().valuesAt(xs, ys, heights);
+        return heights;
+    }
+
+    // region Obstacles
+    /**
+     * Marks the squares covered by an obstacle as blocked. Only the squares inside the bounds of the obstacle
+     * are checked, with the same test as {@link IObstacle#isPositionColliding(Vector2)}
+     */
+    private void addObstacle(double[][] map, IObstacle obstacle) {
+        if (obstacle instanceof ObstacleBox) {
+            addBox(map, (ObstacleBox) obstacle);
+        } else if (obstacle instanceof ObstacleTree) {
+            addTree(map, (ObstacleTree) obstacle);
+        } else if (obstacle instanceof ObstacleWall) {
+            addWall(map, (ObstacleWall) obstacle);
+        } else {
+            // The bounds of other obstacles are unknown, so every square is checked
+            addSquaresInside(map, obstacle, 0, map[0].length - 1, 0, map.length - 1);
+        }
+    }
+
+    private void addBox(double[][] map, ObstacleBox box) {
+        Vector2 bottomLeft = box.bottomLeftCorner;
+        Vector2 topRight = box.topRightCorner;
+        int minX = getFirstSquareX(map, bottomLeft.x);
+        int maxX = getLastSquareX(map, topRight.x);
+        int minY = getFirstSquareY(map, topRight.y);
+        int maxY = getLastSquareY(map, bottomLeft.y);
+        for (int y = minY; y <= maxY; y++) {
+            double positionY = translateGridYPosition(y);
+            if (!(positionY < bottomLeft.y && positionY > topRight.y)) {
+                continue;
+            }
+            for (int x = minX; x <= maxX; x++) {
+                double positionX = translateGridXPosition(x);
+                if (positionX > bottomLeft.x && positionX < topRight.x) {
+                    map[y][x] = -1;
+                }
+            }
+        }
+    }
+
+    private void addTree(double[][] map, ObstacleTree tree) {
+        Vector2 origin = tree.originPosition;
+        int minX = getFirstSquareX(map, origin.x - tree.radius);
+        int maxX = getLastSquareX(map, origin.x + tree.radius);
+        int minY = getFirstSquareY(map, origin.y - tree.radius);
+        int maxY = getLastSquareY(map, origin.y + tree.radius);
+        for (int y = minY; y <= maxY; y++) {
+            double deltaY = translateGridYPosition(y) - origin.y;
+            for (int x = minX; x <= maxX; x++) {
+                double deltaX = translateGridXPosition(x) - origin.x;
+                if (Math.sqrt(deltaX * deltaX + deltaY * deltaY) < tree.radius) {
+                    map[y][x] = -1;
+                }
+            }
+        }
+    }
 
-        if (y == 120 && x == 34) {
-            System.out.println("got it!");
+    private void addWall(double[][] map, ObstacleWall wall) {
+        double thickness = wall.getWallThickness();
+        Vector2 first = wall.firstPosition;
+        Vector2 second = wall.secondPosition;
+        int minX = getFirstSquareX(map, Math.min(first.x, second.x) - thickness);
+        int maxX = getLastSquareX(map, Math.max(first.x, second.x) + thickness);
+        int minY = getFirstSquareY(map, Math.min(first.y, second.y) - thickness);
+        int maxY = getLastSquareY(map, Math.max(first.y, second.y) + thickness);
+        addSquaresInside(map, wall, minX, maxX, minY, maxY);
+    }
+
+    /**
+     * Marks the squares in a range that are inside an obstacle as blocked
+     */
+    private void addSquaresInside(double[][] map, IObstacle obstacle, int minX, int maxX, int minY, int maxY) {
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                if (map[y][x] != -1 && obstacle.isPositionColliding(translateGridPositionIntoGameUnits(x, y))) {
+                    map[y][x] = -1;
+                }
+            }
         }
-        return cannotGoHere;
     }
 
+    // The squares that could lie at a coordinate, with one square of margin against rounding
+    private int getFirstSquareX(double[][] map, double positionX) {
+        return Math.max(0, (int) Math.floor((positionX - topLeftPos.x) * SQUARES_PER_GAME_UNIT) - 1);
+    }
+
+    private int getLastSquareX(double[][] map, double positionX) {
+        return Math.min(map[0].length - 1, (int) Math.ceil((positionX - topLeftPos.x) * SQUARES_PER_GAME_UNIT) + 1);
+    }
+
+    private int getFirstSquareY(double[][] map, double positionY) {
+        return Math.max(0, (int) Math.floor((positionY - topLeftPos.y) * SQUARES_PER_GAME_UNIT) - 1);
+    }
+
+    private int getLastSquareY(double[][] map, double positionY) {
+        return Math.min(map.length - 1, (int) Math.ceil((positionY - topLeftPos.y) * SQUARES_PER_GAME_UNIT) + 1);
+    }
+    // endregion
+
     /**
      * @return terrain width in game units
      */
@@ -88,8 +244,54 @@ public class PathfindingMapCreator {
     }
 
     private Vector2 translateGridPositionIntoGameUnits(double xPos, double yPos) {
-        double newX = xPos / (double) SQUARES_PER_GAME_UNIT + topLeftPos.x;
-        double newY = yPos / (double) SQUARES_PER_GAME_UNIT + topLeftPos.y;
-        return new Vector2(newX, newY);
+        return new Vector2(translateGridXPosition(xPos), translateGridYPosition(yPos));
+    }
+
+    private double translateGridXPosition(double xPos) {
+        return xPos / (double) SQUARES_PER_GAME_UNIT + topLeftPos.x;
+    }
+
+    private double translateGridYPosition(double yPos) {
+        return yPos / (double) SQUARES_PER_GAME_UNIT + topLeftPos.y;
+    }
+
+    /**
+     * The cached grids of one terrain, and the height function, corners and obstacles they were created from
+     */
+    private static class TerrainMaps {
+        private final HashMap<Integer, double[][]> maps = new HashMap<>();
+        private TerrainHeightFunction terrainFunction;
+        private double cornerX1;
+        private double cornerY1;
+        private double cornerX2;
+        private double cornerY2;
+        private ArrayList<IObstacle> obstacles;
+        private int obstacleVersion;
+        private int numObstacles;
+
+        private boolean isValidFor(Terrain terrain) {
+            return terrain.getTerrainFunction() == terrainFunction
+                    && terrain.topLeftCorner.x == cornerX1 && terrain.topLeftCorner.y == cornerY1
+                    && terrain.bottomRightCorner.x == cornerX2 && terrain.bottomRightCorner.y == cornerY2
+                    && terrain.obstacles == obstacles && terrain.getObstacleVersion() == obstacleVersion
+                    // The size catches obstacles added to the list without going through the terrain
+                    && getNumObstacles(terrain) == numObstacles;
+        }
+
+        private void reset(Terrain terrain) {
+            maps.clear();
+            terrainFunction = terrain.getTerrainFunction();
+            cornerX1 = terrain.topLeftCorner.x;
+            cornerY1 = terrain.topLeftCorner.y;
+            cornerX2 = terrain.bottomRightCorner.x;
+            cornerY2 = terrain.bottomRightCorner.y;
+            obstacles = terrain.obstacles;
+            obstacleVersion = terrain.getObstacleVersion();
+            numObstacles = getNumObstacles(terrain);
+        }
+
+        private static int getNumObstacles(Terrain terrain) {
+            return terrain.obstacles == null ? 0 : terrain.obstacles.size();
+        }
     }
 }
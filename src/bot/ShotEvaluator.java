@@ -0,0 +1,124 @@
+package bot;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import bot.heuristics.Heuristic;
+import datastorage.GameState;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.FinalPositionSink;
+import utility.math.Vector2;
+
+/**
+ * Scores batches of shots, simulating them on several threads. The shots are split into one contiguous range
+ * per thread, and every range is simulated with its own copy of the engine, since solvers are not thread-safe.
+ * The heuristic values are calculated afterwards on the calling thread, because heuristics like the A* distance
+ * keep search state.
+ * <p>
+ * The values do not depend on the number of threads: the termination conditions of all threads use the best
+ * shot value the terminator had when the batch started.
+ */
+public class ShotEvaluator {
+    // One pool per number of threads, shared by all evaluators
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+    private final int numThreads;
+    // The game state the worker copies were made from, and the copies
+    private GameState source;
+    private GameState[] workers;
+
+    /**
+     * Constructor. Creates an evaluator.
+     * @param numThreads The number of threads simulating the shots, 1 simulates them on the calling thread
+     */
+    public ShotEvaluator(int numThreads) {
+        if (numThreads < 1) {
+            throw new RuntimeException("The number of threads must be at least 1");
+        }
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Simulates shots and gets their heuristic values
+     * @param shots      The initial velocities of the shots
+     * @param gameState  The game state the shots are taken in
+     * @param heuristic  The heuristic scoring the shots
+     * @param terminator The termination conditions, or {@code null}. The shots of all threads are counted in it
+     * @return The heuristic value of every shot
+     */
+    public double[] evaluate(Vector2[] shots, GameState gameState, Heuristic heuristic, ShotTerminator terminator) {
+        FinalPositionSink[] trajectories = new FinalPositionSink[shots.length];
+        for (int i = 0; i < shots.length; i++) {
+            trajectories[i] = heuristic.createTrajectorySink(gameState);
+        }
+
+        int numTasks = Math.min(numThreads, shots.length);
+        if (numTasks <= 1) {
+            gameState.simulateShots(shots, trajectories, terminator);
+        } else {
+            simulateInParallel(shots, trajectories, numTasks, gameState, heuristic, terminator);
+        }
+
+        double[] values = new double[shots.length];
+        for (int i = 0; i < shots.length; i++) {
+            values[i] = heuristic.getShotValue(trajectories[i], gameState);
+        }
+        return values;
+    }
+
+    private void simulateInParallel(Vector2[] shots, FinalPositionSink[] trajectories, int numTasks,
+            GameState gameState, Heuristic heuristic, ShotTerminator terminator) {
+        updateWorkers(gameState);
+        ShotTerminator[] workerTerminators = new ShotTerminator[numTasks];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[numTasks];
+        ForkJoinPool pool = pools.computeIfAbsent(numThreads, ForkJoinPool::new);
+        for (int task = 0; task < numTasks; task++) {
+            GameState worker = workers[task];
+            if (terminator != null) {
+                workerTerminators[task] = new ShotTerminator(worker);
+                workerTerminators[task].setMeasuringSavedSteps(terminator.isMeasuringSavedSteps());
+                heuristic.addTerminationConditions(workerTerminators[task], worker);
+                if (terminator.hasBestShotValue()) {
+                    workerTerminators[task].setBestShotValue(terminator.getBestShotValue());
+                }
+            }
+            // Contiguous range of shots
+            int start = (int) ((long) shots.length * task / numTasks);
+            int end = (int) ((long) shots.length * (task + 1) / numTasks);
+            Vector2[] taskShots = new Vector2[end - start];
+            FinalPositionSink[] taskTrajectories = new FinalPositionSink[end - start];
+            System.arraycopy(shots, start, taskShots, 0, end - start);
+            System.arraycopy(trajectories, start, taskTrajectories, 0, end - start);
+            ShotTerminator workerTerminator = workerTerminators[task];
+            tasks[task] = pool.submit(() -> worker.simulateShots(taskShots, taskTrajectories, workerTerminator));
+        }
+        for (int task = 0; task < numTasks; task++) {
+            tasks[task].join();
+            if (terminator != null) {
+                terminator.addCounts(workerTerminators[task]);
+            }
+        }
+    }
+
+    /**
+     * Makes sure that there is a copy of the game state with its own engine for every thread
+     */
+    private void updateWorkers(GameState gameState) {
+        if (source != gameState || workers == null) {
+            source = gameState;
+            workers = new GameState[numThreads];
+            for (int i = 0; i < numThreads; i++) {
+                workers[i] = new GameState(gameState.getTerrain(), gameState.getBall().copy(),
+                        gameState.getPhysicsEngine().copy());
+            }
+        }
+        for (GameState worker : workers) {
+            worker.setBallPosition(gameState.getBall().state.position);
+        }
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+}
@@ -3,12 +3,24 @@ package bot;
 import datastorage.Ball;
 import utility.math.Vector2;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class ShotNoiseGenerator {
-    public Vector2 addNoiseToShot(Vector2 shot, double maxAmount) {
-        Random random = new Random();
+    private final SplittableRandom random;
+
+    public ShotNoiseGenerator() {
+        this(new SplittableRandom());
+    }
 
+    /**
+     * Constructor. Creates a noise generator drawing from a given random number generator.
+     * @param random The random number generator, not shared with other threads
+     */
+    public ShotNoiseGenerator(SplittableRandom random) {
+        this.random = random;
+    }
+
+    public Vector2 addNoiseToShot(Vector2 shot, double maxAmount) {
         Vector2 newShot = shot.copy();
 
         newShot.translate(new Vector2(
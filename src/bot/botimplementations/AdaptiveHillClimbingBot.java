@@ -1,8 +1,12 @@
 package bot.botimplementations;
 
+import java.util.SplittableRandom;
+
 import bot.heuristics.Heuristic;
 import datastorage.Ball;
 import datastorage.GameState;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.FinalPositionSink;
 import utility.math.Vector2;
 
 public class AdaptiveHillClimbingBot implements IBot {
@@ -11,6 +15,9 @@ public class AdaptiveHillClimbingBot implements IBot {
     private final Heuristic heuristic;
     private final IBot initialShotTaker;
     private final double maxLearningRate, minLearningRate, decayRate;
+    private ShotTerminator shotTerminator;
+    private boolean isMeasuringSavedSteps = false;
+    private SplittableRandom random = new SplittableRandom();
 
     public AdaptiveHillClimbingBot(Heuristic heuristic, double maxLearningRate, double minLearningRate, double decayRate, int numNeighbours, IBot initialShotTaker) {
         numIterations = 0;
@@ -32,18 +39,24 @@ public class AdaptiveHillClimbingBot implements IBot {
         Vector2 bestShot;
         if (initialShotTaker == null) {
             bestShot = new Vector2(
-                    Math.random()*2-1,
-                    Math.random()*2-1
-            ).normalize().scale(Math.random()* Ball.maxSpeed);
+                    random.nextDouble()*2-1,
+                    random.nextDouble()*2-1
+            ).normalize().scale(random.nextDouble()* Ball.maxSpeed);
         } else {
             bestShot = initialShotTaker.findBestShot(gameState);
             numSimulations = initialShotTaker.getNumSimulations();
             numIterations = initialShotTaker.getNumIterations();
         }
+        FinalPositionSink trajectory = heuristic.createTrajectorySink(gameState);
+        shotTerminator = new ShotTerminator(gameState);
+        shotTerminator.setMeasuringSavedSteps(isMeasuringSavedSteps);
+        heuristic.addTerminationConditions(shotTerminator, gameState);
+        gameState.simulateShot(bestShot, trajectory, shotTerminator);
         double bestHeuristicVal = heuristic.getShotValue(
-                gameState.simulateShot(bestShot),
+                trajectory,
                 gameState
         );
+        shotTerminator.setBestShotValue(bestHeuristicVal);
         numSimulations++;
 
         double learningRate = maxLearningRate;
@@ -64,14 +77,16 @@ public class AdaptiveHillClimbingBot implements IBot {
                     newShot.normalize().scale(Ball.maxSpeed);
                 }
 
+                gameState.simulateShot(newShot, trajectory, shotTerminator);
                 double heuristicVal = heuristic.getShotValue(
-                        gameState.simulateShot(newShot),
+                        trajectory,
                         gameState
                 );
                 numSimulations++;
 
                 if (heuristic.firstBetterThanSecond(heuristicVal, bestHeuristicVal)) {
                     bestHeuristicVal = heuristicVal;
+                    shotTerminator.setBestShotValue(bestHeuristicVal);
                     tempBestShot = newShot;
                 }
             }
@@ -89,11 +104,29 @@ public class AdaptiveHillClimbingBot implements IBot {
         return bestShot;
     }
 
+    @Override
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+        if (initialShotTaker != null) {
+            initialShotTaker.setRandom(random.split());
+        }
+    }
+
     @Override
     public int getNumSimulations() {
         return numSimulations;
     }
 
+    @Override
+    public ShotTerminator getShotTerminator() {
+        return shotTerminator;
+    }
+
+    @Override
+    public void setMeasuringSavedSteps(boolean isMeasuring) {
+        isMeasuringSavedSteps = isMeasuring;
+    }
+
     @Override
     public int getNumIterations() {
         return numIterations;
@@ -1,10 +1,11 @@
 package bot.botimplementations;
 
-import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 import bot.heuristics.Heuristic;
 import datastorage.Ball;
 import datastorage.GameState;
+import physics.trajectories.FinalPositionSink;
 import utility.math.Vector2;
 
 public class GradientDescentBot implements IBot {
@@ -13,6 +14,7 @@ public class GradientDescentBot implements IBot {
     private final IBot initialShotTaker;
     private int numSimulations;
     private int numIterations;
+    private SplittableRandom random = new SplittableRandom();
 
     public GradientDescentBot(Heuristic heuristic, double learningRate, IBot initialShotTaker) {
         this.heuristic = heuristic;
@@ -25,24 +27,26 @@ public class GradientDescentBot implements IBot {
         numIterations = 0;
         numSimulations = 0;
         gameState = gameState.copy();
+        FinalPositionSink trajectory = heuristic.createTrajectorySink(gameState);
         Vector2 currentShot;
         // Take an initial shot
         if (initialShotTaker == null) {
-            currentShot = new Vector2(Math.random() * 2 - 1, Math.random() * 2 - 1);
-            currentShot.normalize().scale(Ball.maxSpeed * Math.random());
+            currentShot = new Vector2(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
+            currentShot.normalize().scale(Ball.maxSpeed * random.nextDouble());
         } else {
             currentShot = initialShotTaker.findBestShot(gameState);
             numSimulations = initialShotTaker.getNumSimulations();
             numIterations = initialShotTaker.getNumIterations();
         }
-        ArrayList<Vector2> positions = gameState.simulateShot(currentShot);
-        double currentHeuristic = heuristic.getShotValue(positions, gameState);
+        gameState.simulateShot(currentShot, trajectory);
+        double currentHeuristic = heuristic.getShotValue(trajectory, gameState);
         final double derivativeStep = 0.0001;
         Vector2 gradient;
         int numShots = 0;
         boolean holeInOne = false;
         // Check for hole in one
-        holeInOne = positions.get(positions.size()-1).distanceTo(gameState.getTerrain().target.position) <= gameState.getTerrain().target.radius;
+        holeInOne = trajectory.getFinalPosition().distanceTo(gameState.getTerrain().target.position)
+                <= gameState.getTerrain().target.radius;
         while (numShots < 1000 && !holeInOne) {
             numIterations++;
             // Calculate the x partial derivative
@@ -52,11 +56,12 @@ public class GradientDescentBot implements IBot {
                 xFlipped = true;
                 xShot = new Vector2(currentShot.x - derivativeStep, currentShot.y);
             }
-            ArrayList<Vector2> positionsX = gameState.simulateShot(
-                    xShot
+            gameState.simulateShot(
+                    xShot,
+                    trajectory
             );
             numSimulations++;
-            double newHeuristicX = heuristic.getShotValue(positionsX, gameState);
+            double newHeuristicX = heuristic.getShotValue(trajectory, gameState);
             double dx = (newHeuristicX - currentHeuristic)/derivativeStep;
             if (xFlipped) {
                 dx = -dx;
@@ -68,11 +73,12 @@ public class GradientDescentBot implements IBot {
                 yFlipped = true;
                 yShot = new Vector2(currentShot.x, currentShot.y - derivativeStep);
             }
-            ArrayList<Vector2> positionsY = gameState.simulateShot(
-                    yShot
+            gameState.simulateShot(
+                    yShot,
+                    trajectory
             );
             numSimulations++;
-            double newHeuristicY = heuristic.getShotValue(positionsY, gameState);
+            double newHeuristicY = heuristic.getShotValue(trajectory, gameState);
             double dy = (newHeuristicY - currentHeuristic)/derivativeStep;
             if (yFlipped) {
                 dy = -dy;
@@ -99,16 +105,25 @@ public class GradientDescentBot implements IBot {
             if (currentShot.length() > Ball.maxSpeed) {
                 currentShot.normalize().scale(Ball.maxSpeed);
             }
-            positions = gameState.simulateShot(currentShot);
+            gameState.simulateShot(currentShot, trajectory);
             numSimulations++;
-            currentHeuristic = heuristic.getShotValue(positions, gameState);
-            holeInOne = positions.get(positions.size()-1).distanceTo(gameState.getTerrain().target.position) <= gameState.getTerrain().target.radius;
+            currentHeuristic = heuristic.getShotValue(trajectory, gameState);
+            holeInOne = trajectory.getFinalPosition().distanceTo(gameState.getTerrain().target.position)
+                    <= gameState.getTerrain().target.radius;
             numShots++;
         }
 
         return currentShot;
     }
 
+    @Override
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+        if (initialShotTaker != null) {
+            initialShotTaker.setRandom(random.split());
+        }
+    }
+
     @Override
     public int getNumSimulations() {
         return numSimulations;
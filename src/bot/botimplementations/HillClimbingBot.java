@@ -1,10 +1,12 @@
 package bot.botimplementations;
 
-import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 import bot.heuristics.Heuristic;
 import datastorage.Ball;
 import datastorage.GameState;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.FinalPositionSink;
 import utility.math.Vector2;
 
 public class HillClimbingBot implements IBot {
@@ -15,6 +17,9 @@ public class HillClimbingBot implements IBot {
     private final IBot initialShotTaker;
     private int numSimulations;
     private int numIterations;
+    private ShotTerminator shotTerminator;
+    private boolean isMeasuringSavedSteps = false;
+    private SplittableRandom random = new SplittableRandom();
 
     public HillClimbingBot(Heuristic heuristic, double learningRate, int numNeighbours, IBot initialShotTaker) {
         this.heuristic = heuristic;
@@ -28,11 +33,15 @@ public class HillClimbingBot implements IBot {
         numIterations = 0;
         numSimulations = 0;
         gameState = gameState.copy();
+        FinalPositionSink trajectory = heuristic.createTrajectorySink(gameState);
+        shotTerminator = new ShotTerminator(gameState);
+        shotTerminator.setMeasuringSavedSteps(isMeasuringSavedSteps);
+        heuristic.addTerminationConditions(shotTerminator, gameState);
         // Take an initial shot
         Vector2 bestShot;
         if (initialShotTaker == null) {
-            bestShot = new Vector2(Math.random() * 2 - 1, Math.random() * 2 - 1);
-            bestShot.normalize().scale(Math.random()*Ball.maxSpeed);
+            bestShot = new Vector2(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
+            bestShot.normalize().scale(random.nextDouble()*Ball.maxSpeed);
         } else {
             bestShot = initialShotTaker.findBestShot(gameState);
             numSimulations = initialShotTaker.getNumSimulations();
@@ -40,10 +49,16 @@ public class HillClimbingBot implements IBot {
         }
 
         boolean bestShotUpdated = true;
+        Vector2[] neighbours = new Vector2[numNeighbours];
+        FinalPositionSink[] neighbourTrajectories = new FinalPositionSink[numNeighbours];
+        for (int neighbour = 0; neighbour < numNeighbours; neighbour++) {
+            neighbourTrajectories[neighbour] = heuristic.createTrajectorySink(gameState);
+        }
 
         // Initial heuristic calculation
-        ArrayList<Vector2> positions = gameState.simulateShot(bestShot);
-        double bestHeuristicVal = heuristic.getShotValue(positions, gameState);
+        gameState.simulateShot(bestShot, trajectory, shotTerminator);
+        double bestHeuristicVal = heuristic.getShotValue(trajectory, gameState);
+        shotTerminator.setBestShotValue(bestHeuristicVal);
         numSimulations++;
 
         //boolean holeInOne = positions.get(positions.size()-1).distanceTo(gameState.getTerrain().target.position) <= gameState.getTerrain().target.radius;
@@ -64,18 +79,24 @@ public class HillClimbingBot implements IBot {
                 if (velocity.length() > Ball.maxSpeed) {
                     velocity.normalize().scale(Ball.maxSpeed);
                 }
+                neighbours[neighbour] = velocity;
+            }
 
-                positions = gameState.simulateShot(velocity);
+            // All neighbours are simulated together
+            gameState.simulateShots(neighbours, neighbourTrajectories, shotTerminator);
+
+            for (int neighbour = 0; neighbour < numNeighbours; neighbour++) {
                 numSimulations++;
 
                 //if (!holeInOne)
                 //    holeInOne = positions.get(positions.size()-1).distanceTo(gameState.getTerrain().target.position) <= gameState.getTerrain().target.radius;
 
-                double heuristicVal = heuristic.getShotValue(positions, gameState);
+                double heuristicVal = heuristic.getShotValue(neighbourTrajectories[neighbour], gameState);
 
                 if (heuristic.firstBetterThanSecond(heuristicVal, bestHeuristicVal)) {
-                    tempBestShot = velocity.copy();
+                    tempBestShot = neighbours[neighbour].copy();
                     bestHeuristicVal = heuristicVal;
+                    shotTerminator.setBestShotValue(bestHeuristicVal);
                     bestShotUpdated = true;
                 }
             }
@@ -85,11 +106,29 @@ public class HillClimbingBot implements IBot {
         return bestShot;
     }
 
+    @Override
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+        if (initialShotTaker != null) {
+            initialShotTaker.setRandom(random.split());
+        }
+    }
+
     @Override
     public int getNumSimulations() {
         return numSimulations;
     }
 
+    @Override
+    public ShotTerminator getShotTerminator() {
+        return shotTerminator;
+    }
+
+    @Override
+    public void setMeasuringSavedSteps(boolean isMeasuring) {
+        isMeasuringSavedSteps = isMeasuring;
+    }
+
     @Override
     public int getNumIterations() {
         return numIterations;
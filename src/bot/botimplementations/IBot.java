@@ -1,10 +1,37 @@
 package bot.botimplementations;
 
+import java.util.SplittableRandom;
+
 import datastorage.GameState;
+import physics.terminationconditions.ShotTerminator;
 import utility.math.Vector2;
 
 public interface IBot {
     public Vector2 findBestShot(GameState gameState);
     public int getNumSimulations();
     public int getNumIterations();
+
+    /**
+     * Gets the terminator that ended shots early during the last search
+     * @return The terminator, or {@code null} if the bot simulates every shot until the ball stops
+     */
+    public default ShotTerminator getShotTerminator() {
+        return null;
+    }
+
+    /**
+     * Makes the terminator of the next searches finish shots that could have ended early, to count the saved
+     * steps. Bots without a terminator ignore it.
+     * @param isMeasuring {@code true} to count the saved steps
+     */
+    public default void setMeasuringSavedSteps(boolean isMeasuring) {
+    }
+
+    /**
+     * Sets the random number generator the bot draws its shots from, so that a search can be replayed from a seed.
+     * Bots using other bots for their initial shot pass them a split of it. Bots are seeded randomly otherwise.
+     * @param random The random number generator, not shared with any other bot
+     */
+    public default void setRandom(SplittableRandom random) {
+    }
 }
@@ -1,8 +1,8 @@
 package bot.botimplementations;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
 
+import bot.ShotEvaluator;
 import bot.heuristics.Heuristic;
 import datastorage.Ball;
 import datastorage.GameState;
@@ -12,18 +12,28 @@ public class ParticleSwarmBot implements IBot {
 
     private final Heuristic heuristic;
     private final double w, c1, c2;
-    private final Random random;
+    private SplittableRandom random = new SplittableRandom();
     private final int numParticles, numGenerations;
     public int numSimulations, numIterations;
+    private final ShotEvaluator evaluator;
 
     public ParticleSwarmBot(Heuristic heuristic, double w, double c1, double c2, int numParticles, int numGenerations) {
+        this(heuristic, w, c1, c2, numParticles, numGenerations, 1);
+    }
+
+    /**
+     * Constructor. Creates a bot simulating the particles of a generation on several threads.
+     * @param numThreads The number of threads simulating the shots
+     */
+    public ParticleSwarmBot(Heuristic heuristic, double w, double c1, double c2, int numParticles, int numGenerations,
+            int numThreads) {
         this.heuristic = heuristic;
         this.w = w;
         this.c1 = c1;
         this.c2 = c2;
-        this.random = new Random();
         this.numParticles = numParticles;
         this.numGenerations = numGenerations;
+        this.evaluator = new ShotEvaluator(numThreads);
     }
 
     @Override
@@ -36,8 +46,9 @@ public class ParticleSwarmBot implements IBot {
         // Initialize the population
         Particle[] particles = new Particle[numParticles];
         for (int i = 0; i < particles.length; i++) {
-            particles[i] = new Particle(gameState);
+            particles[i] = new Particle();
         }
+        updateBestPositions(particles, gameState);
         // Find the best shot
         for (Particle particle : particles) {
             if (bestShot == null || heuristic.firstBetterThanSecond(particle.bestHeuristicValue, bestHeuristic)) {
@@ -50,6 +61,7 @@ public class ParticleSwarmBot implements IBot {
             for (Particle particle : particles) {
                 particle.move(bestShot);
             }
+            updateBestPositions(particles, gameState);
             // Find the best shot
             for (Particle particle : particles) {
                 if (heuristic.firstBetterThanSecond(particle.bestHeuristicValue, bestHeuristic)) {
@@ -62,6 +74,25 @@ public class ParticleSwarmBot implements IBot {
         return bestShot;
     }
 
+    /**
+     * Simulates the shots of all particles together, then updates their best positions
+     */
+    private void updateBestPositions(Particle[] particles, GameState gameState) {
+        Vector2[] shots = new Vector2[particles.length];
+        for (int i = 0; i < particles.length; i++) {
+            shots[i] = particles[i].position;
+        }
+        double[] heuristicValues = evaluator.evaluate(shots, gameState, heuristic, null);
+        for (int i = 0; i < particles.length; i++) {
+            particles[i].updateBestPosition(heuristicValues[i]);
+        }
+    }
+
+    @Override
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
     @Override
     public int getNumSimulations() {
         return numSimulations;
@@ -77,23 +108,22 @@ public class ParticleSwarmBot implements IBot {
         Vector2 position;
         Vector2 bestPosition;
         double bestHeuristicValue;
-        GameState gameState;
 
-        Particle(GameState gameState) {
-            this.gameState = gameState;
+        Particle() {
             position = new Vector2(
                     random.nextDouble() * 2 - 1,
                     random.nextDouble() * 2 - 1).normalize().scale(random.nextDouble() * Ball.maxSpeed);
             velocity = new Vector2(
                     random.nextDouble() * 2 - 1,
                     random.nextDouble() * 2 - 1).normalize();
-            updateBestPosition();
         }
 
-        void updateBestPosition() {
-            ArrayList<Vector2> ballPositions = gameState.simulateShot(position);
+        /**
+         * Updates the best position after the shot at the current position was simulated
+         * @param heuristicVal The heuristic value of the shot
+         */
+        void updateBestPosition(double heuristicVal) {
             numSimulations++;
-            double heuristicVal = heuristic.getShotValue(ballPositions, gameState);
             if (bestPosition == null || heuristic.firstBetterThanSecond(heuristicVal, bestHeuristicValue)) {
                 bestPosition = position.copy();
                 bestHeuristicValue = heuristicVal;
@@ -110,8 +140,6 @@ public class ParticleSwarmBot implements IBot {
             velocity.translate(velocity.scaled(w));
             velocity.translate(bestPosition.translated(position.reversed()).scaled(c1 * random.nextDouble()));
             velocity.translate(globalBest.translated(position.reversed()).scaled(c2 * random.nextDouble()));
-
-            updateBestPosition();
         }
     }
 }
@@ -1,22 +1,57 @@
 package bot.botimplementations;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
 
+import bot.ShotEvaluator;
 import bot.heuristics.Heuristic;
 import datastorage.Ball;
 import datastorage.GameState;
+import physics.terminationconditions.ShotTerminator;
 import utility.math.Vector2;
 
 public class RandomBot implements IBot {
+    // Number of shots simulated together, unless another one is given
+    public static final int DEFAULT_BATCH_SIZE = 64;
 
     private final int numShots;
+    private final int batchSize;
     private final Heuristic heuristic;
     private int numSimulations, numIterations;
+    private ShotTerminator shotTerminator;
+    private boolean isMeasuringSavedSteps = false;
+    private final ShotEvaluator evaluator;
+    private SplittableRandom random = new SplittableRandom();
 
     public RandomBot(Heuristic heuristic, int numShots) {
+        this(heuristic, numShots, 1);
+    }
+
+    /**
+     * Constructor. Creates a bot simulating its shots on several threads.
+     * @param heuristic The heuristic scoring the shots
+     * @param numShots The number of random shots to take
+     * @param numThreads The number of threads simulating the shots
+     */
+    public RandomBot(Heuristic heuristic, int numShots, int numThreads) {
+        this(heuristic, numShots, numThreads, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor. Creates a bot simulating its shots on several threads, in batches of a given size.
+     * Larger batches keep more threads busy, but the best shot is updated less often, so fewer shots end early.
+     * @param heuristic The heuristic scoring the shots
+     * @param numShots The number of random shots to take
+     * @param numThreads The number of threads simulating the shots
+     * @param batchSize The number of shots simulated together. The results depend on it, but not on the threads
+     */
+    public RandomBot(Heuristic heuristic, int numShots, int numThreads, int batchSize) {
+        if (batchSize <= 0) {
+            throw new RuntimeException("The batch size must be positive");
+        }
         this.numShots = numShots;
+        this.batchSize = batchSize;
         this.heuristic = heuristic;
+        this.evaluator = new ShotEvaluator(numThreads);
     }
 
     @Override
@@ -26,33 +61,59 @@ public class RandomBot implements IBot {
         Vector2 bestShot = null;
         double bestHeuristic = 0;
         gameState = gameState.copy();
+        shotTerminator = new ShotTerminator(gameState);
+        shotTerminator.setMeasuringSavedSteps(isMeasuringSavedSteps);
+        heuristic.addTerminationConditions(shotTerminator, gameState);
+        // The shots are simulated together in batches, the best value is updated between them.
+        // The threads share every batch, so the batches and the results do not depend on the number of threads
         // Take random shots and return the best one
-        Random random = new Random();
-        for (int i=0; i<numShots; i++) {
-            numIterations++;
-            Vector2 shot = new Vector2(
-                    random.nextDouble()*2-1,
-                    random.nextDouble()*2-1
-            ).normalized().scaled(random.nextDouble()* Ball.maxSpeed);
-
-            ArrayList<Vector2> shotPositions = gameState.simulateShot(shot);
-            numSimulations++;
-
-            double heuristicVal = heuristic.getShotValue(shotPositions, gameState);
-
-            if (bestShot == null || heuristic.firstBetterThanSecond(heuristicVal, bestHeuristic)) {
-                bestHeuristic = heuristicVal;
-                bestShot = shot;
+        for (int start = 0; start < numShots; start += batchSize) {
+            Vector2[] shots = new Vector2[Math.min(batchSize, numShots - start)];
+            for (int i = 0; i < shots.length; i++) {
+                shots[i] = new Vector2(
+                        random.nextDouble()*2-1,
+                        random.nextDouble()*2-1
+                ).normalized().scaled(random.nextDouble()* Ball.maxSpeed);
+            }
+
+            double[] heuristicValues = evaluator.evaluate(shots, gameState, heuristic, shotTerminator);
+
+            for (int i = 0; i < shots.length; i++) {
+                numIterations++;
+                numSimulations++;
+
+                double heuristicVal = heuristicValues[i];
+
+                if (bestShot == null || heuristic.firstBetterThanSecond(heuristicVal, bestHeuristic)) {
+                    bestHeuristic = heuristicVal;
+                    bestShot = shots[i];
+                    shotTerminator.setBestShotValue(bestHeuristic);
+                }
             }
         }
         return bestShot;
     }
 
+    @Override
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
     @Override
     public int getNumSimulations() {
         return numSimulations;
     }
 
+    @Override
+    public ShotTerminator getShotTerminator() {
+        return shotTerminator;
+    }
+
+    @Override
+    public void setMeasuringSavedSteps(boolean isMeasuring) {
+        isMeasuringSavedSteps = isMeasuring;
+    }
+
     @Override
     public int getNumIterations() {
         return numIterations;
@@ -3,10 +3,10 @@ package bot.botimplementations;
 import bot.heuristics.Heuristic;
 import datastorage.Ball;
 import datastorage.GameState;
+import physics.trajectories.FinalPositionSink;
 import utility.math.Vector2;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class SimulatedAnnealingBot implements IBot {
     private final Heuristic heuristic;
@@ -15,6 +15,7 @@ public class SimulatedAnnealingBot implements IBot {
     private final IBot initialShotTaker;
     private int numSimulations;
     private int numIterations2;
+    private SplittableRandom random = new SplittableRandom();
 
     public SimulatedAnnealingBot(Heuristic heuristic, double learningRate, int numIterations, IBot initialShotTaker) {
         this.heuristic = heuristic;
@@ -29,26 +30,26 @@ public class SimulatedAnnealingBot implements IBot {
         numSimulations = 0;
         gameState = gameState.copy();
 
-        Random random = new Random();
-
         Vector2 shot;
         if (initialShotTaker == null) {
-            shot = new Vector2(Math.random() * 2 - 1, Math.random() * 2 - 1);
-            shot.normalize().scale(Math.random()* Ball.maxSpeed);
+            shot = new Vector2(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1);
+            shot.normalize().scale(random.nextDouble()* Ball.maxSpeed);
         } else {
             shot = initialShotTaker.findBestShot(gameState);
             numSimulations = initialShotTaker.getNumSimulations();
             numIterations2 = initialShotTaker.getNumIterations();
         }
 
-        ArrayList<Vector2> positions = gameState.simulateShot(shot);
+        FinalPositionSink trajectory = heuristic.createTrajectorySink(gameState);
+        gameState.simulateShot(shot, trajectory);
         double currentHeuristicVal = heuristic.getShotValue(
-                positions,
+                trajectory,
                 gameState
         );
 
         boolean holeInOne = false;
-        holeInOne = positions.get(positions.size()-1).distanceTo(gameState.getTerrain().target.position) <= gameState.getTerrain().target.radius;
+        holeInOne = trajectory.getFinalPosition().distanceTo(gameState.getTerrain().target.position)
+                <= gameState.getTerrain().target.radius;
 
         for (int i=0; i<numIterations && !holeInOne; i++) {
             numIterations2++;
@@ -68,14 +69,15 @@ public class SimulatedAnnealingBot implements IBot {
                 neighbourShot.normalize().scale(Ball.maxSpeed);
             }
 
-            positions = gameState.simulateShot(neighbourShot);
+            gameState.simulateShot(neighbourShot, trajectory);
             double heuristicVal = heuristic.getShotValue(
-                    positions,
+                    trajectory,
                     gameState
             );
             numSimulations++;
 
-            holeInOne = positions.get(positions.size()-1).distanceTo(gameState.getTerrain().target.position) <= gameState.getTerrain().target.radius;
+            holeInOne = trajectory.getFinalPosition().distanceTo(gameState.getTerrain().target.position)
+                    <= gameState.getTerrain().target.radius;
 
             double selectProbability; // Calculate the probability of selecting this neighbour
 
@@ -94,6 +96,14 @@ public class SimulatedAnnealingBot implements IBot {
         return shot;
     }
 
+    @Override
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+        if (initialShotTaker != null) {
+            initialShotTaker.setRandom(random.split());
+        }
+    }
+
     @Override
     public int getNumSimulations() {
         return numSimulations;
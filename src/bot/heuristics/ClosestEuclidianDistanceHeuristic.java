@@ -3,6 +3,9 @@ package bot.heuristics;
 import java.util.ArrayList;
 
 import datastorage.GameState;
+import physics.trajectories.ClosestApproachSink;
+import physics.trajectories.FinalPositionSink;
+import physics.trajectories.TrajectoryMode;
 import utility.math.Vector2;
 
 public class ClosestEuclidianDistanceHeuristic implements Heuristic {
@@ -20,6 +23,16 @@ public class ClosestEuclidianDistanceHeuristic implements Heuristic {
         return minDistance;
     }
 
+    @Override
+    public double getShotValue(FinalPositionSink shot, GameState gameState) {
+        return ((ClosestApproachSink) shot).getClosestDistance();
+    }
+
+    @Override
+    public TrajectoryMode getTrajectoryMode() {
+        return TrajectoryMode.CLOSEST_APPROACH;
+    }
+
     @Override
     public boolean firstBetterThanSecond(double heuristic1, double heuristic2) {
         return heuristic1 < heuristic2;
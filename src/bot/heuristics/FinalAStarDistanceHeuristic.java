@@ -1,41 +1,77 @@
 package bot.heuristics;
 
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 
-import bot.AStar;
+import bot.DistanceField;
 import datastorage.GameState;
 import datastorage.Terrain;
+import physics.terminationconditions.HoleCapturedCondition;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.FinalPositionSink;
+import physics.trajectories.TrajectoryMode;
 import utility.math.Vector2;
 
+/**
+ * Scores shots by the length of the shortest path from their final position to the target, avoiding water and
+ * obstacles. The lengths come from a {@link DistanceField}, which is only recalculated when the obstacles or the
+ * target change.
+ */
 public class FinalAStarDistanceHeuristic implements Heuristic {
+    private static final int SQUARES_PER_GAME_UNIT = 2;
 
-    AStar aStar;
+    private final Terrain terrain;
+    private DistanceField distanceField;
     private final Heuristic distanceHeuristic = new FinalEuclidianDistanceHeuristic();
     private boolean useEuclideanDistance = false;
 
     public FinalAStarDistanceHeuristic(Terrain terrain) {
-        aStar = new AStar(terrain);
+        this.terrain = terrain;
     }
 
     @Override
     public double getShotValue(ArrayList<Vector2> shotPositions, GameState gameState) {
+        double lastPointDistance = distanceHeuristic.getShotValue(shotPositions, gameState);
+        return getShotValue(shotPositions.get(shotPositions.size() - 1), lastPointDistance, gameState);
+    }
+
+    @Override
+    public double getShotValue(FinalPositionSink shot, GameState gameState) {
+        double lastPointDistance = distanceHeuristic.getShotValue(shot, gameState);
+        return getShotValue(shot.getFinalPosition(), lastPointDistance, gameState);
+    }
+
+    @Override
+    public TrajectoryMode getTrajectoryMode() {
+        return TrajectoryMode.FINAL_POSITION;
+    }
+
+    private double getShotValue(Vector2 finalPosition, double lastPointDistance, GameState gameState) {
         useEuclideanDistance = false;
-        trySwitchMode(shotPositions, gameState);
+        trySwitchMode(lastPointDistance, gameState);
         if (useEuclideanDistance) {
-            return countEuclideanDistance(shotPositions, gameState);
+            return lastPointDistance;
         }
-        // Otherwise, check AStar
-        Vector2 finalPosition = shotPositions.get(shotPositions.size() - 1);
-        try {
-            return aStar.getDistanceToTarget(finalPosition, 2);
-        } catch (NoSuchAlgorithmException e) {
+        // Otherwise, check the shortest path
+        double pathDistance = getDistanceField(gameState.getTerrain()).getDistanceToTarget(finalPosition);
+        if (pathDistance == Double.POSITIVE_INFINITY) {
+            // Ball is in water or inside obstacle
             return 1000;
         }
+        return pathDistance;
     }
 
-    private void trySwitchMode(ArrayList<Vector2> shotPositions, GameState gameState) {
-        double lastPointDistance = distanceHeuristic.getShotValue(shotPositions, gameState);
+    /**
+     * Gets the distance field of a terrain, creating it again if the obstacles or the target changed
+     */
+    private DistanceField getDistanceField(Terrain gameTerrain) {
+        Terrain fieldTerrain = gameTerrain != null ? gameTerrain : terrain;
+        if (distanceField == null || !distanceField.isValidFor(fieldTerrain)) {
+            distanceField = new DistanceField(fieldTerrain, SQUARES_PER_GAME_UNIT);
+        }
+        return distanceField;
+    }
+
+    private void trySwitchMode(double lastPointDistance, GameState gameState) {
         // There could be no need to check the distance with AStar
         double targetRadius = gameState.getTerrain().target.radius;
         boolean ballPassedThroughTarget = lastPointDistance < targetRadius;
@@ -45,8 +81,10 @@ public class FinalAStarDistanceHeuristic implements Heuristic {
         }
     }
 
-    private double countEuclideanDistance(ArrayList<Vector2> shotPositions, GameState gameState) {
-        return distanceHeuristic.getShotValue(shotPositions, gameState);
+    @Override
+    public void addTerminationConditions(ShotTerminator terminator, GameState gameState) {
+        // Shots ending in the target are measured with the euclidean distance
+        terminator.addCondition(new HoleCapturedCondition(gameState.getTerrain().target));
     }
 
     @Override
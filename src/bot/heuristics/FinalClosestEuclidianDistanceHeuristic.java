@@ -1,6 +1,10 @@
 package bot.heuristics;
 
 import datastorage.GameState;
+import physics.terminationconditions.HoleCapturedCondition;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.FinalPositionSink;
+import physics.trajectories.TrajectoryMode;
 import utility.math.Vector2;
 
 import java.util.ArrayList;
@@ -15,6 +19,22 @@ public class FinalClosestEuclidianDistanceHeuristic implements Heuristic {
         return finalHeuristic.getShotValue(shotPositions, gameState) + closestHeuristic.getShotValue(shotPositions, gameState);
     }
 
+    @Override
+    public double getShotValue(FinalPositionSink shot, GameState gameState) {
+        return finalHeuristic.getShotValue(shot, gameState) + closestHeuristic.getShotValue(shot, gameState);
+    }
+
+    @Override
+    public TrajectoryMode getTrajectoryMode() {
+        // Also records the final position
+        return TrajectoryMode.CLOSEST_APPROACH;
+    }
+
+    @Override
+    public void addTerminationConditions(ShotTerminator terminator, GameState gameState) {
+        terminator.addCondition(new HoleCapturedCondition(gameState.getTerrain().target));
+    }
+
     @Override
     public boolean firstBetterThanSecond(double heuristic1, double heuristic2) {
         return heuristic1 < heuristic2;
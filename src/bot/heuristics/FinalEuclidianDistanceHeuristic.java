@@ -3,6 +3,11 @@ package bot.heuristics;
 import java.util.ArrayList;
 
 import datastorage.GameState;
+import physics.terminationconditions.CannotImproveCondition;
+import physics.terminationconditions.HoleCapturedCondition;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.FinalPositionSink;
+import physics.trajectories.TrajectoryMode;
 import utility.math.Vector2;
 
 public class FinalEuclidianDistanceHeuristic implements Heuristic {
@@ -15,6 +20,25 @@ public class FinalEuclidianDistanceHeuristic implements Heuristic {
         return finalPosition.copy().translate(targetPosition.copy().scale(-1)).length();
     }
 
+    @Override
+    public double getShotValue(FinalPositionSink shot, GameState gameState) {
+        Vector2 targetPosition = gameState.getTerrain().target.position;
+        double dx = shot.getFinalX() - targetPosition.x;
+        double dy = shot.getFinalY() - targetPosition.y;
+        return Math.sqrt((dx * dx) + (dy * dy));
+    }
+
+    @Override
+    public TrajectoryMode getTrajectoryMode() {
+        return TrajectoryMode.FINAL_POSITION;
+    }
+
+    @Override
+    public void addTerminationConditions(ShotTerminator terminator, GameState gameState) {
+        terminator.addCondition(new HoleCapturedCondition(gameState.getTerrain().target));
+        terminator.addCondition(new CannotImproveCondition(gameState.getTerrain().target));
+    }
+
     @Override
     public boolean firstBetterThanSecond(double heuristic1, double heuristic2) {
         return heuristic1 < heuristic2;
@@ -3,9 +3,54 @@ package bot.heuristics;
 import java.util.ArrayList;
 
 import datastorage.GameState;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.DecimatedTrajectorySink;
+import physics.trajectories.FinalPositionSink;
+import physics.trajectories.TrajectoryMode;
 import utility.math.Vector2;
 
 public interface Heuristic {
     public double getShotValue(ArrayList<Vector2> shotPositions, GameState gameState);
     public boolean firstBetterThanSecond(double heuristic1, double heuristic2);
+
+    /**
+     * Gets what this heuristic needs to know about a shot. Bots record only that, which is cheaper than
+     * storing every position.
+     * @return The trajectory mode, all positions unless the heuristic overrides it
+     */
+    public default TrajectoryMode getTrajectoryMode() {
+        return TrajectoryMode.ALL_POSITIONS;
+    }
+
+    /**
+     * Creates a sink recording what this heuristic needs. It can be reused for every shot.
+     * @param gameState The game state the shots are taken in
+     * @return The sink
+     */
+    public default FinalPositionSink createTrajectorySink(GameState gameState) {
+        return getTrajectoryMode().createSink(gameState.getTerrain().target.position);
+    }
+
+    /**
+     * Gets the value of a shot recorded by a sink from {@link #createTrajectorySink(GameState)}
+     * @param shot      The recorded shot
+     * @param gameState The game state the shot was taken in
+     * @return The value of the shot
+     */
+    public default double getShotValue(FinalPositionSink shot, GameState gameState) {
+        if (!(shot instanceof DecimatedTrajectorySink)) {
+            throw new RuntimeException(getClass().getSimpleName() + " needs all the positions of a shot");
+        }
+        return getShotValue(((DecimatedTrajectorySink) shot).getPositions(), gameState);
+    }
+
+    /**
+     * Registers the conditions that can end a shot early. A shot that ends early gets the value of the position
+     * it ended at. Only shots that cannot become better than the best one so far end early, except for shots
+     * that end in the target: all of those are treated as equally good, so which one is preferred can change.
+     * @param terminator The terminator of the search
+     * @param gameState  The game state the shots are taken in
+     */
+    public default void addTerminationConditions(ShotTerminator terminator, GameState gameState) {
+    }
 }
@@ -1,6 +1,9 @@
 package datastorage;
 
+import physics.BatchPhysicsEngine;
 import physics.PhysicsEngine;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.ITrajectorySink;
 import utility.math.Vector2;
 
 import java.util.ArrayList;
@@ -9,6 +12,8 @@ public class GameState {
     private final Terrain terrain;
     private final PhysicsEngine physicsEngine;
     private final Ball ball;
+    // Created when shots are first simulated together
+    private BatchPhysicsEngine batchPhysicsEngine;
 
     public GameState(Terrain terrain, Ball ball, PhysicsEngine physicsEngine) {
         this.terrain = terrain;
@@ -43,4 +48,25 @@ public class GameState {
     public ArrayList<Vector2> simulateShot(Vector2 velocity) {
         return physicsEngine.simulateShot(velocity, ball, terrain);
     }
+
+    public void simulateShot(Vector2 velocity, ITrajectorySink trajectory) {
+        physicsEngine.simulateShot(velocity, ball, terrain, trajectory);
+    }
+
+    public void simulateShot(Vector2 velocity, ITrajectorySink trajectory, ShotTerminator terminator) {
+        physicsEngine.simulateShot(velocity, ball, terrain, trajectory, terminator);
+    }
+
+    /**
+     * Simulates many shots together, see {@link BatchPhysicsEngine}
+     * @param velocities The initial velocities of the shots
+     * @param trajectories One sink per shot
+     * @param terminator The termination conditions, or {@code null}
+     */
+    public void simulateShots(Vector2[] velocities, ITrajectorySink[] trajectories, ShotTerminator terminator) {
+        if (batchPhysicsEngine == null) {
+            batchPhysicsEngine = new BatchPhysicsEngine(physicsEngine);
+        }
+        batchPhysicsEngine.simulateShots(velocities, ball, terrain, trajectories, terminator);
+    }
 }
@@ -0,0 +1,224 @@
+package datastorage;
+
+import java.util.Arrays;
+import java.util.List;
+
+import datastorage.obstacles.IObstacle;
+import datastorage.obstacles.ObstacleBox;
+import datastorage.obstacles.ObstacleTree;
+import datastorage.obstacles.ObstacleWall;
+
+/**
+ * A uniform grid over the bounding boxes of the obstacles of a terrain. Every cell lists the obstacles overlapping
+ * it, so finding the obstacles near the ball only checks the obstacles of a few cells instead of all of them.
+ * Obstacles of unknown shape have no bounding box and are found by every query.
+ * The index is built for one list of obstacles and has to be rebuilt when the obstacles change.
+ */
+public class ObstacleIndex {
+    // Largest number of cells per side, limits the memory used by the grid
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    private final List<IObstacle> obstacles;
+    private final int obstacleVersion;
+    private final int numObstacles;
+    // Bounding box of every obstacle
+    private final double[] obstacleMinX;
+    private final double[] obstacleMinY;
+    private final double[] obstacleMaxX;
+    private final double[] obstacleMaxY;
+    // The obstacles without a bounding box
+    private final int[] unboundedObstacles;
+
+    private final double minX;
+    private final double minY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int numX;
+    private final int numY;
+    // The obstacles of cell c are cellObstacles[cellStart[c]] to cellObstacles[cellStart[c + 1] - 1]
+    private final int[] cellStart;
+    private final int[] cellObstacles;
+
+    /**
+     * Constructor. Builds the index of a list of obstacles.
+     * @param obstacles       The obstacles to index, or {@code null} if there are none
+     * @param obstacleVersion The obstacle version of the terrain, see {@link Terrain#getObstacleVersion()}
+     */
+    public ObstacleIndex(List<IObstacle> obstacles, int obstacleVersion) {
+        this.obstacles = obstacles;
+        this.obstacleVersion = obstacleVersion;
+        numObstacles = obstacles == null ? 0 : obstacles.size();
+        obstacleMinX = new double[numObstacles];
+        obstacleMinY = new double[numObstacles];
+        obstacleMaxX = new double[numObstacles];
+        obstacleMaxY = new double[numObstacles];
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        int numUnbounded = 0;
+        for (int i = 0; i < numObstacles; i++) {
+            if (!setBounds(i, obstacles.get(i))) {
+                numUnbounded++;
+                continue;
+            }
+            minX = Math.min(minX, obstacleMinX[i]);
+            minY = Math.min(minY, obstacleMinY[i]);
+            maxX = Math.max(maxX, obstacleMaxX[i]);
+            maxY = Math.max(maxY, obstacleMaxY[i]);
+        }
+        unboundedObstacles = new int[numUnbounded];
+        numUnbounded = 0;
+        for (int i = 0; i < numObstacles; i++) {
+            if (Double.isNaN(obstacleMinX[i])) {
+                unboundedObstacles[numUnbounded++] = i;
+            }
+        }
+        int numBounded = numObstacles - numUnbounded;
+        if (numBounded == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        // About two cells per obstacle in each direction
+        int cellsPerSide = (int) Math.min(MAX_CELLS_PER_SIDE, Math.ceil(2 * Math.sqrt(numBounded)));
+        this.numX = Math.max(1, cellsPerSide);
+        this.numY = Math.max(1, cellsPerSide);
+        this.minX = minX;
+        this.minY = minY;
+        this.cellWidth = Math.max((maxX - minX) / numX, Double.MIN_NORMAL);
+        this.cellHeight = Math.max((maxY - minY) / numY, Double.MIN_NORMAL);
+
+        // Count the obstacles of every cell, then fill them in
+        cellStart = new int[numX * numY + 1];
+        for (int i = 0; i < numObstacles; i++) {
+            if (Double.isNaN(obstacleMinX[i])) {
+                continue;
+            }
+            for (int x = getCellX(obstacleMinX[i]); x <= getCellX(obstacleMaxX[i]); x++) {
+                for (int y = getCellY(obstacleMinY[i]); y <= getCellY(obstacleMaxY[i]); y++) {
+                    cellStart[x * numY + y + 1]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < numX * numY; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        cellObstacles = new int[cellStart[numX * numY]];
+        int[] fill = new int[numX * numY];
+        for (int i = 0; i < numObstacles; i++) {
+            if (Double.isNaN(obstacleMinX[i])) {
+                continue;
+            }
+            for (int x = getCellX(obstacleMinX[i]); x <= getCellX(obstacleMaxX[i]); x++) {
+                for (int y = getCellY(obstacleMinY[i]); y <= getCellY(obstacleMaxY[i]); y++) {
+                    int cell = x * numY + y;
+                    cellObstacles[cellStart[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the bounding box of an obstacle, or NaN if its shape is unknown
+     * @return {@code true} if the obstacle has a bounding box
+     */
+    private boolean setBounds(int i, IObstacle obstacle) {
+        if (obstacle instanceof ObstacleBox) {
+            // The bottom left corner has the largest y coordinate
+            ObstacleBox box = (ObstacleBox) obstacle;
+            setBounds(i, box.bottomLeftCorner.x, box.topRightCorner.y, box.topRightCorner.x, box.bottomLeftCorner.y);
+        } else if (obstacle instanceof ObstacleTree) {
+            ObstacleTree tree = (ObstacleTree) obstacle;
+            setBounds(i, tree.originPosition.x - tree.radius, tree.originPosition.y - tree.radius,
+                    tree.originPosition.x + tree.radius, tree.originPosition.y + tree.radius);
+        } else if (obstacle instanceof ObstacleWall) {
+            // The thickness also covers the rounding of the check whether a point lies on the wall
+            ObstacleWall wall = (ObstacleWall) obstacle;
+            double thickness = wall.getWallThickness();
+            setBounds(i, Math.min(wall.firstPosition.x, wall.secondPosition.x) - thickness,
+                    Math.min(wall.firstPosition.y, wall.secondPosition.y) - thickness,
+                    Math.max(wall.firstPosition.x, wall.secondPosition.x) + thickness,
+                    Math.max(wall.firstPosition.y, wall.secondPosition.y) + thickness);
+        } else {
+            setBounds(i, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+            return false;
+        }
+        return true;
+    }
+
+    private void setBounds(int i, double minX, double minY, double maxX, double maxY) {
+        obstacleMinX[i] = minX;
+        obstacleMinY[i] = minY;
+        obstacleMaxX[i] = maxX;
+        obstacleMaxY[i] = maxY;
+    }
+
+    private int getCellX(double x) {
+        return Math.max(0, Math.min(numX - 1, (int) Math.floor((x - minX) / cellWidth)));
+    }
+
+    private int getCellY(double y) {
+        return Math.max(0, Math.min(numY - 1, (int) Math.floor((y - minY) / cellHeight)));
+    }
+
+    /**
+     * Finds the obstacles whose bounding box overlaps a rectangle, and the obstacles without a bounding box.
+     * Every obstacle is found once, and they are returned in the order of the list, just like scanning the list
+     * would. The index is not changed, so it can be queried by several threads at once.
+     * @param minX  The smallest x coordinate of the rectangle
+     * @param minY  The smallest y coordinate of the rectangle
+     * @param maxX  The largest x coordinate of the rectangle
+     * @param maxY  The largest y coordinate of the rectangle
+     * @param found Receives the indices of the obstacles in the list, must hold {@link #getNumObstacles()} items
+     * @return The number of obstacles found
+     */
+    public int findObstacles(double minX, double minY, double maxX, double maxY, int[] found) {
+        int numFound = 0;
+        for (int i : unboundedObstacles) {
+            found[numFound++] = i;
+        }
+        int startX = getCellX(minX);
+        int endX = getCellX(maxX);
+        int startY = getCellY(minY);
+        int endY = getCellY(maxY);
+        for (int x = startX; x <= endX; x++) {
+            for (int y = startY; y <= endY; y++) {
+                int cell = x * numY + y;
+                for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+                    int i = cellObstacles[j];
+                    // Also catches NaN coordinates of the rectangle
+                    if (!(obstacleMinX[i] <= maxX && obstacleMaxX[i] >= minX
+                            && obstacleMinY[i] <= maxY && obstacleMaxY[i] >= minY)) {
+                        continue;
+                    }
+                    // An obstacle in several cells is only found in the first cell that both ranges share
+                    boolean isFirstCell = x == Math.max(startX, getCellX(obstacleMinX[i]))
+                            && y == Math.max(startY, getCellY(obstacleMinY[i]));
+                    if (isFirstCell) {
+                        found[numFound++] = i;
+                    }
+                }
+            }
+        }
+        Arrays.sort(found, 0, numFound);
+        return numFound;
+    }
+
+    public IObstacle getObstacle(int i) {
+        return obstacles.get(i);
+    }
+
+    public int getNumObstacles() {
+        return numObstacles;
+    }
+
+    /**
+     * Checks if the index was built for the current obstacles of a terrain
+     * @param obstacles       The list of obstacles
+     * @param obstacleVersion The obstacle version of the terrain
+     * @return {@code true} if it was and {@code false} if the index has to be rebuilt
+     */
+    public boolean isBuiltFrom(List<IObstacle> obstacles, int obstacleVersion) {
+        // The size catches obstacles added to the list without going through the terrain
+        return this.obstacles == obstacles && this.obstacleVersion == obstacleVersion
+                && numObstacles == (obstacles == null ? 0 : obstacles.size());
+    }
+}
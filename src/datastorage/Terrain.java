@@ -10,6 +10,9 @@ import utility.math.Vector2;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 public class Terrain {
     // This is generated after Terrain is created
@@ -21,7 +24,13 @@ public class Terrain {
 
     // All of the data below should be included, when Terrain is created
     public Zone[] zones = new Zone[0];
+    // Built the first time a zone is looked up after the zones changed
+    private ZoneIndex zoneIndex;
     public ArrayList<IObstacle> obstacles;
+    // Increased whenever obstacles are added or removed, so that grids built from them can tell they are outdated
+    private int obstacleVersion = 0;
+    // Built the first time obstacles are looked up after the obstacles changed
+    private ObstacleIndex obstacleIndex;
     public Target target;
     public Vector2 ballStartingPosition;
 
@@ -36,9 +45,19 @@ public class Terrain {
     public double kineticFriction;
 
     public TerrainHeightFunction terrainFunction;
+    // Precomputed terrain used by sampleAt instead of terrainFunction, if set
+    private TerrainHeightGrid sampledHeight;
+    // Cache of the height, slopes and frictions at rounded positions, if enabled
+    private TerrainSampleCache sampleCache;
+    // The zones the cached frictions were found with, so that the cache can tell the zones were replaced
+    private Zone[] sampleCacheZones;
 
     public float minVal = -10;
     public float maxVal = 10;
+    // The lowest height found on the heightmap
+    public float lowestHeight;
+    // The largest slope found on the heightmap grid, NaN until it is needed
+    private double maxSlope = Double.NaN;
     public double xOff;
     public double yOff;
 
@@ -47,6 +66,7 @@ public class Terrain {
 
     public void addObstacle(IObstacle obstacle){
         obstacles.add(obstacle);
+        obstacleVersion++;
     }
     public void removeObstacleAt(int id, String obstacleType){
         if(obstacleType.equals("Box")){
@@ -58,12 +78,30 @@ public class Terrain {
         if(obstacleType.equals("Wall")){
             obstacles.removeIf(i -> i.getId() == id && i instanceof ObstacleWall);
         }
+        obstacleVersion++;
         System.out.println(obstacles.size());
     }
 
+    /**
+     * Gets the version of the obstacles. It changes when obstacles are added or removed through the terrain,
+     * code changing the list of obstacles directly should call {@link #obstaclesChanged()}
+     */
+    public int getObstacleVersion() {
+        return obstacleVersion;
+    }
+
+    /**
+     * Marks the obstacles as changed, so that grids built from them are rebuilt
+     */
+    public void obstaclesChanged() {
+        obstacleVersion++;
+    }
+
     // This value seems to be the right number, so no need to provide it as input
     // everytime.
     private final int VERTECES_PER_SIDE = 1025;
+    // Side length of the square tiles the heightmap is calculated in
+    private static final int TILE_SIZE = 64;
 
     public int getVERTECES_PER_SIDE() {
         return VERTECES_PER_SIDE;
@@ -82,12 +120,31 @@ public class Terrain {
     }
 
     public boolean isPointInZone(double x, double y) {
-        for (Zone z : zones) {
-            if (z.isPositionInside(new Vector2(x, y))) {
-                return true;
-            }
+        return getZoneIndex().findZone(x, y) != null;
+    }
+
+    /**
+     * Gets the index of the zones, rebuilding it if the zones were replaced
+     */
+    private ZoneIndex getZoneIndex() {
+        ZoneIndex index = zoneIndex;
+        if (index == null || !index.isBuiltFrom(zones)) {
+            index = new ZoneIndex(zones);
+            zoneIndex = index;
         }
-        return false;
+        return index;
+    }
+
+    /**
+     * Gets the index of the obstacles, rebuilding it if the obstacles changed
+     */
+    public ObstacleIndex getObstacleIndex() {
+        ObstacleIndex index = obstacleIndex;
+        if (index == null || !index.isBuiltFrom(obstacles, obstacleVersion)) {
+            index = new ObstacleIndex(obstacles, obstacleVersion);
+            obstacleIndex = index;
+        }
+        return index;
     }
 
     public boolean isPointInObstacle(Vector2 point) {
@@ -100,15 +157,13 @@ public class Terrain {
     }
 
     public void addZone(Vector2 bottomLeft, Vector2 topRight, double zoneStaticFriction, double zoneKineticFriction) {
-        Zone[] temp = new Zone[zones.length + 1];
-        for (int i = 0; i < zones.length; i++) {
-            temp[i] = zones[i];
-        }
+        Zone[] temp = Arrays.copyOf(zones, zones.length + 1);
         Zone z = new Zone(bottomLeft.copy(), topRight.copy());
         z.staticFriction = zoneStaticFriction;
         z.kineticFriction = zoneKineticFriction;
         temp[temp.length - 1] = z;
         zones = temp;
+        clearSampleCache();
     }
 
     public boolean isValid(int accuracy) {
@@ -119,17 +174,34 @@ public class Terrain {
         Function dfyy = terrainFunction.dfy.getDerivative("y");
         Function dfxy = terrainFunction.dfx.getDerivative("y");
 
+        // Every column is evaluated at once
+        double[] xs = new double[accuracy];
+        double[] ys = new double[accuracy];
+        for (int yy = 0; yy < accuracy; yy++) {
+            ys[yy] = topLeftCorner.y + yy * yStep;
+        }
+        double[] fVals = new double[accuracy];
+        double[] dfxVals = new double[accuracy];
+        double[] dfyVals = new double[accuracy];
+        double[] dfxxVals = new double[accuracy];
+        double[] dfyyVals = new double[accuracy];
+        double[] dfxyVals = new double[accuracy];
+
         for (int xx = 0; xx < accuracy; xx++) {
+            Arrays.fill(xs, topLeftCorner.x + xx * xStep);
+            terrainFunction.valuesAt(xs, ys, fVals);
+            terrainFunction.dfx.evaluate(xs, ys, dfxVals);
+            terrainFunction.dfy.evaluate(xs, ys, dfyVals);
+            dfxx.evaluate(xs, ys, dfxxVals);
+            dfyy.evaluate(xs, ys, dfyyVals);
+            dfxy.evaluate(xs, ys, dfxyVals);
             for (int yy = 0; yy < accuracy; yy++) {
-                double x = topLeftCorner.x + xx * xStep;
-                double y = topLeftCorner.y + yy * yStep;
-
-                double fVal = Math.abs(terrainFunction.valueAt(x, y));
-                double dfxVal = Math.abs(terrainFunction.xDerivativeAt(x, y));
-                double dfyVal = Math.abs(terrainFunction.yDerivativeAt(x, y));
-                double dfxxVal = Math.abs(dfxx.evaluate(new String[] { "x", "y" }, new double[] { x, y }));
-                double dfyyVal = Math.abs(dfyy.evaluate(new String[] { "x", "y" }, new double[] { x, y }));
-                double dfxyVal = Math.abs(dfxy.evaluate(new String[] { "x", "y" }, new double[] { x, y }));
+                double fVal = Math.abs(fVals[yy]);
+                double dfxVal = Math.abs(dfxVals[yy]);
+                double dfyVal = Math.abs(dfyVals[yy]);
+                double dfxxVal = Math.abs(dfxxVals[yy]);
+                double dfyyVal = Math.abs(dfyyVals[yy]);
+                double dfxyVal = Math.abs(dfxyVals[yy]);
 
                 if (fVal > 10 || dfxVal > 0.15 || dfyVal > 0.15 ||
                         dfxxVal > 0.1 || dfyyVal > 0.1 || dfxyVal > 0.1) {
@@ -142,85 +214,385 @@ public class Terrain {
     }
 
     public double xDerivativeAt(Vector2 position) {
-        double functionVal = terrainFunction.valueAt(position.x, position.y);
-        if (functionVal > maxVal || functionVal < minVal) {
-            return 0;
-        } else {
-            return terrainFunction.xDerivativeAt(position.x, position.y);
+        if (sampleCache != null) {
+            return getCachedSample(position.x, position.y)[1];
         }
+        // Sampled like sampleAt, so that the precomputed grid is used if it is selected
+        double[] sample = new double[3];
+        sampleUncached(position.x, position.y, sample);
+        return sample[1];
     }
 
     public double yDerivativeAt(Vector2 position) {
-        double functionVal = terrainFunction.valueAt(position.x, position.y);
-        if (functionVal > maxVal || functionVal < minVal) {
-            return 0;
+        if (sampleCache != null) {
+            return getCachedSample(position.x, position.y)[2];
+        }
+        double[] sample = new double[3];
+        sampleUncached(position.x, position.y, sample);
+        return sample[2];
+    }
+
+    /**
+     * Samples the height and the slope at a position with a single evaluation of the terrain function.
+     * The slope is 0 wherever the height is outside of the range [minVal, maxVal].
+     * @param out Array of at least 3 elements that receives the height, the x-slope and the y-slope
+     */
+    public void sampleAt(Vector2 position, double[] out) {
+        sampleAt(position.x, position.y, out);
+    }
+
+    /**
+     * Samples the height and the slope at a position without allocating
+     * @param out Array of at least 3 elements that receives the height, the x-slope and the y-slope
+     */
+    public void sampleAt(double x, double y, double[] out) {
+        if (sampleCache != null) {
+            double[] sample = getCachedSample(x, y);
+            out[0] = sample[0];
+            out[1] = sample[1];
+            out[2] = sample[2];
+            return;
+        }
+        sampleUncached(x, y, out);
+    }
+
+    /**
+     * Samples the height and the slope at many points, evaluating the terrain function on all of them together
+     * @param n The number of points, starting at index 0
+     * @param out Receives the heights in out[0], the x-slopes in out[1] and the y-slopes in out[2]
+     */
+    public void sampleAt(double[] xs, double[] ys, int n, double[][] out) {
+        if (sampleCache != null) {
+            for (int i = 0; i < n; i++) {
+                double[] sample = getCachedSample(xs[i], ys[i]);
+                out[0][i] = sample[0];
+                out[1][i] = sample[1];
+                out[2][i] = sample[2];
+            }
+            return;
+        }
+        if (sampledHeight != null) {
+            sampledHeight.samplesAt(xs, ys, n, out);
+        } else {
+            terrainFunction.samplesAt(xs, ys, n, out);
+        }
+        for (int i = 0; i < n; i++) {
+            if (out[0][i] > maxVal || out[0][i] < minVal) {
+                out[1][i] = 0;
+                out[2][i] = 0;
+            }
+        }
+    }
+
+    private void sampleUncached(double x, double y, double[] out) {
+        if (sampledHeight != null) {
+            sampledHeight.sampleAt(x, y, out);
         } else {
-            return terrainFunction.yDerivativeAt(position.x, position.y);
+            terrainFunction.sampleAt(x, y, out);
+        }
+        if (out[0] > maxVal || out[0] < minVal) {
+            out[1] = 0;
+            out[2] = 0;
+        }
+    }
+
+    /**
+     * Gets the sample of the grid cell of the cache that contains a position, sampling the terrain on a miss
+     * @return The height, the x-slope, the y-slope, the kinetic friction and the static friction
+     */
+    private double[] getCachedSample(double x, double y) {
+        TerrainSampleCache cache = sampleCache;
+        Zone[] currentZones = zones;
+        if (sampleCacheZones != currentZones) {
+            // The zones were replaced, so the cached frictions are outdated
+            cache.clear();
+            sampleCacheZones = currentZones;
+        }
+        long xIndex = cache.quantize(x);
+        long yIndex = cache.quantize(y);
+        double[] sample = cache.get(xIndex, yIndex);
+        if (sample == null) {
+            // Sample the center of the cell, so the result does not depend on which position was looked up first
+            double centerX = cache.getCoordinate(xIndex);
+            double centerY = cache.getCoordinate(yIndex);
+            sample = new double[5];
+            sampleUncached(centerX, centerY, sample);
+            sample[3] = findKineticFriction(centerX, centerY);
+            sample[4] = findStaticFriction(centerX, centerY);
+            cache.put(xIndex, yIndex, sample);
+        }
+        return sample;
+    }
+
+    /**
+     * Makes the slopes and frictions be looked up in a cache keyed on positions rounded to a grid.
+     * Meant for bots that simulate many similar shots. Trades accuracy for speed, so it is disabled by default
+     * and must stay disabled when measuring the accuracy of the physics engine.
+     * @param epsilon The size of the grid the positions are rounded to
+     * @param capacity The largest number of samples kept
+     * @return The cache, to read its hit and miss counters
+     */
+    public TerrainSampleCache enableSampleCache(double epsilon, int capacity) {
+        sampleCache = new TerrainSampleCache(epsilon, capacity);
+        sampleCacheZones = zones;
+        return sampleCache;
+    }
+
+    public void disableSampleCache() {
+        sampleCache = null;
+    }
+
+    public TerrainSampleCache getSampleCache() {
+        return sampleCache;
+    }
+
+    private void clearSampleCache() {
+        if (sampleCache != null) {
+            sampleCache.clear();
         }
     }
 
+    /**
+     * Makes {@link #sampleAt(Vector2, double[])} interpolate a precomputed grid instead of evaluating the
+     * terrain function. Much faster for the physics engine, at the cost of a small interpolation error.
+     * @param cellSize The distance between two grid nodes
+     * @return The largest error of the height, the x-slope and the y-slope on the map
+     */
+    public double[] usePrecomputedSampling(double cellSize) {
+        sampledHeight = new TerrainHeightGrid(terrainFunction, topLeftCorner, bottomRightCorner, cellSize);
+        clearSampleCache();
+        maxSlope = Double.NaN;
+        return sampledHeight.getMaxError(terrainFunction, VERTECES_PER_SIDE);
+    }
+
+    /**
+     * Makes {@link #sampleAt(Vector2, double[])} evaluate the terrain function again
+     */
+    public void useAnalyticSampling() {
+        sampledHeight = null;
+        clearSampleCache();
+        maxSlope = Double.NaN;
+    }
+
     public double getStaticFriction(Vector2 position) {
+        if (sampleCache != null) {
+            return getCachedSample(position.x, position.y)[4];
+        }
+        return findStaticFriction(position.x, position.y);
+    }
+
+    /**
+     * Gets the smallest static friction anywhere on the terrain
+     * @return The smallest friction of the green and the zones
+     */
+    public double getMinStaticFriction() {
+        double minFriction = staticFriction;
         for (Zone zone : zones) {
-            if (zone.isPositionInside(position)) {
-                return zone.staticFriction;
+            minFriction = Math.min(minFriction, zone.staticFriction);
+        }
+        return minFriction;
+    }
+
+    /**
+     * Gets the length of the largest slope on the points of the heightmap. It is calculated the first time
+     * it is needed, and again after the terrain function or the way of sampling changed.
+     * @return The largest length of the slope
+     */
+    public double getMaxSlope() {
+        if (Double.isNaN(maxSlope)) {
+            double[] xs = new double[VERTECES_PER_SIDE];
+            double[] ys = new double[VERTECES_PER_SIDE];
+            double[][] samples = new double[3][VERTECES_PER_SIDE];
+            for (int y = 0; y < VERTECES_PER_SIDE; y++) {
+                ys[y] = topLeftCorner.y + y * yOff;
+            }
+            double largest = 0;
+            // Every column is sampled at once
+            for (int x = 0; x < VERTECES_PER_SIDE; x++) {
+                Arrays.fill(xs, topLeftCorner.x + x * xOff);
+                sampleAt(xs, ys, VERTECES_PER_SIDE, samples);
+                for (int y = 0; y < VERTECES_PER_SIDE; y++) {
+                    largest = Math.max(largest, Math.hypot(samples[1][y], samples[2][y]));
+                }
             }
+            maxSlope = largest;
+        }
+        return maxSlope;
+    }
+
+    private double findStaticFriction(double x, double y) {
+        Zone zone = getZoneIndex().findZone(x, y);
+        if (zone != null) {
+            return zone.staticFriction;
         }
         return staticFriction;
     }
 
     public double getKineticFriction(Vector2 position) {
+        return getKineticFriction(position.x, position.y);
+    }
+
+    public double getKineticFriction(double x, double y) {
+        if (sampleCache != null) {
+            return getCachedSample(x, y)[3];
+        }
+        return findKineticFriction(x, y);
+    }
+
+    /**
+     * Gets the smallest kinetic friction anywhere on the terrain
+     * @return The smallest friction of the green and the zones
+     */
+    public double getMinKineticFriction() {
+        double minFriction = kineticFriction;
         for (Zone zone : zones) {
-            if (zone.isPositionInside(position)) {
-                return zone.kineticFriction;
-            }
+            minFriction = Math.min(minFriction, zone.kineticFriction);
+        }
+        return minFriction;
+    }
+
+    private double findKineticFriction(double x, double y) {
+        Zone zone = getZoneIndex().findZone(x, y);
+        if (zone != null) {
+            return zone.kineticFriction;
         }
         return kineticFriction;
     }
 
     /**
-     * Recalculates the heightmap that is used for
-     * @param numVerteces
+     * Recalculates the heightmap that is used for rendering, on the common fork-join pool
+     * @param numVerteces The number of vertices per side of the heightmap
      */
     private void calculateHeightMap(int numVerteces) {
+        calculateHeightMap(numVerteces, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Recalculates the heightmap and its transposed copy. The map is split into square tiles that are
+     * processed in parallel. Every tile finds its own minimum and maximum, which are merged afterwards.
+     * @param numVerteces The number of vertices per side of the heightmap
+     * @param pool The pool to process the tiles on
+     */
+    void calculateHeightMap(int numVerteces, ForkJoinPool pool) {
         heightmap = new float[numVerteces * numVerteces];
-        int pos = 0;
+        reversedHeightmap = new float[numVerteces * numVerteces];
         this.xOff = (bottomRightCorner.x - topLeftCorner.x) / numVerteces;
         this.yOff = (bottomRightCorner.y - topLeftCorner.y) / numVerteces;
-        for (int x = 0; x < numVerteces; x++) {
-            for (int y = 0; y < numVerteces; y++) {
-                double xx = topLeftCorner.x + x * this.xOff;
-                double yy = topLeftCorner.y + y * this.yOff;
-                float val = (float) terrainFunction.valueAt(xx, yy);
-                if (val > maxVal) {
-                    maxVal = val;
+        int tilesPerSide = (numVerteces + TILE_SIZE - 1) / TILE_SIZE;
+        float[][] tileRanges = new float[tilesPerSide * tilesPerSide][];
+        // Evaluate the function. The normalization needs the range of the whole map, so it is done afterwards
+        pool.invoke(new TileTask(0, tileRanges.length,
+                tile -> tileRanges[tile] = evaluateTile(tile, tilesPerSide, numVerteces)));
+        lowestHeight = Float.POSITIVE_INFINITY;
+        for (float[] range : tileRanges) {
+            lowestHeight = Math.min(lowestHeight, range[0]);
+            if (range[0] < minVal) {
+                minVal = range[0];
+            }
+            if (range[1] > maxVal) {
+                maxVal = range[1];
+            }
+        }
+        pool.invoke(new TileTask(0, tileRanges.length,
+                tile -> tileRanges[tile] = normalizeTile(tile, tilesPerSide, numVerteces)));
+        for (float[] range : tileRanges) {
+            if (range[0] < minScaledVal) {
+                minScaledVal = range[0];
+            }
+            if (range[1] > maxScaledVal) {
+                maxScaledVal = range[1];
+            }
+        }
+    }
+
+    /**
+     * Evaluates the terrain function on one tile of the heightmap
+     * @return The minimum and the maximum height on the tile
+     */
+    private float[] evaluateTile(int tile, int tilesPerSide, int numVerteces) {
+        int startX = (tile / tilesPerSide) * TILE_SIZE;
+        int startY = (tile % tilesPerSide) * TILE_SIZE;
+        int endX = Math.min(startX + TILE_SIZE, numVerteces);
+        int endY = Math.min(startY + TILE_SIZE, numVerteces);
+        // Every column of the tile is evaluated at once
+        double[] xs = new double[endY - startY];
+        double[] ys = new double[endY - startY];
+        double[] heights = new double[endY - startY];
+        for (int y = startY; y < endY; y++) {
+            ys[y - startY] = topLeftCorner.y + y * this.yOff;
+        }
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int x = startX; x < endX; x++) {
+            Arrays.fill(xs, topLeftCorner.x + x * this.xOff);
+            terrainFunction.valuesAt(xs, ys, heights);
+            for (int y = startY; y < endY; y++) {
+                float val = (float) heights[y - startY];
+                if (val > max) {
+                    max = val;
                 }
-                if (val < minVal) {
-                    minVal = val;
+                if (val < min) {
+                    min = val;
                 }
-                heightmap[pos] = val;
-                pos++;
+                heightmap[x * numVerteces + y] = val;
             }
         }
-        for (int i = 0; i < heightmap.length; i++) {
-            float val = heightmap[i];
-            val = normalizeHeight(val);
-            if (val > maxScaledVal) {
-                maxScaledVal = val;
-            }
-            if (val < minScaledVal) {
-                minScaledVal = val;
+        return new float[] { min, max };
+    }
+
+    /**
+     * Normalizes one tile of the heightmap and writes it into the transposed heightmap as well
+     * @return The minimum and the maximum normalized height on the tile
+     */
+    private float[] normalizeTile(int tile, int tilesPerSide, int numVerteces) {
+        int startX = (tile / tilesPerSide) * TILE_SIZE;
+        int startY = (tile % tilesPerSide) * TILE_SIZE;
+        int endX = Math.min(startX + TILE_SIZE, numVerteces);
+        int endY = Math.min(startY + TILE_SIZE, numVerteces);
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int x = startX; x < endX; x++) {
+            for (int y = startY; y < endY; y++) {
+                float val = normalizeHeight(heightmap[x * numVerteces + y]);
+                if (val > max) {
+                    max = val;
+                }
+                if (val < min) {
+                    min = val;
+                }
+                heightmap[x * numVerteces + y] = val;
+                reversedHeightmap[y * numVerteces + x] = val;
             }
-            heightmap[i] = val;
         }
-        flipAxis();
+        return new float[] { min, max };
     }
 
-    private void flipAxis(){
-        reversedHeightmap = new float[VERTECES_PER_SIDE * VERTECES_PER_SIDE];
-        for(int y=0; y<VERTECES_PER_SIDE;y++){
-            for(int x=0; x<VERTECES_PER_SIDE; x++){
-                reversedHeightmap[y*VERTECES_PER_SIDE+x]= heightmap[x*VERTECES_PER_SIDE+y];
+    /**
+     * Processes a range of tiles, splitting it in half until a single tile is left
+     */
+    private static class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+        private final IntConsumer tileProcessor;
+
+        TileTask(int start, int end, IntConsumer tileProcessor) {
+            this.start = start;
+            this.end = end;
+            this.tileProcessor = tileProcessor;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= 1) {
+                if (start < end) {
+                    tileProcessor.accept(start);
+                }
+                return;
             }
+            int middle = (start + end) / 2;
+            invokeAll(new TileTask(start, middle, tileProcessor), new TileTask(middle, end, tileProcessor));
         }
     }
 
@@ -277,6 +649,10 @@ public class Terrain {
 
     public void setTerrainFunction(TerrainHeightFunction terrainFunction) {
         this.terrainFunction = terrainFunction;
+        // The precomputed grid belongs to the old function
+        sampledHeight = null;
+        clearSampleCache();
+        maxSlope = Double.NaN;
         calculateHeightMap(VERTECES_PER_SIDE);
     }
 
@@ -0,0 +1,61 @@
+package datastorage;
+
+import java.util.concurrent.ForkJoinPool;
+
+import utility.BenchmarkTimer;
+import utility.math.Vector2;
+
+public class TerrainBenchmark {
+    private final String function;
+    private final int numRepetitions;
+
+    public TerrainBenchmark(String function, int numRepetitions) {
+        this.function = function;
+        this.numRepetitions = numRepetitions;
+    }
+
+    /**
+     * Measures the time it takes to create a terrain, which includes calculating its 1025x1025 heightmap
+     * @return The average time in milliseconds
+     */
+    public double testStartup() {
+        double ms = BenchmarkTimer.time(1, numRepetitions, this::createTerrain) / 1e6;
+        System.out.println("Startup: " + ms + " ms");
+        return ms;
+    }
+
+    /**
+     * Measures how the heightmap calculation scales with the number of threads
+     * @param numVerteces The number of vertices per side of the heightmap
+     * @param maxThreads The largest number of threads to test with
+     * @return csv data: vertices per side, threads, milliseconds
+     */
+    public String testHeightMap(int numVerteces, int maxThreads) {
+        String data = "";
+        Terrain terrain = createTerrain();
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(numThreads);
+            double ms = BenchmarkTimer.time(1, numRepetitions,
+                    () -> terrain.calculateHeightMap(numVerteces, pool)) / 1e6;
+            pool.shutdown();
+            System.out.println(numVerteces + "x" + numVerteces + ", " + numThreads + " threads: " + ms + " ms");
+            data += numVerteces + ", " + numThreads + ", " + ms + "\n";
+        }
+        return data;
+    }
+
+    private Terrain createTerrain() {
+        return new Terrain(function, 0.2, 0.1, new Vector2(-50, -50), new Vector2(50, 50));
+    }
+
+    public static void main(String[] args) {
+        // Terrain used by BotTester
+        TerrainBenchmark tb = new TerrainBenchmark("0.4*(0.9-e**(-(x*x+y*y)/8))", 5);
+        tb.testStartup();
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        String data = "vertices per side, threads, time\n";
+        data += tb.testHeightMap(1025, maxThreads);
+        data += tb.testHeightMap(4097, maxThreads);
+        System.out.println(data);
+    }
+}
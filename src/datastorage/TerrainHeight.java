@@ -15,4 +15,41 @@ public abstract class TerrainHeight {
     
     public abstract double yDerivativeAt(Vector2 position);
 
+    /**
+     * Samples the height and the slope at a point.
+     * Implementations should override this if all three values can be computed at once.
+     * @param out Array of at least 3 elements that receives h(x,y), dh/dx and dh/dy
+     */
+    public void sampleAt(double x, double y, double[] out) {
+        out[0] = valueAt(x, y);
+        out[1] = xDerivativeAt(x, y);
+        out[2] = yDerivativeAt(x, y);
+    }
+
+    /**
+     * Samples the height and the slope at many points.
+     * Implementations should override this if the points can be evaluated together.
+     * @param n The number of points, starting at index 0
+     * @param out Receives h(xs[i],ys[i]) in out[0][i], dh/dx in out[1][i] and dh/dy in out[2][i]
+     */
+    public void samplesAt(double[] xs, double[] ys, int n, double[][] out) {
+        double[] sample = new double[3];
+        for (int i = 0; i < n; i++) {
+            sampleAt(xs[i], ys[i], sample);
+            out[0][i] = sample[0];
+            out[1][i] = sample[1];
+            out[2][i] = sample[2];
+        }
+    }
+
+    /**
+     * Samples the height at many points.
+     * Implementations should override this if the points can be evaluated together.
+     * @param out Array that receives h(xs[i],ys[i]) at index i
+     */
+    public void valuesAt(double[] xs, double[] ys, double[] out) {
+        for (int i = 0; i < xs.length; i++) {
+            out[i] = valueAt(xs[i], ys[i]);
+        }
+    }
 }
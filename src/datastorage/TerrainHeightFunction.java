@@ -1,6 +1,8 @@
 package datastorage;
 
+import function.ExpressionGraph;
 import function.Function;
+import function.GraphProgram;
 // import org.mariuszgromada.math.mxparser.*;
 import utility.math.Vector2;
 
@@ -8,28 +10,82 @@ public class TerrainHeightFunction extends TerrainHeight {
     public function.Function f;
     public function.Function dfx;
     public function.Function dfy;
+    // h, dh/dx and dh/dy as one program sharing their common subexpressions
+    private final GraphProgram sample;
+    private final ThreadLocal<double[]> sampleRegisters;
+    private final ThreadLocal<double[][]> batchSampleRegisters;
+    // Number of points sampled together by samplesAt
+    private static final int BATCH_SIZE = 256;
 
     public TerrainHeightFunction(String function) {
+        this(function, false);
+    }
+
+    /**
+     * @param function         The height function h(x,y)
+     * @param generateBytecode Whether h and its derivatives should be compiled to JVM classes.
+     *                         Falls back to the interpreter if that fails.
+     */
+    public TerrainHeightFunction(String function, boolean generateBytecode) {
         f = new Function(function);
         dfx = f.getDerivative("x");
         dfy = f.getDerivative("y");
+        ExpressionGraph graph = new ExpressionGraph();
+        int h = graph.add(f);
+        sample = graph.compile(new int[] { h, graph.derive(h, "x"), graph.derive(h, "y") });
+        sampleRegisters = ThreadLocal.withInitial(sample::createRegisters);
+        batchSampleRegisters = ThreadLocal.withInitial(() -> sample.createBatchRegisters(BATCH_SIZE));
+        if (generateBytecode) {
+            f.compileToBytecode();
+            dfx.compileToBytecode();
+            dfy.compileToBytecode();
+        }
     }
 
     @Override
     public double valueAt(double x, double y) {
-        double value = f.evaluate(new String[] { "x", "y" }, new double[] { x, y });
-        return value;
+        return f.evaluate(x, y);
     }
 
 
     @Override
     public double xDerivativeAt(double x, double y) {
-        return dfx.evaluate(new String[] { "x", "y" }, new double[] { x, y });
+        return dfx.evaluate(x, y);
     }
 
     @Override
     public double yDerivativeAt(double x, double y) {
-        return dfy.evaluate(new String[] { "x", "y" }, new double[] { x, y });
+        return dfy.evaluate(x, y);
+    }
+
+    /**
+     * Samples h and its gradient in one pass, computing every subexpression they share only once.
+     * When h was compiled to bytecode, the three generated functions are used instead.
+     */
+    @Override
+    public void sampleAt(double x, double y, double[] out) {
+        if (f.isCompiledToBytecode()) {
+            super.sampleAt(x, y, out);
+            return;
+        }
+        sample.execute(sampleRegisters.get(), x, y, out);
+    }
+
+    @Override
+    public void samplesAt(double[] xs, double[] ys, int n, double[][] out) {
+        if (f.isCompiledToBytecode()) {
+            super.samplesAt(xs, ys, n, out);
+            return;
+        }
+        double[][] registers = batchSampleRegisters.get();
+        for (int start = 0; start < n; start += BATCH_SIZE) {
+            sample.executeBatch(registers, xs, ys, start, Math.min(BATCH_SIZE, n - start), out);
+        }
+    }
+
+    @Override
+    public void valuesAt(double[] xs, double[] ys, double[] out) {
+        f.evaluate(xs, ys, out);
     }
 
     @Override
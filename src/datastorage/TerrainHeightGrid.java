@@ -0,0 +1,180 @@
+package datastorage;
+
+import utility.math.Vector2;
+
+/**
+ * A terrain height that is precomputed on a regular grid and interpolated with bicubic Hermite patches.
+ * Every grid node stores the height, both slopes and the mixed second derivative of the original terrain,
+ * so the interpolated surface and its slopes are continuous and sampling only takes a few multiply-adds.
+ * Outside of the grid the original terrain is used.
+ */
+public class TerrainHeightGrid extends TerrainHeight {
+    // Step used to estimate the mixed second derivative from the slopes
+    private static final double MIXED_DERIVATIVE_STEP = 1e-5;
+
+    private final TerrainHeight source;
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int numX;
+    private final int numY;
+    // h, dh/dx*cellSize, dh/dy*cellSize and d2h/dxdy*cellSize^2 of every node, interleaved
+    private final double[] nodes;
+
+    /**
+     * Constructor. Creates a grid covering a rectangle.
+     * @param source The terrain to precompute
+     * @param topLeftCorner The corner with the smallest coordinates
+     * @param bottomRightCorner The corner with the largest coordinates
+     * @param cellSize The distance between two grid nodes
+     */
+    public TerrainHeightGrid(TerrainHeight source, Vector2 topLeftCorner, Vector2 bottomRightCorner,
+            double cellSize) {
+        if (cellSize <= 0) {
+            throw new RuntimeException("The cell size must be positive");
+        }
+        this.source = source;
+        this.minX = topLeftCorner.x;
+        this.minY = topLeftCorner.y;
+        this.cellSize = cellSize;
+        this.numX = (int) Math.ceil((bottomRightCorner.x - topLeftCorner.x) / cellSize) + 1;
+        this.numY = (int) Math.ceil((bottomRightCorner.y - topLeftCorner.y) / cellSize) + 1;
+        if (numX < 2 || numY < 2) {
+            throw new RuntimeException("The grid must cover at least one cell");
+        }
+        this.nodes = new double[4 * numX * numY];
+        double[] sample = new double[3];
+        for (int i = 0; i < numX; i++) {
+            double x = minX + i * cellSize;
+            for (int j = 0; j < numY; j++) {
+                double y = minY + j * cellSize;
+                source.sampleAt(x, y, sample);
+                double mixedDerivative = (source.xDerivativeAt(x, y + MIXED_DERIVATIVE_STEP)
+                        - source.xDerivativeAt(x, y - MIXED_DERIVATIVE_STEP)) / (2 * MIXED_DERIVATIVE_STEP);
+                int k = 4 * (i * numY + j);
+                nodes[k] = sample[0];
+                nodes[k + 1] = sample[1] * cellSize;
+                nodes[k + 2] = sample[2] * cellSize;
+                nodes[k + 3] = mixedDerivative * cellSize * cellSize;
+            }
+        }
+    }
+
+    @Override
+    public void sampleAt(double x, double y, double[] out) {
+        double gridX = (x - minX) / cellSize;
+        double gridY = (y - minY) / cellSize;
+        // Also catches NaN
+        if (!(gridX >= 0 && gridX <= numX - 1 && gridY >= 0 && gridY <= numY - 1)) {
+            source.sampleAt(x, y, out);
+            return;
+        }
+        int i = Math.min((int) gridX, numX - 2);
+        int j = Math.min((int) gridY, numY - 2);
+        double u = gridX - i;
+        double v = gridY - j;
+        // Hermite basis functions: a for the values, b for the derivatives, d for their own derivatives
+        double u2 = u * u, u3 = u2 * u;
+        double a0u = 2 * u3 - 3 * u2 + 1, a1u = 3 * u2 - 2 * u3, b0u = u3 - 2 * u2 + u, b1u = u3 - u2;
+        double da0u = 6 * u2 - 6 * u, da1u = -da0u, db0u = 3 * u2 - 4 * u + 1, db1u = 3 * u2 - 2 * u;
+        double v2 = v * v, v3 = v2 * v;
+        double a0v = 2 * v3 - 3 * v2 + 1, a1v = 3 * v2 - 2 * v3, b0v = v3 - 2 * v2 + v, b1v = v3 - v2;
+        double da0v = 6 * v2 - 6 * v, da1v = -da0v, db0v = 3 * v2 - 4 * v + 1, db1v = 3 * v2 - 2 * v;
+
+        int k00 = 4 * (i * numY + j);
+        int k01 = k00 + 4;
+        int k10 = k00 + 4 * numY;
+        int k11 = k10 + 4;
+        out[0] = 0;
+        out[1] = 0;
+        out[2] = 0;
+        addCorner(k00, a0u, b0u, da0u, db0u, a0v, b0v, da0v, db0v, out);
+        addCorner(k01, a0u, b0u, da0u, db0u, a1v, b1v, da1v, db1v, out);
+        addCorner(k10, a1u, b1u, da1u, db1u, a0v, b0v, da0v, db0v, out);
+        addCorner(k11, a1u, b1u, da1u, db1u, a1v, b1v, da1v, db1v, out);
+        out[1] /= cellSize;
+        out[2] /= cellSize;
+    }
+
+    /**
+     * Adds the contribution of one grid node to the height and the slopes (still scaled by the cell size)
+     */
+    private void addCorner(int k, double au, double bu, double dau, double dbu, double av, double bv,
+            double dav, double dbv, double[] out) {
+        double h = nodes[k], hx = nodes[k + 1], hy = nodes[k + 2], hxy = nodes[k + 3];
+        out[0] += h * au * av + hx * bu * av + hy * au * bv + hxy * bu * bv;
+        out[1] += h * dau * av + hx * dbu * av + hy * dau * bv + hxy * dbu * bv;
+        out[2] += h * au * dav + hx * bu * dav + hy * au * dbv + hxy * bu * dbv;
+    }
+
+    /**
+     * Measures the largest interpolation error against a reference on a regular grid of sample points.
+     * The sample points are placed between the grid nodes, where the error is largest.
+     * @param reference The terrain to compare with, usually the one the grid was created from
+     * @param numSamplesPerSide The number of sample points per side
+     * @return The largest absolute error of the height, the x-slope and the y-slope
+     */
+    public double[] getMaxError(TerrainHeight reference, int numSamplesPerSide) {
+        double[] maxError = new double[3];
+        double[] expected = new double[3];
+        double[] actual = new double[3];
+        double width = (numX - 1) * cellSize;
+        double height = (numY - 1) * cellSize;
+        for (int i = 0; i < numSamplesPerSide; i++) {
+            double x = minX + (i + 0.5) * width / numSamplesPerSide;
+            for (int j = 0; j < numSamplesPerSide; j++) {
+                double y = minY + (j + 0.5) * height / numSamplesPerSide;
+                reference.sampleAt(x, y, expected);
+                sampleAt(x, y, actual);
+                for (int k = 0; k < 3; k++) {
+                    maxError[k] = Math.max(maxError[k], Math.abs(expected[k] - actual[k]));
+                }
+            }
+        }
+        return maxError;
+    }
+
+    /**
+     * Gets the distance between two grid nodes
+     * @return The cell size
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    @Override
+    public double valueAt(double x, double y) {
+        double[] sample = new double[3];
+        sampleAt(x, y, sample);
+        return sample[0];
+    }
+
+    @Override
+    public double valueAt(Vector2 position) {
+        return valueAt(position.x, position.y);
+    }
+
+    @Override
+    public double xDerivativeAt(double x, double y) {
+        double[] sample = new double[3];
+        sampleAt(x, y, sample);
+        return sample[1];
+    }
+
+    @Override
+    public double xDerivativeAt(Vector2 position) {
+        return xDerivativeAt(position.x, position.y);
+    }
+
+    @Override
+    public double yDerivativeAt(double x, double y) {
+        double[] sample = new double[3];
+        sampleAt(x, y, sample);
+        return sample[2];
+    }
+
+    @Override
+    public double yDerivativeAt(Vector2 position) {
+        return yDerivativeAt(position.x, position.y);
+    }
+}
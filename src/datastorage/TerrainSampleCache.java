@@ -0,0 +1,157 @@
+package datastorage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of terrain samples keyed on positions rounded to a grid of size {@code epsilon}.
+ * Bots simulate many almost identical shots, so their trajectories visit the same grid cells over and over.
+ * The cache is split into segments that are locked separately, so it can be shared by several threads.
+ * Each segment evicts its least recently used samples once it is full.
+ */
+public class TerrainSampleCache {
+    private static final int NUM_SEGMENTS = 16;
+
+    private final double epsilon;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor. Creates an empty cache.
+     * @param epsilon The size of the grid the positions are rounded to
+     * @param capacity The largest number of samples kept
+     */
+    public TerrainSampleCache(double epsilon, int capacity) {
+        if (epsilon <= 0 || capacity <= 0) {
+            throw new RuntimeException("The grid size and the capacity of the cache must be positive");
+        }
+        this.epsilon = epsilon;
+        this.segments = new Segment[NUM_SEGMENTS];
+        int segmentCapacity = Math.max(1, capacity / NUM_SEGMENTS);
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * Rounds a coordinate to the grid of the cache
+     * @param coordinate The coordinate to round
+     * @return The index of the grid cell
+     */
+    public long quantize(double coordinate) {
+        return Math.round(coordinate / epsilon);
+    }
+
+    /**
+     * Gets the coordinate of the center of a grid cell
+     * @param index The index of the grid cell
+     * @return The coordinate
+     */
+    public double getCoordinate(long index) {
+        return index * epsilon;
+    }
+
+    /**
+     * Gets a sample from the cache
+     * @param xIndex The x index of the grid cell
+     * @param yIndex The y index of the grid cell
+     * @return The sample, or {@code null} if it is not cached. Must not be modified
+     */
+    public double[] get(long xIndex, long yIndex) {
+        long key = getKey(xIndex, yIndex);
+        double[] sample = getSegment(key).get(key);
+        if (sample == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return sample;
+    }
+
+    /**
+     * Stores a sample in the cache
+     * @param xIndex The x index of the grid cell
+     * @param yIndex The y index of the grid cell
+     * @param sample The sample. Must not be modified afterwards
+     */
+    public void put(long xIndex, long yIndex, double[] sample) {
+        long key = getKey(xIndex, yIndex);
+        getSegment(key).put(key, sample);
+    }
+
+    /**
+     * Removes all samples, for example after the terrain changed
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private long getKey(long xIndex, long yIndex) {
+        return (xIndex << 32) ^ (yIndex & 0xFFFFFFFFL);
+    }
+
+    private Segment getSegment(long key) {
+        // Mix the bits, neighbouring cells should end up in different segments
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 60) & (NUM_SEGMENTS - 1)];
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the fraction of lookups that found a cached sample
+     * @return The hit rate, 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long numHits = hits.sum();
+        long numLookups = numHits + misses.sum();
+        return numLookups == 0 ? 0 : (double) numHits / numLookups;
+    }
+
+    public void resetCounters() {
+        hits.reset();
+        misses.reset();
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Part of the cache with its own lock, evicting the least recently used sample when it is full
+     */
+    private static class Segment {
+        private final LinkedHashMap<Long, double[]> samples;
+
+        Segment(int capacity) {
+            samples = new LinkedHashMap<Long, double[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized double[] get(long key) {
+            return samples.get(key);
+        }
+
+        synchronized void put(long key, double[] sample) {
+            samples.put(key, sample);
+        }
+
+        synchronized void clear() {
+            samples.clear();
+        }
+    }
+}
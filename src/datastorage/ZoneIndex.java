@@ -0,0 +1,123 @@
+package datastorage;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A uniform grid over the friction zones of a terrain. Every cell lists the zones overlapping it,
+ * so finding the zone at a position only checks the few zones of one cell instead of all of them.
+ * The index is built for one array of zones and has to be rebuilt when the zones change.
+ */
+public class ZoneIndex {
+    // Largest number of cells per side, limits the memory used by the grid
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    private final Zone[] zones;
+    private final double minX;
+    private final double minY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int numX;
+    private final int numY;
+    // The zones of cell c are cellZones[cellStart[c]] to cellZones[cellStart[c + 1] - 1], in the order of the array
+    private final int[] cellStart;
+    private final int[] cellZones;
+
+    /**
+     * Constructor. Builds the index of an array of zones.
+     * @param zones The zones to index
+     */
+    public ZoneIndex(Zone[] zones) {
+        this.zones = zones;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (Zone zone : zones) {
+            // The bottom left corner has the largest y coordinate
+            minX = Math.min(minX, zone.bottomLeftCorner.x);
+            maxX = Math.max(maxX, zone.topRightCorner.x);
+            minY = Math.min(minY, zone.topRightCorner.y);
+            maxY = Math.max(maxY, zone.bottomLeftCorner.y);
+        }
+        if (zones.length == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        // About two cells per zone in each direction
+        int cellsPerSide = (int) Math.min(MAX_CELLS_PER_SIDE, Math.ceil(2 * Math.sqrt(zones.length)));
+        this.numX = Math.max(1, cellsPerSide);
+        this.numY = Math.max(1, cellsPerSide);
+        this.minX = minX;
+        this.minY = minY;
+        this.cellWidth = Math.max((maxX - minX) / numX, Double.MIN_NORMAL);
+        this.cellHeight = Math.max((maxY - minY) / numY, Double.MIN_NORMAL);
+
+        // Count the zones of every cell, then fill them in
+        cellStart = new int[numX * numY + 1];
+        for (Zone zone : zones) {
+            forEachCell(zone, cell -> cellStart[cell + 1]++);
+        }
+        for (int cell = 0; cell < numX * numY; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        cellZones = new int[cellStart[numX * numY]];
+        int[] fill = new int[numX * numY];
+        for (int i = 0; i < zones.length; i++) {
+            final int zoneIndex = i;
+            forEachCell(zones[i], cell -> cellZones[cellStart[cell] + fill[cell]++] = zoneIndex);
+        }
+    }
+
+    private void forEachCell(Zone zone, IntConsumer action) {
+        int startX = getCellX(zone.bottomLeftCorner.x);
+        int endX = getCellX(zone.topRightCorner.x);
+        int startY = getCellY(zone.topRightCorner.y);
+        int endY = getCellY(zone.bottomLeftCorner.y);
+        for (int x = startX; x <= endX; x++) {
+            for (int y = startY; y <= endY; y++) {
+                action.accept(x * numY + y);
+            }
+        }
+    }
+
+    private int getCellX(double x) {
+        return Math.max(0, Math.min(numX - 1, (int) Math.floor((x - minX) / cellWidth)));
+    }
+
+    private int getCellY(double y) {
+        return Math.max(0, Math.min(numY - 1, (int) Math.floor((y - minY) / cellHeight)));
+    }
+
+    /**
+     * Finds the zone containing a position. If several zones contain it, the first one in the array is returned,
+     * just like scanning the array would.
+     * @param x The x coordinate of the position
+     * @param y The y coordinate of the position
+     * @return The zone, or {@code null} if the position is not in any zone
+     */
+    public Zone findZone(double x, double y) {
+        double cellX = (x - minX) / cellWidth;
+        double cellY = (y - minY) / cellHeight;
+        // Also catches NaN
+        if (!(cellX >= 0 && cellX <= numX && cellY >= 0 && cellY <= numY)) {
+            return null;
+        }
+        int cell = Math.min((int) cellX, numX - 1) * numY + Math.min((int) cellY, numY - 1);
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            Zone zone = zones[cellZones[i]];
+            // Same check as Rectangle.isPositionInside, without creating a Vector2
+            boolean isXInside = x > zone.bottomLeftCorner.x && x < zone.topRightCorner.x;
+            boolean isYInside = y < zone.bottomLeftCorner.y && y > zone.topRightCorner.y;
+            if (isXInside && isYInside) {
+                return zone;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the index was built for an array of zones
+     * @param zones The array of zones
+     * @return {@code true} if it was and {@code false} if the index has to be rebuilt
+     */
+    public boolean isBuiltFrom(Zone[] zones) {
+        return this.zones == zones;
+    }
+}
@@ -1,6 +1,7 @@
 package datastorage.obstacles;
 
 import utility.CollisionData;
+import utility.SweepResult;
 import utility.math.Vector2;
 
 public interface IObstacle {
@@ -15,4 +16,17 @@ public interface IObstacle {
     public abstract void print();
 
     public CollisionData getCollisionData(Vector2 currentPosition, Vector2 previousPosition, double ballRadius);
+
+    /**
+     * Finds the first contact of a ball moving in a straight line with this obstacle, without creating objects
+     * @param fromX      The x coordinate the ball moves from
+     * @param fromY      The y coordinate the ball moves from
+     * @param toX        The x coordinate the ball moves to
+     * @param toY        The y coordinate the ball moves to
+     * @param ballRadius The radius of the ball
+     * @param result     Receives the contact, if it is earlier than the contact already in it
+     * @return {@code true} if an earlier contact was stored
+     */
+    public boolean sweepBall(double fromX, double fromY, double toX, double toY, double ballRadius,
+            SweepResult result);
 }
@@ -3,9 +3,11 @@ package datastorage.obstacles;
 import java.util.ArrayList;
 
 import utility.CollisionData;
+import utility.SweepResult;
 import utility.UtilityClass;
 import utility.math.InfLine2D;
 import utility.math.Rectangle;
+import utility.math.SweptCircle;
 import utility.math.Vector2;
 
 public class ObstacleBox extends Rectangle implements IObstacle {
@@ -68,6 +70,18 @@ public class ObstacleBox extends Rectangle implements IObstacle {
         return collisionData;
     }
 
+    @Override
+    public boolean sweepBall(double fromX, double fromY, double toX, double toY, double ballRadius,
+            SweepResult result) {
+        // The bottom left corner has the largest y coordinate
+        boolean hasHit = SweptCircle.sweepRoundedRectangle(fromX, fromY, toX - fromX, toY - fromY,
+                bottomLeftCorner.x, topRightCorner.y, topRightCorner.x, bottomLeftCorner.y, ballRadius, result);
+        if (hasHit) {
+            result.bounciness = bounciness;
+        }
+        return hasHit;
+    }
+
     /**
      *
      * @return Two corners of the wall and the collision point as a third value
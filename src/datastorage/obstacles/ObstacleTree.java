@@ -3,8 +3,10 @@ package datastorage.obstacles;
 import java.util.ArrayList;
 
 import utility.CollisionData;
+import utility.SweepResult;
 import utility.math.Circle;
 import utility.math.InfLine2D;
+import utility.math.SweptCircle;
 import utility.math.Vector2;
 
 public class ObstacleTree extends Circle implements IObstacle {
@@ -68,6 +70,17 @@ public class ObstacleTree extends Circle implements IObstacle {
         return collisionData;
     }
 
+    @Override
+    public boolean sweepBall(double fromX, double fromY, double toX, double toY, double ballRadius,
+            SweepResult result) {
+        boolean hasHit = SweptCircle.sweepCircle(fromX, fromY, toX - fromX, toY - fromY, originPosition.x,
+                originPosition.y, radius + ballRadius, result);
+        if (hasHit) {
+            result.bounciness = bounciness;
+        }
+        return hasHit;
+    }
+
     /**
      * The whole outline of the geometry is here
      * https://drive.google.com/file/d/1rt7-Zydk_wbFvLNzdlaMwInoSB4xYM0x/view?usp=sharing
@@ -3,9 +3,11 @@ package datastorage.obstacles;
 import java.util.ArrayList;
 
 import utility.CollisionData;
+import utility.SweepResult;
 import utility.UtilityClass;
 import utility.math.Episode;
 import utility.math.InfLine2D;
+import utility.math.SweptCircle;
 import utility.math.Vector2;
 
 public class ObstacleWall extends Episode implements IObstacle {
@@ -96,6 +98,17 @@ public class ObstacleWall extends Episode implements IObstacle {
         return collisionData;
     }
 
+    @Override
+    public boolean sweepBall(double fromX, double fromY, double toX, double toY, double ballRadius,
+            SweepResult result) {
+        boolean hasHit = SweptCircle.sweepCapsule(fromX, fromY, toX - fromX, toY - fromY, firstPosition.x,
+                firstPosition.y, secondPosition.x, secondPosition.y, wallThickness + ballRadius, result);
+        if (hasHit) {
+            result.bounciness = bounciness;
+        }
+        return hasHit;
+    }
+
     /**
      *
      * @return Two corners of the wall and the collision point as a third value
@@ -0,0 +1,305 @@
+package function;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Used for turning a {@code Program} into a JVM class implementing
+ * {@code DoubleBinaryOperator}, so that the JIT can compile and inline the function
+ * like any other Java method. The class is defined as a hidden class, which lets it be
+ * unloaded together with the {@code Function} that uses it.
+ * Only the variables {@code x} (first argument) and {@code y} (second argument) are supported,
+ * any other variable is 0.
+ */
+public class BytecodeCompiler {
+    private static final String CLASS_NAME = "function/GeneratedFunction";
+    private static final int CLASS_FILE_VERSION = 61; // Java 17
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    // Constant pool tags
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    // Instructions
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD_1 = 0x27;
+    private static final int DLOAD_3 = 0x29;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    // Access flags
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+    private final HashMap<String, Integer> constantIndices = new HashMap<String, Integer>();
+    private int constantPoolCount = 1;
+
+    private BytecodeCompiler() {
+    }
+
+    /**
+     * Compiles a {@code Program} into a hidden class and instantiates it.
+     * @param program The program to compile
+     * @return The generated function
+     * @throws RuntimeException if the class could not be generated or loaded
+     */
+    protected static DoubleBinaryOperator compile(Program program) {
+        try {
+            byte[] classBytes = new BytecodeCompiler().generateClass(program);
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+            return (DoubleBinaryOperator) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Could not generate bytecode for the function", e);
+        }
+    }
+
+    /**
+     * Generates the class file of a {@code DoubleBinaryOperator} executing the program
+     * @param program The program to generate the class for
+     * @return The bytes of the class file
+     */
+    private byte[] generateClass(Program program) throws IOException {
+        int thisClass = addClass(CLASS_NAME);
+        int superClass = addClass("java/lang/Object");
+        int operatorInterface = addClass("java/util/function/DoubleBinaryOperator");
+        int codeAttribute = addUtf8("Code");
+        int initName = addUtf8("<init>");
+        int initDescriptor = addUtf8("()V");
+        int applyName = addUtf8("applyAsDouble");
+        int applyDescriptor = addUtf8("(DD)D");
+        byte[] constructorCode = generateConstructorCode(addMethodref("java/lang/Object", "<init>", "()V"));
+        byte[] applyCode = generateApplyCode(program);
+
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(classBytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(CLASS_FILE_VERSION);
+        out.writeShort(constantPoolCount);
+        constantPool.flush();
+        out.write(constantPoolBytes.toByteArray());
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        // Interfaces
+        out.writeShort(1);
+        out.writeShort(operatorInterface);
+        // Fields
+        out.writeShort(0);
+        // Methods
+        out.writeShort(2);
+        writeMethod(out, initName, initDescriptor, codeAttribute, 1, 1, constructorCode);
+        writeMethod(out, applyName, applyDescriptor, codeAttribute, Math.max(2, 2 * program.getMaxStackSize()), 5,
+                applyCode);
+        // Attributes
+        out.writeShort(0);
+        out.flush();
+        return classBytes.toByteArray();
+    }
+
+    private byte[] generateConstructorCode(int objectConstructor) throws IOException {
+        ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        DataOutputStream code = new DataOutputStream(codeBytes);
+        code.writeByte(ALOAD_0);
+        code.writeByte(INVOKESPECIAL);
+        code.writeShort(objectConstructor);
+        code.writeByte(RETURN);
+        code.flush();
+        return codeBytes.toByteArray();
+    }
+
+    /**
+     * Generates the body of {@code applyAsDouble(double x, double y)}.
+     * The program is already in postfix order, so every instruction maps onto the operand stack of the JVM.
+     * @param program The program to translate
+     * @return The bytecode of the method
+     */
+    private byte[] generateApplyCode(Program program) throws IOException {
+        ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        DataOutputStream code = new DataOutputStream(codeBytes);
+        for (int i = 0; i < program.getNumInstructions(); i++) {
+            int operand = program.getOperand(i);
+            switch (program.getOpcode(i)) {
+                case Program.CONST:
+                    writeConstant(code, program.getConstant(operand));
+                    break;
+                case Program.VAR:
+                    writeVariable(code, program.getVariableName(operand));
+                    break;
+                case Program.ADD:
+                    code.writeByte(DADD);
+                    break;
+                case Program.SUB:
+                    code.writeByte(DSUB);
+                    break;
+                case Program.MUL:
+                    code.writeByte(DMUL);
+                    break;
+                case Program.DIV:
+                    code.writeByte(DDIV);
+                    break;
+                case Program.POW:
+                    writeMathCall(code, "pow", "(DD)D");
+                    break;
+                case Program.SIN:
+                    writeMathCall(code, "sin", "(D)D");
+                    break;
+                case Program.COS:
+                    writeMathCall(code, "cos", "(D)D");
+                    break;
+                case Program.TAN:
+                    writeMathCall(code, "tan", "(D)D");
+                    break;
+                case Program.SQRT:
+                    writeMathCall(code, "sqrt", "(D)D");
+                    break;
+                case Program.LOG:
+                    writeMathCall(code, "log10", "(D)D");
+                    break;
+                case Program.LN:
+                    writeMathCall(code, "log", "(D)D");
+                    break;
+                default:
+                    throw new RuntimeException("Unknown opcode " + program.getOpcode(i));
+            }
+        }
+        code.writeByte(DRETURN);
+        code.flush();
+        if (codeBytes.size() > MAX_CODE_LENGTH) {
+            throw new RuntimeException("The function is too long to be compiled to bytecode");
+        }
+        return codeBytes.toByteArray();
+    }
+
+    private void writeConstant(DataOutputStream code, double value) throws IOException {
+        // Check the raw bits so that -0.0 is not turned into 0.0
+        if (Double.doubleToRawLongBits(value) == 0L) {
+            code.writeByte(DCONST_0);
+        } else if (value == 1.0) {
+            code.writeByte(DCONST_1);
+        } else {
+            code.writeByte(LDC2_W);
+            code.writeShort(addDouble(value));
+        }
+    }
+
+    private void writeVariable(DataOutputStream code, String name) throws IOException {
+        if (name.equals("x")) {
+            code.writeByte(DLOAD_1);
+        } else if (name.equals("y")) {
+            code.writeByte(DLOAD_3);
+        } else {
+            code.writeByte(DCONST_0);
+        }
+    }
+
+    private void writeMathCall(DataOutputStream code, String name, String descriptor) throws IOException {
+        code.writeByte(INVOKESTATIC);
+        code.writeShort(addMethodref("java/lang/Math", name, descriptor));
+    }
+
+    private void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute, int maxStack,
+            int maxLocals, byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        // Only the code attribute
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        // No exception table and no attributes. There are no branches, so no stack map table is needed
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    // region Constant pool
+    private int addUtf8(String text) throws IOException {
+        Integer index = constantIndices.get("Utf8:" + text);
+        if (index != null) {
+            return index;
+        }
+        constantPool.writeByte(CONSTANT_UTF8);
+        constantPool.writeUTF(text);
+        return register("Utf8:" + text, 1);
+    }
+
+    private int addClass(String internalName) throws IOException {
+        Integer index = constantIndices.get("Class:" + internalName);
+        if (index != null) {
+            return index;
+        }
+        int name = addUtf8(internalName);
+        constantPool.writeByte(CONSTANT_CLASS);
+        constantPool.writeShort(name);
+        return register("Class:" + internalName, 1);
+    }
+
+    private int addMethodref(String owner, String name, String descriptor) throws IOException {
+        String key = "Methodref:" + owner + "." + name + descriptor;
+        Integer index = constantIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+        int ownerClass = addClass(owner);
+        int nameIndex = addUtf8(name);
+        int descriptorIndex = addUtf8(descriptor);
+        constantPool.writeByte(CONSTANT_NAME_AND_TYPE);
+        constantPool.writeShort(nameIndex);
+        constantPool.writeShort(descriptorIndex);
+        int nameAndType = register("NameAndType:" + name + descriptor, 1);
+        constantPool.writeByte(CONSTANT_METHODREF);
+        constantPool.writeShort(ownerClass);
+        constantPool.writeShort(nameAndType);
+        return register(key, 1);
+    }
+
+    private int addDouble(double value) throws IOException {
+        String key = "Double:" + Double.doubleToRawLongBits(value);
+        Integer index = constantIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+        constantPool.writeByte(CONSTANT_DOUBLE);
+        constantPool.writeDouble(value);
+        // Doubles take up two entries of the constant pool
+        return register(key, 2);
+    }
+
+    private int register(String key, int size) {
+        int index = constantPoolCount;
+        constantPoolCount += size;
+        if (constantPoolCount > 65535) {
+            throw new RuntimeException("The function has too many constants to be compiled to bytecode");
+        }
+        constantIndices.put(key, index);
+        return index;
+    }
+    // endregion
+}
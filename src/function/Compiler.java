@@ -0,0 +1,150 @@
+package function;
+
+import java.util.ArrayList;
+
+/**
+ * Used for compiling a parser tree into a {@code Program}
+ */
+public class Compiler {
+    private final ArrayList<Integer> opcodes = new ArrayList<Integer>();
+    private final ArrayList<Integer> operands = new ArrayList<Integer>();
+    private final ArrayList<Double> constants = new ArrayList<Double>();
+    private final ArrayList<String> variableNames = new ArrayList<String>();
+    private int stackSize = 0;
+    private int maxStackSize = 0;
+
+    private Compiler() {
+    }
+
+    /**
+     * Compiles a parser tree into a postfix {@code Program}.
+     * @param root The root of the parser tree
+     * @return The compiled {@code Program}
+     */
+    protected static Program compile(ParserNode root) {
+        Compiler compiler = new Compiler();
+        compiler.emitNode(root);
+        return compiler.build();
+    }
+
+    /**
+     * Emits the instructions of a subtree, children first
+     * @param node The root of the subtree to emit
+     */
+    private void emitNode(ParserNode node) {
+        Token element = node.getElement();
+        if (element == null) {
+            throw new RuntimeException("Null element");
+        }
+        Token.Type type = element.getType();
+        // Number - parse it once and store it as a constant
+        if (type == Token.Type.NUM) {
+            emit(Program.CONST, addConstant(Double.parseDouble(element.getText())));
+        // pi
+        } else if (type == Token.Type.PI) {
+            emit(Program.CONST, addConstant(Math.PI));
+        // e
+        } else if (type == Token.Type.E) {
+            emit(Program.CONST, addConstant(Math.E));
+        // Variable - resolve it to a slot
+        } else if (type == Token.Type.WORD) {
+            emit(Program.VAR, addVariable(element.getText()));
+        // Binary operators
+        } else if (type == Token.Type.PLUS || type == Token.Type.MINUS || type == Token.Type.MULT
+                || type == Token.Type.DIV || type == Token.Type.POW) {
+            emitNode(node.getLeftChild());
+            emitNode(node.getRightChild());
+            emit(getBinaryOpcode(type), 0);
+        // Function
+        } else if (type == Token.Type.FUNCTION) {
+            emitNode(node.getLeftChild());
+            emit(getFunctionOpcode(element), 0);
+        // Unknown token type
+        } else {
+            throw new RuntimeException(
+                    "Non-operator/value token type " + element.getText() + " at position " + element.getPosition());
+        }
+    }
+
+    private int getBinaryOpcode(Token.Type type) {
+        switch (type) {
+            case PLUS:
+                return Program.ADD;
+            case MINUS:
+                return Program.SUB;
+            case MULT:
+                return Program.MUL;
+            case DIV:
+                return Program.DIV;
+            default:
+                return Program.POW;
+        }
+    }
+
+    private int getFunctionOpcode(Token element) {
+        switch (element.getText()) {
+            case "sin":
+                return Program.SIN;
+            case "cos":
+                return Program.COS;
+            case "tan":
+                return Program.TAN;
+            case "sqrt":
+                return Program.SQRT;
+            case "log":
+                return Program.LOG;
+            case "ln":
+                return Program.LN;
+            default:
+                throw new RuntimeException(
+                        "Unknown function name " + element.getText() + " at position " + element.getPosition());
+        }
+    }
+
+    /**
+     * Adds an instruction and keeps track of the stack depth
+     * @param opcode The opcode of the instruction
+     * @param operand The operand of the instruction
+     */
+    private void emit(int opcode, int operand) {
+        opcodes.add(opcode);
+        operands.add(operand);
+        if (opcode == Program.CONST || opcode == Program.VAR) {
+            stackSize++;
+        } else if (opcode <= Program.POW) {
+            stackSize--;
+        }
+        if (stackSize > maxStackSize) {
+            maxStackSize = stackSize;
+        }
+    }
+
+    private int addConstant(double value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private int addVariable(String name) {
+        int slot = variableNames.indexOf(name);
+        if (slot == -1) {
+            variableNames.add(name);
+            slot = variableNames.size() - 1;
+        }
+        return slot;
+    }
+
+    private Program build() {
+        int[] opcodeArray = new int[opcodes.size()];
+        int[] operandArray = new int[operands.size()];
+        for (int i = 0; i < opcodeArray.length; i++) {
+            opcodeArray[i] = opcodes.get(i);
+            operandArray[i] = operands.get(i);
+        }
+        double[] constantArray = new double[constants.size()];
+        for (int i = 0; i < constantArray.length; i++) {
+            constantArray[i] = constants.get(i);
+        }
+        return new Program(opcodeArray, operandArray, constantArray, variableNames.toArray(new String[0]),
+                maxStackSize);
+    }
+}
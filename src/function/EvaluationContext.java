@@ -0,0 +1,35 @@
+package function;
+
+/**
+ * Holds the mutable state needed to evaluate a {@code Function}: the values of the variables and
+ * the stack of the compiled program. A {@code Function} itself is never modified by evaluating it,
+ * so any number of threads can evaluate the same function, as long as each uses its own context.
+ */
+public class EvaluationContext {
+    protected final double[] variables;
+    protected final double[] stack;
+    // Stack used to evaluate whole arrays of points, created the first time it is needed
+    protected double[][] batchStack;
+
+    /**
+     * Constructor. Creates a context large enough for a program.
+     * Use {@link Function#createContext()} to create one.
+     * @param program The program the context is used for
+     */
+    protected EvaluationContext(Program program) {
+        this.variables = new double[program.getNumVariables()];
+        this.stack = new double[Math.max(1, program.getMaxStackSize())];
+    }
+
+    /**
+     * Gets the stack for evaluating batches of points, creating it if necessary
+     * @param batchSize The number of points in a batch
+     * @return The stack, one row per stack entry
+     */
+    protected double[][] getBatchStack(int batchSize) {
+        if (batchStack == null) {
+            batchStack = new double[stack.length][batchSize];
+        }
+        return batchStack;
+    }
+}
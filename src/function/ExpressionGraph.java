@@ -0,0 +1,450 @@
+package function;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * A directed acyclic graph of expressions. Structurally identical subexpressions are stored only once
+ * (hash-consing), so several functions added to the same graph share all of their common parts.
+ * Every node is simplified when it is created: constants are folded, neutral elements are removed
+ * and {@code f**2} is rewritten into {@code f*f}.
+ * Derivatives are taken directly on the graph, which means that the derivative of a function reuses
+ * the nodes of the function itself instead of duplicating them like {@link Function#getDerivative(String)}.
+ */
+public class ExpressionGraph {
+    private final ArrayList<Node> nodes = new ArrayList<Node>();
+    private final HashMap<Node, Integer> nodeIds = new HashMap<Node, Integer>();
+    private final HashMap<String, Integer> derivatives = new HashMap<String, Integer>();
+
+    /**
+     * Adds a function to the graph
+     * @param function The function to add
+     * @return The id of the node representing the function
+     */
+    public int add(Function function) {
+        Program program = function.getProgram();
+        int[] stack = new int[Math.max(1, program.getMaxStackSize())];
+        int top = -1;
+        for (int i = 0; i < program.getNumInstructions(); i++) {
+            int opcode = program.getOpcode(i);
+            if (opcode == Program.CONST) {
+                stack[++top] = constant(program.getConstant(program.getOperand(i)));
+            } else if (opcode == Program.VAR) {
+                stack[++top] = variable(program.getVariableName(program.getOperand(i)));
+            } else if (opcode <= Program.POW) {
+                top--;
+                stack[top] = binary(opcode, stack[top], stack[top + 1]);
+            } else {
+                stack[top] = unary(opcode, stack[top]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Takes the derivative of a node with respect to a variable
+     * @param node The id of the node to take the derivative of
+     * @param varName The name of the variable to take the derivative with respect to
+     * @return The id of the node representing the derivative
+     */
+    public int derive(int node, String varName) {
+        String key = node + ":" + varName;
+        Integer derivative = derivatives.get(key);
+        if (derivative == null) {
+            derivative = calculateDerivative(node, varName);
+            derivatives.put(key, derivative);
+        }
+        return derivative;
+    }
+
+    private int calculateDerivative(int id, String varName) {
+        Node node = nodes.get(id);
+        switch (node.opcode) {
+            case Program.CONST:
+                return constant(0);
+            case Program.VAR:
+                return constant(node.variable.equals(varName) ? 1 : 0);
+            case Program.ADD:
+                return binary(Program.ADD, derive(node.left, varName), derive(node.right, varName));
+            case Program.SUB:
+                return binary(Program.SUB, derive(node.left, varName), derive(node.right, varName));
+            case Program.MUL: {
+                int df = derive(node.left, varName);
+                int dg = derive(node.right, varName);
+                return binary(Program.ADD, binary(Program.MUL, df, node.right), binary(Program.MUL, node.left, dg));
+            }
+            case Program.DIV: {
+                int df = derive(node.left, varName);
+                int dg = derive(node.right, varName);
+                // f/a = df/a
+                if (isZero(dg)) {
+                    return binary(Program.DIV, df, node.right);
+                }
+                int numerator = binary(Program.SUB, binary(Program.MUL, df, node.right),
+                        binary(Program.MUL, node.left, dg));
+                return binary(Program.DIV, numerator, binary(Program.MUL, node.right, node.right));
+            }
+            case Program.POW:
+                return derivePower(id, node, varName);
+            default:
+                return deriveFunction(node, varName);
+        }
+    }
+
+    private int derivePower(int id, Node node, String varName) {
+        int df = derive(node.left, varName);
+        int dg = derive(node.right, varName);
+        boolean baseConstant = isZero(df);
+        boolean exponentConstant = isZero(dg);
+        // a**b
+        if (baseConstant && exponentConstant) {
+            return constant(0);
+        }
+        // f**a = a*df*f**(a-1)
+        if (exponentConstant) {
+            int power = binary(Program.POW, node.left, binary(Program.SUB, node.right, constant(1)));
+            return binary(Program.MUL, binary(Program.MUL, node.right, df), power);
+        }
+        // a**g = a**g*dg*ln(a)
+        if (baseConstant) {
+            return binary(Program.MUL, binary(Program.MUL, id, dg), unary(Program.LN, node.left));
+        }
+        // f**g = f**g*(dg*ln(f)+g*df/f)
+        int inner = binary(Program.ADD, binary(Program.MUL, dg, unary(Program.LN, node.left)),
+                binary(Program.DIV, binary(Program.MUL, node.right, df), node.left));
+        return binary(Program.MUL, id, inner);
+    }
+
+    private int deriveFunction(Node node, String varName) {
+        int f = node.left;
+        int df = derive(f, varName);
+        if (isZero(df)) {
+            return constant(0);
+        }
+        switch (node.opcode) {
+            case Program.SIN:
+                return binary(Program.MUL, df, unary(Program.COS, f));
+            case Program.COS:
+                return binary(Program.MUL, df, binary(Program.SUB, constant(0), unary(Program.SIN, f)));
+            case Program.TAN: {
+                int tan = unary(Program.TAN, f);
+                return binary(Program.MUL, df, binary(Program.ADD, constant(1), binary(Program.MUL, tan, tan)));
+            }
+            case Program.SQRT:
+                return binary(Program.DIV, binary(Program.MUL, df, constant(0.5)), unary(Program.SQRT, f));
+            case Program.LN:
+                return binary(Program.DIV, df, f);
+            case Program.LOG:
+                return binary(Program.DIV, binary(Program.MUL, df, constant(Math.log10(Math.E))), f);
+            default:
+                throw new RuntimeException("Unknown derivative formula for opcode " + node.opcode);
+        }
+    }
+
+    // region Node construction
+    private int constant(double value) {
+        Node node = new Node(Program.CONST, -1, -1);
+        node.constant = value;
+        return intern(node);
+    }
+
+    private int variable(String name) {
+        Node node = new Node(Program.VAR, -1, -1);
+        node.variable = name;
+        return intern(node);
+    }
+
+    /**
+     * Creates a binary operation node, simplifying it if possible
+     */
+    private int binary(int opcode, int left, int right) {
+        Node l = nodes.get(left);
+        Node r = nodes.get(right);
+        // Fold constants
+        if (l.opcode == Program.CONST && r.opcode == Program.CONST) {
+            return constant(foldBinary(opcode, l.constant, r.constant));
+        }
+        switch (opcode) {
+            case Program.ADD:
+                if (isZero(left)) {
+                    return right;
+                }
+                if (isZero(right)) {
+                    return left;
+                }
+                break;
+            case Program.SUB:
+                if (isZero(right)) {
+                    return left;
+                }
+                if (left == right) {
+                    return constant(0);
+                }
+                // 0-(0-f) = f
+                if (isZero(left) && r.opcode == Program.SUB && isZero(r.left)) {
+                    return r.right;
+                }
+                break;
+            case Program.MUL:
+                if (isZero(left) || isZero(right)) {
+                    return constant(0);
+                }
+                if (isOne(left)) {
+                    return right;
+                }
+                if (isOne(right)) {
+                    return left;
+                }
+                break;
+            case Program.DIV:
+                if (isOne(right)) {
+                    return left;
+                }
+                if (isZero(left)) {
+                    return constant(0);
+                }
+                break;
+            case Program.POW:
+                if (isZero(right)) {
+                    return constant(1);
+                }
+                if (isOne(right)) {
+                    return left;
+                }
+                if (isOne(left)) {
+                    return constant(1);
+                }
+                // f**2 = f*f
+                if (r.opcode == Program.CONST && r.constant == 2) {
+                    return binary(Program.MUL, left, left);
+                }
+                break;
+            default:
+                break;
+        }
+        // Addition and multiplication are commutative, so sort the operands to share a+b and b+a
+        if ((opcode == Program.ADD || opcode == Program.MUL) && left > right) {
+            int temp = left;
+            left = right;
+            right = temp;
+        }
+        return intern(new Node(opcode, left, right));
+    }
+
+    /**
+     * Creates a function node, folding it if the argument is a constant
+     */
+    private int unary(int opcode, int argument) {
+        Node a = nodes.get(argument);
+        if (a.opcode == Program.CONST) {
+            return constant(foldUnary(opcode, a.constant));
+        }
+        return intern(new Node(opcode, argument, -1));
+    }
+
+    private double foldBinary(int opcode, double left, double right) {
+        switch (opcode) {
+            case Program.ADD:
+                return left + right;
+            case Program.SUB:
+                return left - right;
+            case Program.MUL:
+                return left * right;
+            case Program.DIV:
+                return left / right;
+            default:
+                return Math.pow(left, right);
+        }
+    }
+
+    private double foldUnary(int opcode, double value) {
+        switch (opcode) {
+            case Program.SIN:
+                return Math.sin(value);
+            case Program.COS:
+                return Math.cos(value);
+            case Program.TAN:
+                return Math.tan(value);
+            case Program.SQRT:
+                return Math.sqrt(value);
+            case Program.LOG:
+                return Math.log10(value);
+            default:
+                return Math.log(value);
+        }
+    }
+
+    private boolean isZero(int id) {
+        Node node = nodes.get(id);
+        return node.opcode == Program.CONST && node.constant == 0;
+    }
+
+    private boolean isOne(int id) {
+        Node node = nodes.get(id);
+        return node.opcode == Program.CONST && node.constant == 1;
+    }
+
+    /**
+     * Returns the id of an identical node if there is one, otherwise adds the node to the graph
+     */
+    private int intern(Node node) {
+        Integer id = nodeIds.get(node);
+        if (id != null) {
+            return id;
+        }
+        nodes.add(node);
+        nodeIds.put(node, nodes.size() - 1);
+        return nodes.size() - 1;
+    }
+    // endregion
+
+    /**
+     * Counts the distinct nodes needed to compute some outputs
+     * @param outputs The ids of the nodes to compute
+     * @return The number of nodes
+     */
+    public int getNumNodes(int[] outputs) {
+        boolean[] reachable = findReachableNodes(outputs);
+        int count = 0;
+        for (boolean isReachable : reachable) {
+            if (isReachable) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean[] findReachableNodes(int[] outputs) {
+        boolean[] reachable = new boolean[nodes.size()];
+        for (int output : outputs) {
+            reachable[output] = true;
+        }
+        // Children always have smaller ids than their parents, so one backwards pass is enough
+        for (int id = nodes.size() - 1; id >= 0; id--) {
+            if (!reachable[id]) {
+                continue;
+            }
+            Node node = nodes.get(id);
+            if (node.left != -1) {
+                reachable[node.left] = true;
+            }
+            if (node.right != -1) {
+                reachable[node.right] = true;
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Compiles the part of the graph needed for some outputs. Every node gets its own register,
+     * so each distinct subexpression is computed once per evaluation.
+     * @param outputs The ids of the nodes to compute
+     * @return The compiled program
+     */
+    public GraphProgram compile(int[] outputs) {
+        boolean[] reachable = findReachableNodes(outputs);
+        int[] registers = new int[nodes.size()];
+        ArrayList<Double> initialValues = new ArrayList<Double>();
+        ArrayList<int[]> instructions = new ArrayList<int[]>();
+        int xRegister = -1, yRegister = -1;
+        // The ids are in topological order, so the instructions can be emitted in order of the ids
+        for (int id = 0; id < nodes.size(); id++) {
+            if (!reachable[id]) {
+                continue;
+            }
+            Node node = nodes.get(id);
+            registers[id] = initialValues.size();
+            initialValues.add(node.opcode == Program.CONST ? node.constant : 0);
+            if (node.opcode == Program.VAR) {
+                if (node.variable.equals("x")) {
+                    xRegister = registers[id];
+                } else if (node.variable.equals("y")) {
+                    yRegister = registers[id];
+                }
+            } else if (node.opcode != Program.CONST) {
+                int left = registers[node.left];
+                int right = node.right == -1 ? -1 : registers[node.right];
+                instructions.add(new int[] { node.opcode, registers[id], left, right });
+            }
+        }
+        double[] initialRegisters = new double[initialValues.size()];
+        for (int i = 0; i < initialRegisters.length; i++) {
+            initialRegisters[i] = initialValues.get(i);
+        }
+        int[] outputRegisters = new int[outputs.length];
+        for (int i = 0; i < outputs.length; i++) {
+            outputRegisters[i] = registers[outputs[i]];
+        }
+        return new GraphProgram(instructions.toArray(new int[0][]), initialRegisters, xRegister, yRegister,
+                outputRegisters);
+    }
+
+    /**
+     * Gets a text representation of a node
+     * @param id The id of the node
+     * @return The expression as text
+     */
+    public String toString(int id) {
+        Node node = nodes.get(id);
+        switch (node.opcode) {
+            case Program.CONST:
+                return node.constant + "";
+            case Program.VAR:
+                return node.variable;
+            case Program.ADD:
+                return "(" + toString(node.left) + "+" + toString(node.right) + ")";
+            case Program.SUB:
+                return "(" + toString(node.left) + "-" + toString(node.right) + ")";
+            case Program.MUL:
+                return "(" + toString(node.left) + "*" + toString(node.right) + ")";
+            case Program.DIV:
+                return "(" + toString(node.left) + "/" + toString(node.right) + ")";
+            case Program.POW:
+                return "(" + toString(node.left) + "**" + toString(node.right) + ")";
+            case Program.SIN:
+                return "sin(" + toString(node.left) + ")";
+            case Program.COS:
+                return "cos(" + toString(node.left) + ")";
+            case Program.TAN:
+                return "tan(" + toString(node.left) + ")";
+            case Program.SQRT:
+                return "sqrt(" + toString(node.left) + ")";
+            case Program.LOG:
+                return "log(" + toString(node.left) + ")";
+            default:
+                return "ln(" + toString(node.left) + ")";
+        }
+    }
+
+    private static class Node {
+        final int opcode;
+        final int left;
+        final int right;
+        double constant;
+        String variable;
+
+        Node(int opcode, int left, int right) {
+            this.opcode = opcode;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            Node node = (Node) o;
+            // Compare the bits of the constants, so that 0.0 and -0.0 stay different
+            return opcode == node.opcode && left == node.left && right == node.right
+                    && Double.doubleToLongBits(constant) == Double.doubleToLongBits(node.constant)
+                    && Objects.equals(variable, node.variable);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(opcode, left, right, Double.doubleToLongBits(constant), variable);
+        }
+    }
+}
@@ -1,8 +1,18 @@
 package function;
 
+import java.util.function.DoubleBinaryOperator;
+
 public class Function {
+    // Number of points evaluated together by the batch evaluation, small enough for the stack to stay in the cache
+    private static final int BATCH_SIZE = 256;
+
     private final String functionString;
     private ParserNode root;
+    private final Program program;
+    private final int xSlot;
+    private final int ySlot;
+    private final ThreadLocal<EvaluationContext> threadContext;
+    private DoubleBinaryOperator generated;
 
     /**
      * Constructor.
@@ -13,6 +23,19 @@ public class Function {
         this.functionString = function;
         this.root = Parser.parse(Lexer.lex(function));
         this.removeRendundantOperations(this.root);
+        this.program = Compiler.compile(this.root);
+        this.xSlot = program.getVariableSlot("x");
+        this.ySlot = program.getVariableSlot("y");
+        this.threadContext = ThreadLocal.withInitial(this::createContext);
+    }
+
+    /**
+     * Creates a new context to evaluate this function with.
+     * A context must not be shared between threads.
+     * @return The context
+     */
+    public EvaluationContext createContext() {
+        return new EvaluationContext(program);
     }
 
     /**
@@ -21,7 +44,123 @@ public class Function {
      * @param varValues The array of corresponding variable values
      * @return The result of the computation
      */
-    public synchronized double evaluate(String[] varNames, double[] varValues) {
+    public double evaluate(String[] varNames, double[] varValues) {
+        if (varNames.length != varValues.length) {
+            throw new RuntimeException("Variable names and values must have the same number of elements");
+        }
+        // Variables that are not given keep the value 0
+        double[] values = new double[program.getNumVariables()];
+        for (int i = 0; i < varNames.length; i++) {
+            int slot = program.getVariableSlot(varNames[i]);
+            if (slot != -1) {
+                values[slot] = varValues[i];
+            }
+        }
+        return program.execute(values, new double[Math.max(1, program.getMaxStackSize())]);
+    }
+
+    /**
+     * Evaluates the function at a point. Any variable other than {@code x} and {@code y} is 0.
+     * Does not allocate or lock, so it is the preferred way of evaluating terrain functions.
+     * Each thread uses its own {@code EvaluationContext}.
+     * @param x The value of the variable x
+     * @param y The value of the variable y
+     * @return The result of the computation
+     */
+    public double evaluate(double x, double y) {
+        if (generated != null) {
+            return generated.applyAsDouble(x, y);
+        }
+        return evaluate(threadContext.get(), x, y);
+    }
+
+    /**
+     * Evaluates the function at a point using a caller-owned context.
+     * Any variable other than {@code x} and {@code y} is 0.
+     * @param context The context created by {@link #createContext()}
+     * @param x The value of the variable x
+     * @param y The value of the variable y
+     * @return The result of the computation
+     */
+    public double evaluate(EvaluationContext context, double x, double y) {
+        if (generated != null) {
+            return generated.applyAsDouble(x, y);
+        }
+        if (xSlot != -1) {
+            context.variables[xSlot] = x;
+        }
+        if (ySlot != -1) {
+            context.variables[ySlot] = y;
+        }
+        return program.execute(context.variables, context.stack);
+    }
+
+    /**
+     * Evaluates the function at many points at once. Much faster than evaluating the points one by one
+     * for grids, like heightmaps. Any variable other than {@code x} and {@code y} is 0.
+     * @param xs The x coordinates of the points
+     * @param ys The y coordinates of the points
+     * @param out Array that receives the result at every point
+     */
+    public void evaluate(double[] xs, double[] ys, double[] out) {
+        evaluate(threadContext.get(), xs, ys, out);
+    }
+
+    /**
+     * Evaluates the function at many points at once using a caller-owned context.
+     * @param context The context created by {@link #createContext()}
+     * @param xs The x coordinates of the points
+     * @param ys The y coordinates of the points
+     * @param out Array that receives the result at every point
+     */
+    public void evaluate(EvaluationContext context, double[] xs, double[] ys, double[] out) {
+        if (xs.length != ys.length || out.length < xs.length) {
+            throw new RuntimeException("The coordinate arrays must have the same number of elements as the output");
+        }
+        if (generated != null) {
+            for (int i = 0; i < xs.length; i++) {
+                out[i] = generated.applyAsDouble(xs[i], ys[i]);
+            }
+            return;
+        }
+        double[][] stack = context.getBatchStack(BATCH_SIZE);
+        for (int start = 0; start < xs.length; start += BATCH_SIZE) {
+            int length = Math.min(BATCH_SIZE, xs.length - start);
+            program.executeBatch(xSlot, ySlot, xs, ys, start, length, stack, out);
+        }
+    }
+
+    /**
+     * Generates a JVM class for this function, which {@link #evaluate(double, double)} uses from then on.
+     * If the class cannot be generated, the function keeps using the interpreter.
+     * @return {@code true} if the class was generated and {@code false} otherwise
+     */
+    public boolean compileToBytecode() {
+        try {
+            generated = BytecodeCompiler.compile(program);
+            return true;
+        } catch (RuntimeException e) {
+            generated = null;
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the function is evaluated by a generated JVM class
+     * @return {@code true} if it is and {@code false} if it is interpreted
+     */
+    public boolean isCompiledToBytecode() {
+        return generated != null;
+    }
+
+    /**
+     * Evaluates the function by walking the parser tree instead of executing the compiled program.
+     * Much slower than {@link #evaluate(String[], double[])} and not re-entrant, kept for comparison purposes.
+     * @param varNames The array of names of variables
+     * @param varValues The array of corresponding variable values
+     * @return The result of the computation
+     */
+    protected synchronized double evaluateTree(String[] varNames, double[] varValues) {
         if (varNames.length != varValues.length) {
             throw new RuntimeException("Variable names and values must have the same number of elements");
         }
@@ -69,7 +208,15 @@ public class Function {
         return functionString;
     }
 
-    /**                                                     
+    /**
+     * Gets the compiled program of the function.
+     * @return The program
+     */
+    protected Program getProgram() {
+        return program;
+    }
+
+    /**
      * Gets the derivative of this function with respect to a variable
      * @param varName The name of the variable to take the derivative with respect to
      * @return The derivative
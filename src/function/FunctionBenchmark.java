@@ -0,0 +1,237 @@
+package function;
+
+import utility.BenchmarkTimer;
+
+public class FunctionBenchmark {
+    private static final String[] VARIABLE_NAMES = new String[] { "x", "y" };
+
+    private final int numEvaluations;
+
+    public FunctionBenchmark(int numEvaluations) {
+        this.numEvaluations = numEvaluations;
+    }
+
+    /**
+     * Times the tree walker, the interpreter and the generated class on a function and its derivatives
+     * @param function The function to test
+     * @return A line of csv data: function, tree, interpreter, bytecode (nanoseconds per evaluation)
+     */
+    public String testFunction(String function) {
+        String data = "";
+        Function f = new Function(function);
+        Function[] functions = new Function[] { f, f.getDerivative("x"), f.getDerivative("y") };
+        String[] names = new String[] { "h", "dh/dx", "dh/dy" };
+        for (int i = 0; i < functions.length; i++) {
+            Function interpreted = functions[i];
+            Function generated = new Function(interpreted.getText());
+            boolean compiled = generated.compileToBytecode();
+            checkResultsMatch(interpreted, generated);
+
+            double treeTime = timeTree(interpreted);
+            double interpreterTime = timeEvaluate(interpreted);
+            double bytecodeTime = compiled ? timeEvaluate(generated) : Double.NaN;
+            System.out.println(names[i] + " = " + interpreted);
+            System.out.println("    tree: " + treeTime + " ns, interpreter: " + interpreterTime + " ns, bytecode: "
+                    + bytecodeTime + " ns");
+            data += names[i] + ", " + treeTime + ", " + interpreterTime + ", " + bytecodeTime + "\n";
+        }
+        return data;
+    }
+
+    /**
+     * Measures how the throughput of one shared function scales with the number of threads evaluating it
+     * @param function The function to test
+     * @param maxThreads The largest number of threads to test with
+     * @return csv data: threads, evaluations per second
+     */
+    public String testThreads(String function, int maxThreads) throws InterruptedException {
+        String data = "";
+        Function f = new Function(function);
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+            Thread[] threads = new Thread[numThreads];
+            for (int i = 0; i < numThreads; i++) {
+                final int offset = i;
+                threads[i] = new Thread(() -> {
+                    double sum = 0;
+                    for (int j = 0; j < numEvaluations; j++) {
+                        sum += f.evaluate(j * 1e-6, offset);
+                    }
+                    BenchmarkTimer.preventElimination(sum);
+                });
+            }
+            long start = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double evaluationsPerSecond = numThreads * numEvaluations / seconds;
+            System.out.println(numThreads + " threads: " + evaluationsPerSecond + " evaluations/s");
+            data += numThreads + ", " + evaluationsPerSecond + "\n";
+        }
+        return data;
+    }
+
+    /**
+     * Compares the separate symbolic derivatives with a shared expression graph of h, dh/dx and dh/dy
+     * @param function The function to test
+     * @return A line of csv data: function, nodes before, nodes after, separate functions, graph
+     *         (nanoseconds per sample)
+     */
+    public String testGraph(String function) {
+        Function f = new Function(function);
+        Function dfx = f.getDerivative("x");
+        Function dfy = f.getDerivative("y");
+        int nodesBefore = f.getProgram().getNumInstructions() + dfx.getProgram().getNumInstructions()
+                + dfy.getProgram().getNumInstructions();
+
+        ExpressionGraph graph = new ExpressionGraph();
+        int h = graph.add(f);
+        int[] outputs = new int[] { h, graph.derive(h, "x"), graph.derive(h, "y") };
+        int nodesAfter = graph.getNumNodes(outputs);
+        GraphProgram program = graph.compile(outputs);
+        Function[] functions = new Function[] { f, dfx, dfy };
+        checkGraphMatches(functions, program);
+
+        double separateTime = timeSample(functions, null);
+        double graphTime = timeSample(functions, program);
+        System.out.println(function + ": " + nodesBefore + " nodes -> " + nodesAfter + " nodes");
+        System.out.println("    separate functions: " + separateTime + " ns, graph: " + graphTime + " ns");
+        return function + ", " + nodesBefore + ", " + nodesAfter + ", " + separateTime + ", " + graphTime + "\n";
+    }
+
+    /**
+     * Compares evaluating a grid point by point with evaluating it in batches
+     * @param function The function to test
+     * @param gridSize The number of points per side of the grid
+     * @return A line of csv data: function, point by point, batch (nanoseconds per point)
+     */
+    public String testBatch(String function, int gridSize) {
+        Function f = new Function(function);
+        double[] xs = new double[gridSize * gridSize];
+        double[] ys = new double[gridSize * gridSize];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = -10 + 20.0 * (i / gridSize) / gridSize;
+            ys[i] = -10 + 20.0 * (i % gridSize) / gridSize;
+        }
+        double[] pointResults = new double[xs.length];
+        double[] batchResults = new double[xs.length];
+        double pointTime = BenchmarkTimer.time(4, 20, () -> {
+            for (int i = 0; i < xs.length; i++) {
+                pointResults[i] = f.evaluate(xs[i], ys[i]);
+            }
+        });
+        double batchTime = BenchmarkTimer.time(4, 20, () -> f.evaluate(xs, ys, batchResults));
+        for (int i = 0; i < xs.length; i++) {
+            if (Double.compare(pointResults[i], batchResults[i]) != 0) {
+                throw new RuntimeException(
+                        "Batch evaluation disagrees for " + f + " at (" + xs[i] + ", " + ys[i] + ")");
+            }
+        }
+        double pointNs = pointTime / xs.length;
+        double batchNs = batchTime / xs.length;
+        System.out.println(function + ": point by point " + pointNs + " ns, batch " + batchNs + " ns");
+        return function + ", " + pointNs + ", " + batchNs + "\n";
+    }
+
+    private void checkGraphMatches(Function[] functions, GraphProgram program) {
+        double[] registers = program.createRegisters();
+        double[] out = new double[functions.length];
+        for (double x = -5; x <= 5; x += 0.25) {
+            for (double y = -5; y <= 5; y += 0.25) {
+                program.execute(registers, x, y, out);
+                for (int i = 0; i < functions.length; i++) {
+                    double expected = functions[i].evaluate(x, y);
+                    if (Math.abs(expected - out[i]) > 1e-12 * Math.max(1, Math.abs(expected))) {
+                        throw new RuntimeException(
+                                "Graph disagrees with " + functions[i] + " at (" + x + ", " + y + ")");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures sampling h and its gradient, with the graph or by evaluating h, dh/dx and dh/dy one by one
+     */
+    private double timeSample(Function[] functions, GraphProgram program) {
+        double[] registers = program == null ? null : program.createRegisters();
+        double[] out = new double[3];
+        double[] sum = new double[1];
+        double time = BenchmarkTimer.time(1, 1, () -> {
+            for (int i = 0; i < numEvaluations; i++) {
+                if (program == null) {
+                    for (int j = 0; j < functions.length; j++) {
+                        out[j] = functions[j].evaluate(i * 1e-6, 0.5);
+                    }
+                } else {
+                    program.execute(registers, i * 1e-6, 0.5, out);
+                }
+                sum[0] += out[0] + out[1] + out[2];
+            }
+        });
+        BenchmarkTimer.preventElimination(sum[0]);
+        return time / numEvaluations;
+    }
+
+    private void checkResultsMatch(Function interpreted, Function generated) {
+        for (double x = -5; x <= 5; x += 0.25) {
+            for (double y = -5; y <= 5; y += 0.25) {
+                double expected = interpreted.evaluateTree(VARIABLE_NAMES, new double[] { x, y });
+                if (Double.compare(expected, interpreted.evaluate(x, y)) != 0
+                        || Double.compare(expected, generated.evaluate(x, y)) != 0) {
+                    throw new RuntimeException(
+                            "Evaluation modes disagree for " + interpreted + " at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    private double timeTree(Function function) {
+        double[] sum = new double[1];
+        double time = BenchmarkTimer.time(1, 1, () -> {
+            for (int i = 0; i < numEvaluations; i++) {
+                sum[0] += function.evaluateTree(VARIABLE_NAMES, new double[] { i * 1e-6, 0.5 });
+            }
+        });
+        BenchmarkTimer.preventElimination(sum[0]);
+        return time / numEvaluations;
+    }
+
+    private double timeEvaluate(Function function) {
+        double[] sum = new double[1];
+        double time = BenchmarkTimer.time(1, 1, () -> {
+            for (int i = 0; i < numEvaluations; i++) {
+                sum[0] += function.evaluate(i * 1e-6, 0.5);
+            }
+        });
+        BenchmarkTimer.preventElimination(sum[0]);
+        return time / numEvaluations;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        FunctionBenchmark fb = new FunctionBenchmark(2000000);
+        String data = "function, tree, interpreter, bytecode\n";
+        // Terrains used by BotTester and EngineTester
+        data += fb.testFunction("0.4*(0.9-e**(-(x*x+y*y)/8))");
+        data += fb.testFunction("e**(-(x*x+y*y)/8)");
+        System.out.println(data);
+        data = "function, nodes before, nodes after, separate functions, graph\n";
+        // Terrains used by GameStateLoader, BotTester and EngineTester
+        data += fb.testGraph("sin(x+y)");
+        data += fb.testGraph("0.4*(0.9-e**(-(x*x+y*y)/8))");
+        data += fb.testGraph("e**(-(x*x+y*y)/8)");
+        data += fb.testGraph("0");
+        System.out.println(data);
+        data = "function, point by point, batch\n";
+        // Grid of the heightmap in Terrain
+        data += fb.testBatch("sin(x+y)", 1025);
+        data += fb.testBatch("0.4*(0.9-e**(-(x*x+y*y)/8))", 1025);
+        data += fb.testBatch("e**(-(x*x+y*y)/8)", 1025);
+        System.out.println(data);
+        System.out.println("threads, evaluations/s");
+        System.out.println(fb.testThreads("0.4*(0.9-e**(-(x*x+y*y)/8))", Runtime.getRuntime().availableProcessors()));
+    }
+}
@@ -0,0 +1,225 @@
+package function;
+
+import java.util.Arrays;
+
+/**
+ * A compiled {@code ExpressionGraph} that computes several outputs at once. Every node of the graph
+ * has its own register, so subexpressions shared between the outputs are only computed once.
+ * Constants are stored in the registers when the program is created, only the operations are executed.
+ */
+public class GraphProgram {
+    private final int[] opcodes;
+    private final int[] targets;
+    private final int[] lefts;
+    private final int[] rights;
+    private final double[] initialRegisters;
+    private final int xRegister;
+    private final int yRegister;
+    private final int[] outputRegisters;
+
+    /**
+     * Constructor. Creates an instance of a {@code GraphProgram}.
+     * @param instructions Every instruction as {opcode, target register, left register, right register}
+     * @param initialRegisters The initial values of the registers, holding the constants
+     * @param xRegister The register of the variable x, or {@code -1} if x is not used
+     * @param yRegister The register of the variable y, or {@code -1} if y is not used
+     * @param outputRegisters The registers holding the outputs
+     */
+    protected GraphProgram(int[][] instructions, double[] initialRegisters, int xRegister, int yRegister,
+            int[] outputRegisters) {
+        opcodes = new int[instructions.length];
+        targets = new int[instructions.length];
+        lefts = new int[instructions.length];
+        rights = new int[instructions.length];
+        for (int i = 0; i < instructions.length; i++) {
+            opcodes[i] = instructions[i][0];
+            targets[i] = instructions[i][1];
+            lefts[i] = instructions[i][2];
+            rights[i] = instructions[i][3];
+        }
+        this.initialRegisters = initialRegisters;
+        this.xRegister = xRegister;
+        this.yRegister = yRegister;
+        this.outputRegisters = outputRegisters;
+    }
+
+    /**
+     * Creates the registers to execute the program with. Each thread needs its own registers.
+     * @return The registers
+     */
+    public double[] createRegisters() {
+        return initialRegisters.clone();
+    }
+
+    /**
+     * Executes the program
+     * @param registers The registers created by {@link #createRegisters()}
+     * @param x The value of x
+     * @param y The value of y
+     * @param out Array that receives the outputs, in the order they were compiled in
+     */
+    public void execute(double[] registers, double x, double y, double[] out) {
+        if (xRegister != -1) {
+            registers[xRegister] = x;
+        }
+        if (yRegister != -1) {
+            registers[yRegister] = y;
+        }
+        for (int i = 0; i < opcodes.length; i++) {
+            double left = registers[lefts[i]];
+            double result;
+            switch (opcodes[i]) {
+                case Program.ADD:
+                    result = left + registers[rights[i]];
+                    break;
+                case Program.SUB:
+                    result = left - registers[rights[i]];
+                    break;
+                case Program.MUL:
+                    result = left * registers[rights[i]];
+                    break;
+                case Program.DIV:
+                    result = left / registers[rights[i]];
+                    break;
+                case Program.POW:
+                    result = Math.pow(left, registers[rights[i]]);
+                    break;
+                case Program.SIN:
+                    result = Math.sin(left);
+                    break;
+                case Program.COS:
+                    result = Math.cos(left);
+                    break;
+                case Program.TAN:
+                    result = Math.tan(left);
+                    break;
+                case Program.SQRT:
+                    result = Math.sqrt(left);
+                    break;
+                case Program.LOG:
+                    result = Math.log10(left);
+                    break;
+                case Program.LN:
+                    result = Math.log(left);
+                    break;
+                default:
+                    throw new RuntimeException("Unknown opcode " + opcodes[i]);
+            }
+            registers[targets[i]] = result;
+        }
+        for (int i = 0; i < outputRegisters.length; i++) {
+            out[i] = registers[outputRegisters[i]];
+        }
+    }
+
+    /**
+     * Creates the registers to execute the program on many points at once. Each thread needs its own registers.
+     * @param batchSize The largest number of points per execution
+     * @return The registers, one row of {@code batchSize} elements per register
+     */
+    public double[][] createBatchRegisters(int batchSize) {
+        double[][] registers = new double[initialRegisters.length][batchSize];
+        for (int i = 0; i < initialRegisters.length; i++) {
+            Arrays.fill(registers[i], initialRegisters[i]);
+        }
+        return registers;
+    }
+
+    /**
+     * Executes the program on many points. Every instruction is applied to all the points before the next one,
+     * so the type of the instruction is only checked once per batch. The results are the same as those of
+     * {@link #execute(double[], double, double, double[])}.
+     * @param registers The registers created by {@link #createBatchRegisters(int)}, with rows of at least
+     *                  {@code length} elements
+     * @param xs The x coordinates of the points
+     * @param ys The y coordinates of the points
+     * @param start The index of the first point
+     * @param length The number of points
+     * @param out Receives the outputs, {@code out[k][i]} is output k at point i
+     */
+    public void executeBatch(double[][] registers, double[] xs, double[] ys, int start, int length,
+            double[][] out) {
+        if (xRegister != -1) {
+            System.arraycopy(xs, start, registers[xRegister], 0, length);
+        }
+        if (yRegister != -1) {
+            System.arraycopy(ys, start, registers[yRegister], 0, length);
+        }
+        for (int i = 0; i < opcodes.length; i++) {
+            double[] f = registers[lefts[i]];
+            // Unary operations have no right register
+            double[] g = rights[i] == -1 ? f : registers[rights[i]];
+            double[] result = registers[targets[i]];
+            switch (opcodes[i]) {
+                case Program.ADD:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = f[j] + g[j];
+                    }
+                    break;
+                case Program.SUB:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = f[j] - g[j];
+                    }
+                    break;
+                case Program.MUL:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = f[j] * g[j];
+                    }
+                    break;
+                case Program.DIV:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = f[j] / g[j];
+                    }
+                    break;
+                case Program.POW:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = Math.pow(f[j], g[j]);
+                    }
+                    break;
+                case Program.SIN:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = Math.sin(f[j]);
+                    }
+                    break;
+                case Program.COS:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = Math.cos(f[j]);
+                    }
+                    break;
+                case Program.TAN:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = Math.tan(f[j]);
+                    }
+                    break;
+                case Program.SQRT:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = Math.sqrt(f[j]);
+                    }
+                    break;
+                case Program.LOG:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = Math.log10(f[j]);
+                    }
+                    break;
+                case Program.LN:
+                    for (int j = 0; j < length; j++) {
+                        result[j] = Math.log(f[j]);
+                    }
+                    break;
+                default:
+                    throw new RuntimeException("Unknown opcode " + opcodes[i]);
+            }
+        }
+        for (int i = 0; i < outputRegisters.length; i++) {
+            System.arraycopy(registers[outputRegisters[i]], 0, out[i], start, length);
+        }
+    }
+
+    /**
+     * Gets the number of operations executed per evaluation
+     * @return The number of instructions
+     */
+    public int getNumInstructions() {
+        return opcodes.length;
+    }
+}
@@ -0,0 +1,304 @@
+package function;
+
+import java.util.Arrays;
+
+/**
+ * A compiled function. The parser tree is flattened into a postfix list of
+ * instructions that is executed over a {@code double[]} stack.
+ * Constants are parsed once and variables are resolved to slot indices,
+ * so evaluating a {@code Program} does not touch any {@code String}s.
+ */
+public class Program {
+    // Instruction opcodes
+    protected static final int CONST = 0; // Push constants[operand]
+    protected static final int VAR = 1; // Push variables[operand]
+    protected static final int ADD = 2;
+    protected static final int SUB = 3;
+    protected static final int MUL = 4;
+    protected static final int DIV = 5;
+    protected static final int POW = 6;
+    protected static final int SIN = 7;
+    protected static final int COS = 8;
+    protected static final int TAN = 9;
+    protected static final int SQRT = 10;
+    protected static final int LOG = 11;
+    protected static final int LN = 12;
+
+    private final int[] opcodes;
+    private final int[] operands;
+    private final double[] constants;
+    private final String[] variableNames;
+    private final int maxStackSize;
+
+    /**
+     * Constructor. Creates an instance of a {@code Program}.
+     * @param opcodes The opcode of every instruction, in postfix order
+     * @param operands The operand of every instruction (constant or variable index, unused otherwise)
+     * @param constants The pre-parsed constants used by the program
+     * @param variableNames The names of the variables, indexed by their slot
+     * @param maxStackSize The maximum depth the stack reaches while executing
+     */
+    protected Program(int[] opcodes, int[] operands, double[] constants, String[] variableNames, int maxStackSize) {
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.constants = constants;
+        this.variableNames = variableNames;
+        this.maxStackSize = maxStackSize;
+    }
+
+    /**
+     * Executes the program
+     * @param variables The values of the variables, indexed by their slot
+     * @param stack The stack to use. Must hold at least {@link #getMaxStackSize()} elements
+     * @return The result of the computation
+     */
+    protected double execute(double[] variables, double[] stack) {
+        int top = -1;
+        for (int i = 0; i < opcodes.length; i++) {
+            switch (opcodes[i]) {
+                case CONST:
+                    stack[++top] = constants[operands[i]];
+                    break;
+                case VAR:
+                    stack[++top] = variables[operands[i]];
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] = stack[top] + stack[top + 1];
+                    break;
+                case SUB:
+                    top--;
+                    stack[top] = stack[top] - stack[top + 1];
+                    break;
+                case MUL:
+                    top--;
+                    stack[top] = stack[top] * stack[top + 1];
+                    break;
+                case DIV:
+                    top--;
+                    stack[top] = stack[top] / stack[top + 1];
+                    break;
+                case POW:
+                    top--;
+                    stack[top] = Math.pow(stack[top], stack[top + 1]);
+                    break;
+                case SIN:
+                    stack[top] = Math.sin(stack[top]);
+                    break;
+                case COS:
+                    stack[top] = Math.cos(stack[top]);
+                    break;
+                case TAN:
+                    stack[top] = Math.tan(stack[top]);
+                    break;
+                case SQRT:
+                    stack[top] = Math.sqrt(stack[top]);
+                    break;
+                case LOG:
+                    stack[top] = Math.log10(stack[top]);
+                    break;
+                case LN:
+                    stack[top] = Math.log(stack[top]);
+                    break;
+                default:
+                    throw new RuntimeException("Unknown opcode " + opcodes[i]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Executes the program for many points at once. Every instruction is applied to a whole batch
+     * before moving on to the next one, so the dispatch is paid once per batch and the simple loops
+     * can be vectorized by the JIT. Gives the same results as {@link #execute(double[], double[])}.
+     * Any variable other than the ones in {@code xSlot} and {@code ySlot} is 0.
+     * @param xSlot The slot of the variable read from {@code xs}, or {@code -1}
+     * @param ySlot The slot of the variable read from {@code ys}, or {@code -1}
+     * @param xs The values of the first variable
+     * @param ys The values of the second variable
+     * @param start The index of the first point of the batch
+     * @param length The number of points in the batch
+     * @param stack The stack to use. Must hold {@link #getMaxStackSize()} rows of at least {@code length} elements
+     * @param out Array that receives the results, at the same indices as the points
+     */
+    protected void executeBatch(int xSlot, int ySlot, double[] xs, double[] ys, int start, int length,
+            double[][] stack, double[] out) {
+        int top = -1;
+        for (int i = 0; i < opcodes.length; i++) {
+            switch (opcodes[i]) {
+                case CONST:
+                    Arrays.fill(stack[++top], 0, length, constants[operands[i]]);
+                    break;
+                case VAR:
+                    top++;
+                    if (operands[i] == xSlot) {
+                        System.arraycopy(xs, start, stack[top], 0, length);
+                    } else if (operands[i] == ySlot) {
+                        System.arraycopy(ys, start, stack[top], 0, length);
+                    } else {
+                        Arrays.fill(stack[top], 0, length, 0);
+                    }
+                    break;
+                case ADD: {
+                    top--;
+                    double[] f = stack[top], g = stack[top + 1];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = f[j] + g[j];
+                    }
+                    break;
+                }
+                case SUB: {
+                    top--;
+                    double[] f = stack[top], g = stack[top + 1];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = f[j] - g[j];
+                    }
+                    break;
+                }
+                case MUL: {
+                    top--;
+                    double[] f = stack[top], g = stack[top + 1];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = f[j] * g[j];
+                    }
+                    break;
+                }
+                case DIV: {
+                    top--;
+                    double[] f = stack[top], g = stack[top + 1];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = f[j] / g[j];
+                    }
+                    break;
+                }
+                case POW: {
+                    top--;
+                    double[] f = stack[top], g = stack[top + 1];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = Math.pow(f[j], g[j]);
+                    }
+                    break;
+                }
+                case SIN: {
+                    double[] f = stack[top];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = Math.sin(f[j]);
+                    }
+                    break;
+                }
+                case COS: {
+                    double[] f = stack[top];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = Math.cos(f[j]);
+                    }
+                    break;
+                }
+                case TAN: {
+                    double[] f = stack[top];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = Math.tan(f[j]);
+                    }
+                    break;
+                }
+                case SQRT: {
+                    double[] f = stack[top];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = Math.sqrt(f[j]);
+                    }
+                    break;
+                }
+                case LOG: {
+                    double[] f = stack[top];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = Math.log10(f[j]);
+                    }
+                    break;
+                }
+                case LN: {
+                    double[] f = stack[top];
+                    for (int j = 0; j < length; j++) {
+                        f[j] = Math.log(f[j]);
+                    }
+                    break;
+                }
+                default:
+                    throw new RuntimeException("Unknown opcode " + opcodes[i]);
+            }
+        }
+        System.arraycopy(stack[0], 0, out, start, length);
+    }
+
+    /**
+     * Gets the slot of a variable
+     * @param name The name of the variable
+     * @return The slot index or {@code -1} if the program does not use the variable
+     */
+    protected int getVariableSlot(String name) {
+        for (int i = 0; i < variableNames.length; i++) {
+            if (variableNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the number of variable slots used by the program
+     * @return The number of slots
+     */
+    protected int getNumVariables() {
+        return variableNames.length;
+    }
+
+    /**
+     * Gets the maximum depth the stack reaches while executing the program
+     * @return The stack size
+     */
+    protected int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    /**
+     * Gets the number of instructions in the program
+     * @return The number of instructions
+     */
+    public int getNumInstructions() {
+        return opcodes.length;
+    }
+
+    /**
+     * Gets the opcode of an instruction
+     * @param instruction The index of the instruction
+     * @return The opcode
+     */
+    protected int getOpcode(int instruction) {
+        return opcodes[instruction];
+    }
+
+    /**
+     * Gets the operand of an instruction
+     * @param instruction The index of the instruction
+     * @return The operand
+     */
+    protected int getOperand(int instruction) {
+        return operands[instruction];
+    }
+
+    /**
+     * Gets a constant used by the program
+     * @param index The index of the constant
+     * @return The value of the constant
+     */
+    protected double getConstant(int index) {
+        return constants[index];
+    }
+
+    /**
+     * Gets the name of the variable stored in a slot
+     * @param slot The slot of the variable
+     * @return The name of the variable
+     */
+    protected String getVariableName(int slot) {
+        return variableNames[slot];
+    }
+}
@@ -103,25 +103,29 @@ public class GameStateRenderer {
         // Make sure that the deepest part isn't pitch black
         totalMinHeight -= 1.5;
         // Find the rendering coordinates
+        // Each row of heights is evaluated once and shared by the squares above and below it
+        double[] nextRowHeights = getRowHeights(0, numVertices, xStep, yStep);
         for (int yy = 0; yy < numVertices - 1; yy++) {
+            double[] rowHeights = nextRowHeights;
+            nextRowHeights = getRowHeights(yy + 1, numVertices, xStep, yStep);
             for (int xx = 0; xx < numVertices - 1; xx++) {
                 // First point
                 double x1 = terrain.topLeftCorner.x + xx * xStep;
                 double y1 = terrain.topLeftCorner.y + yy * yStep;
-                double h1 = UtilityClass.clamp(terrain.getTerrainFunction().valueAt(x1, y1), -10, 10);
+                double h1 = UtilityClass.clamp(rowHeights[xx], -10, 10);
                 // Second point
                 double x2 = terrain.topLeftCorner.x + (xx + 1) * xStep;
                 double y2 = terrain.topLeftCorner.y + yy * yStep;
-                double h2 = UtilityClass.clamp(terrain.getTerrainFunction().valueAt(x2, y2), -10, 10);
+                double h2 = UtilityClass.clamp(rowHeights[xx + 1], -10, 10);
                 // Third point
                 double x3 = terrain.topLeftCorner.x + xx * xStep;
                 double y3 = terrain.topLeftCorner.y + (yy + 1) * yStep;
-                double h3 = UtilityClass.clamp(terrain.getTerrainFunction().valueAt(x3, y3), -10, 10);
+                double h3 = UtilityClass.clamp(nextRowHeights[xx], -10, 10);
 
                 // Fourth point
                 double x4 = terrain.topLeftCorner.x + (xx + 1) * xStep;
                 double y4 = terrain.topLeftCorner.y + (yy + 1) * yStep;
-                double h4 = UtilityClass.clamp(terrain.getTerrainFunction().valueAt(x4, y4), -10, 10);
+                double h4 = UtilityClass.clamp(nextRowHeights[xx + 1], -10, 10);
 
                 double heightRange = getTerrainHeightRange();
                 double maxHeight = UtilityClass.getMaxValue(new double[] { h1, h2, h3, h4 });
@@ -165,6 +169,26 @@ public class GameStateRenderer {
     }
 
     // region getImageOfGreen helper methods
+    /**
+     * Evaluates the terrain height at every vertex of a row at once
+     * @param yy          The index of the row
+     * @param numVertices The number of vertices in the row
+     * @param xStep       The distance between two vertices in the x direction
+     * @param yStep       The distance between two rows
+     * @return The height at every vertex of the row
+     */
+    private double[] getRowHeights(int yy, int numVertices, double xStep, double yStep) {
+        double[] xs = new double[numVertices];
+        double[] ys = new double[numVertices];
+        for (int xx = 0; xx < numVertices; xx++) {
+            xs[xx] = terrain.topLeftCorner.x + xx * xStep;
+            ys[xx] = terrain.topLeftCorner.y + yy * yStep;
+        }
+        double[] heights = new double[numVertices];
+        terrain.getTerrainFunction().valuesAt(xs, ys, heights);
+        return heights;
+    }
+
     private void drawSquare(Graphics2D g2, Square square) {
         g2.setColor(getSquareColor(square));
         g2.fillPolygon(new int[] { square.pixel1X, square.pixel2X, square.pixel4X, square.pixel3X },
@@ -229,10 +253,9 @@ public class GameStateRenderer {
         double totalMaxHeight = -10;
         double totalMinHeight = 10;
         for (int yy = 0; yy < numVertices; yy++) {
+            double[] rowHeights = getRowHeights(yy, numVertices, xStep, yStep);
             for (int xx = 0; xx < numVertices; xx++) {
-                double x = terrain.topLeftCorner.x + xx * xStep;
-                double y = terrain.topLeftCorner.y + yy * yStep;
-                double h = terrain.getTerrainFunction().valueAt(x, y);
+                double h = rowHeights[xx];
                 if (h > 10) {
                     h = 10;
                 }
@@ -0,0 +1,87 @@
+package physics;
+
+import java.util.Random;
+
+import datastorage.Ball;
+import datastorage.Terrain;
+import physics.collisionsystems.StopCollisionSystem;
+import physics.solvers.IPrimitiveODESolver;
+import physics.solvers.RungeKutta2Solver;
+import physics.solvers.RungeKutta4Solver;
+import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import physics.trajectories.FinalPositionSink;
+import utility.BenchmarkTerrains;
+import utility.BenchmarkTimer;
+import utility.math.Vector2;
+
+/**
+ * Compares simulating shots together with {@link BatchPhysicsEngine} to simulating them one after the other,
+ * and checks that both give the same final positions.
+ */
+public class BatchEngineBenchmark {
+    private final Terrain terrain;
+    private final int numRepetitions;
+
+    public BatchEngineBenchmark(Terrain terrain, int numRepetitions) {
+        this.terrain = terrain;
+        this.numRepetitions = numRepetitions;
+    }
+
+    /**
+     * Measures the shots per second of both engines
+     * @param solver The solver to use
+     * @param numShots The number of shots simulated together
+     * @return A line of csv data: solver, shots, shots/s one by one, shots/s batched
+     */
+    public String testBatch(IPrimitiveODESolver solver, int numShots) {
+        PhysicsEngine engine = new PhysicsEngine(solver, new SmallVelocityStoppingCondition(),
+                new StopCollisionSystem());
+        BatchPhysicsEngine batchEngine = new BatchPhysicsEngine(engine);
+        Ball ball = new Ball(new Vector2(-3, 0), Vector2.zeroVector());
+        Random random = new Random(numShots);
+        Vector2[] shots = new Vector2[numShots];
+        FinalPositionSink[] sequentialTrajectories = new FinalPositionSink[numShots];
+        FinalPositionSink[] batchTrajectories = new FinalPositionSink[numShots];
+        for (int i = 0; i < numShots; i++) {
+            shots[i] = new Vector2(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1).normalize()
+                    .scale(random.nextDouble() * Ball.maxSpeed);
+            sequentialTrajectories[i] = new FinalPositionSink();
+            batchTrajectories[i] = new FinalPositionSink();
+        }
+
+        double sequentialTime = BenchmarkTimer.time(numRepetitions, numRepetitions, () -> {
+            for (int i = 0; i < numShots; i++) {
+                engine.simulateShot(shots[i], ball, terrain, sequentialTrajectories[i]);
+            }
+        });
+        double batchTime = BenchmarkTimer.time(numRepetitions, numRepetitions,
+                () -> batchEngine.simulateShots(shots, ball, terrain, batchTrajectories, null));
+
+        for (int i = 0; i < numShots; i++) {
+            FinalPositionSink expected = sequentialTrajectories[i];
+            FinalPositionSink actual = batchTrajectories[i];
+            if (expected.getFinalX() != actual.getFinalX() || expected.getFinalY() != actual.getFinalY()
+                    || expected.getNumPositions() != actual.getNumPositions()) {
+                throw new RuntimeException("The batched shot " + shots[i] + " ended at " + actual.getFinalPosition()
+                        + " instead of " + expected.getFinalPosition());
+            }
+        }
+
+        double sequentialRate = numShots / (sequentialTime / 1e9);
+        double batchRate = numShots / (batchTime / 1e9);
+        System.out.println(solver.getSolverName() + ", " + numShots + " shots: " + sequentialRate
+                + " shots/s one by one, " + batchRate + " shots/s batched");
+        return solver.getSolverName() + ", " + numShots + ", " + sequentialRate + ", " + batchRate + "\n";
+    }
+
+    public static void main(String[] args) {
+        Terrain terrain = BenchmarkTerrains.createBotTesterTerrain();
+        String data = "solver, shots, shots/s one by one, shots/s batched\n";
+        for (int numShots : new int[] { 1, 8, 64, 512 }) {
+            BatchEngineBenchmark beb = new BatchEngineBenchmark(terrain, Math.max(1, 1024 / numShots));
+            data += beb.testBatch(new RungeKutta2Solver(0.01), numShots);
+            data += beb.testBatch(new RungeKutta4Solver(0.01), numShots);
+        }
+        System.out.println(data);
+    }
+}
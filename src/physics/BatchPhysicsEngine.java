@@ -0,0 +1,244 @@
+package physics;
+
+import datastorage.Ball;
+import datastorage.BallState;
+import datastorage.Terrain;
+import physics.solvers.IBatchODESolver;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.ITrajectorySink;
+import utility.math.Vector2;
+
+/**
+ * Simulates many shots in lockstep. The balls are stored as one array per component and the solver advances
+ * all of them together, so the terrain function is evaluated for every ball before moving on to the next
+ * instruction. Shots that ended are swapped with the last active one, so the active balls always fill the
+ * start of the arrays.
+ * <p>
+ * Every shot gives exactly the same positions as {@link PhysicsEngine#simulateShot(Vector2, Ball, Terrain,
+ * ITrajectorySink, ShotTerminator)}. Solvers that cannot step a batch simulate the shots one after the other.
+ */
+public class BatchPhysicsEngine {
+    private final PhysicsEngine engine;
+
+    // The states of the active balls
+    private double[] px = new double[0];
+    private double[] py = new double[0];
+    private double[] vx = new double[0];
+    private double[] vy = new double[0];
+    // Their states before the current step
+    private double[] previousPx = new double[0];
+    private double[] previousPy = new double[0];
+    private double[] previousVx = new double[0];
+    private double[] previousVy = new double[0];
+    // The shot every active ball belongs to
+    private int[] shots = new int[0];
+    private int[] numSteps = new int[0];
+    private int[] numSavedSteps = new int[0];
+    private boolean[] isTerminated = new boolean[0];
+    // When the engine detects stops: the time until every ball stops during the step, or -1, and the
+    // acceleration at the start of the step
+    private double[] stopTimes = new double[0];
+    private double[] stopAx = new double[0];
+    private double[] stopAy = new double[0];
+    // The length of the change of the velocity of every ball during the last step
+    private double[] velocityChanges = new double[0];
+    private final double[] acceleration = new double[3];
+
+    // Reused to apply the per ball rules of the engine, their vectors are reset for every ball
+    private final BallState tempState = new BallState(Vector2.zeroVector(), Vector2.zeroVector());
+    private final BallState previousState = new BallState(Vector2.zeroVector(), Vector2.zeroVector());
+    private final Vector2 tempPosition = Vector2.zeroVector();
+    private final Vector2 tempVelocity = Vector2.zeroVector();
+    private final Vector2 previousPosition = Vector2.zeroVector();
+    private final Vector2 previousVelocity = Vector2.zeroVector();
+
+    /**
+     * Constructor. Creates a batch engine using the solver and the rules of an engine.
+     *
+     * @param engine The engine to simulate the shots with
+     */
+    public BatchPhysicsEngine(PhysicsEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Simulates many shots from the same position until the balls stop or a termination condition ends them
+     *
+     * @param initialSpeeds The initial speeds of the shots
+     * @param ball          The ball to shoot
+     * @param terrain       The terrain to shoot the ball on
+     * @param trajectories  One sink per shot, receiving the initial position and the position after every step
+     * @param terminator    The termination conditions checked after every step, or {@code null}
+     */
+    public void simulateShots(Vector2[] initialSpeeds, Ball ball, Terrain terrain, ITrajectorySink[] trajectories,
+            ShotTerminator terminator) {
+        if (initialSpeeds.length != trajectories.length) {
+            throw new RuntimeException("Every shot needs its own trajectory sink");
+        }
+        if (!(engine.odeSolver instanceof IBatchODESolver)) {
+            for (int i = 0; i < initialSpeeds.length; i++) {
+                engine.simulateShot(initialSpeeds[i], ball, terrain, trajectories[i], terminator);
+            }
+            return;
+        }
+        IBatchODESolver solver = (IBatchODESolver) engine.odeSolver;
+        ensureCapacity(initialSpeeds.length);
+
+        int numActive = 0;
+        for (int i = 0; i < initialSpeeds.length; i++) {
+            // Add the initial position
+            trajectories[i].reset();
+            trajectories[i].addPosition(ball.state.position.x, ball.state.position.y);
+            if (initialSpeeds[i].length() == 0) {
+                if (terminator != null) {
+                    terminator.recordShot(0, 0, false);
+                }
+                continue;
+            }
+            px[numActive] = ball.state.position.x;
+            py[numActive] = ball.state.position.y;
+            vx[numActive] = initialSpeeds[i].x;
+            vy[numActive] = initialSpeeds[i].y;
+            shots[numActive] = i;
+            numSteps[numActive] = 0;
+            numSavedSteps[numActive] = 0;
+            isTerminated[numActive] = false;
+            velocityChanges[numActive] = Double.POSITIVE_INFINITY;
+            numActive++;
+        }
+
+        while (numActive > 0) {
+            for (int lane = 0; lane < numActive; lane++) {
+                loadState(lane);
+                engine.clampVelocity(tempState);
+                vx[lane] = tempState.velocity.x;
+                vy[lane] = tempState.velocity.y;
+                stopTimes[lane] = engine.isDetectingStops
+                        ? engine.getStopTime(tempState, velocityChanges[lane], terrain, acceleration)
+                        : -1;
+                stopAx[lane] = acceleration[0];
+                stopAy[lane] = acceleration[1];
+                previousPx[lane] = px[lane];
+                previousPy[lane] = py[lane];
+                previousVx[lane] = vx[lane];
+                previousVy[lane] = vy[lane];
+            }
+            solver.stepBatch(px, py, vx, vy, numActive, terrain, engine);
+
+            int lane = 0;
+            while (lane < numActive) {
+                boolean hasStopped = stopTimes[lane] >= 0;
+                if (hasStopped) {
+                    // The solver stepped this ball as well, the step is replaced by moving it to where it stops
+                    px[lane] = previousPx[lane];
+                    py[lane] = previousPy[lane];
+                    vx[lane] = previousVx[lane];
+                    vy[lane] = previousVy[lane];
+                    loadState(lane);
+                    engine.moveToStop(tempState, stopTimes[lane], stopAx[lane], stopAy[lane]);
+                } else {
+                    loadState(lane);
+                }
+                loadPreviousState(lane);
+                BallState state = engine.finishStep(tempState, previousState, ball.radius, terrain, hasStopped);
+                if (engine.isDetectingStops) {
+                    velocityChanges[lane] = engine.getVelocityChange(state, previousState);
+                }
+                px[lane] = state.position.x;
+                py[lane] = state.position.y;
+                vx[lane] = state.velocity.x;
+                vy[lane] = state.velocity.y;
+
+                boolean isFinished = state.velocity.length() == 0;
+                if (isTerminated[lane]) {
+                    // Only counting the steps that ending the shot saves
+                    numSavedSteps[lane]++;
+                } else {
+                    numSteps[lane]++;
+                    // Store the new position
+                    trajectories[shots[lane]].addPosition(state.position.x, state.position.y);
+                    if (terminator != null && terminator.shouldTerminate(state)) {
+                        isTerminated[lane] = true;
+                        isFinished |= !terminator.isMeasuringSavedSteps();
+                    }
+                }
+
+                if (isFinished) {
+                    if (terminator != null) {
+                        terminator.recordShot(numSteps[lane], numSavedSteps[lane], isTerminated[lane]);
+                    }
+                    numActive--;
+                    moveLane(numActive, lane);
+                } else {
+                    lane++;
+                }
+            }
+        }
+    }
+
+    private void loadState(int lane) {
+        tempPosition.x = px[lane];
+        tempPosition.y = py[lane];
+        tempVelocity.x = vx[lane];
+        tempVelocity.y = vy[lane];
+        tempState.position = tempPosition;
+        tempState.velocity = tempVelocity;
+    }
+
+    private void loadPreviousState(int lane) {
+        previousPosition.x = previousPx[lane];
+        previousPosition.y = previousPy[lane];
+        previousVelocity.x = previousVx[lane];
+        previousVelocity.y = previousVy[lane];
+        previousState.position = previousPosition;
+        previousState.velocity = previousVelocity;
+    }
+
+    /**
+     * Copies the ball of one lane to another one
+     */
+    private void moveLane(int from, int to) {
+        px[to] = px[from];
+        py[to] = py[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        previousPx[to] = previousPx[from];
+        previousPy[to] = previousPy[from];
+        previousVx[to] = previousVx[from];
+        previousVy[to] = previousVy[from];
+        shots[to] = shots[from];
+        numSteps[to] = numSteps[from];
+        numSavedSteps[to] = numSavedSteps[from];
+        isTerminated[to] = isTerminated[from];
+        stopTimes[to] = stopTimes[from];
+        stopAx[to] = stopAx[from];
+        stopAy[to] = stopAy[from];
+        velocityChanges[to] = velocityChanges[from];
+    }
+
+    private void ensureCapacity(int n) {
+        if (px.length >= n) {
+            return;
+        }
+        px = new double[n];
+        py = new double[n];
+        vx = new double[n];
+        vy = new double[n];
+        previousPx = new double[n];
+        previousPy = new double[n];
+        previousVx = new double[n];
+        previousVy = new double[n];
+        shots = new int[n];
+        numSteps = new int[n];
+        numSavedSteps = new int[n];
+        isTerminated = new boolean[n];
+        stopTimes = new double[n];
+        stopAx = new double[n];
+        stopAy = new double[n];
+        velocityChanges = new double[n];
+    }
+
+    public PhysicsEngine getEngine() {
+        return engine;
+    }
+}
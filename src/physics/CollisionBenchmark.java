@@ -0,0 +1,303 @@
+package physics;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import datastorage.Ball;
+import datastorage.ObstacleIndex;
+import datastorage.Terrain;
+import datastorage.obstacles.IObstacle;
+import physics.collisionsystems.BounceCollisionSystem;
+import physics.solvers.RungeKutta4Solver;
+import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import reader.MazeMapGenerator;
+import utility.BenchmarkTimer;
+import utility.SweepResult;
+import utility.math.Vector2;
+
+/**
+ * Measures the cost of a physics step with bouncing collisions on a generated maze, and compares finding the
+ * obstacles near the ball with the obstacle index against checking every obstacle. Also compares the shots on a
+ * maze with one box per square against the same maze with merged boxes.
+ */
+public class CollisionBenchmark {
+    // Merging only removes the sides between boxes of the same wall, which lie inside the wall, so the shots
+    // should not change. The tolerance leaves room for rounding in a contact found on a different box
+    private static final double MERGED_TOLERANCE = 1e-9;
+    // Step size of the shots the final positions of testStepSizes are compared with
+    private static final double REFERENCE_STEP_SIZE = 0.001;
+    // Largest mean distance from the reference final positions at which a step size is stable, the radius of the
+    // target used by BotTester
+    private static final double STABLE_MEAN_ERROR = 0.15;
+
+    private final PhysicsEngine engine;
+    private final int numShots;
+
+    public CollisionBenchmark(int numShots) {
+        this.engine = new PhysicsEngine(new RungeKutta4Solver(0.01), new SmallVelocityStoppingCondition(),
+                new BounceCollisionSystem());
+        this.numShots = numShots;
+    }
+
+    /**
+     * Generates a maze with a depth-first search. The rooms lie on the odd rows and columns, everything else is
+     * wall until a passage is carved through it.
+     * @param size   The number of squares per side
+     * @param random The random generator
+     * @return The maze, {@code true} for path and {@code false} for wall
+     */
+    public static boolean[][] generateMaze(int size, Random random) {
+        boolean[][] maze = new boolean[size][size];
+        int[][] directions = { { 2, 0 }, { -2, 0 }, { 0, 2 }, { 0, -2 } };
+        ArrayList<int[]> stack = new ArrayList<>();
+        maze[1][1] = true;
+        stack.add(new int[] { 1, 1 });
+        while (!stack.isEmpty()) {
+            int[] room = stack.get(stack.size() - 1);
+            ArrayList<int[]> unvisited = new ArrayList<>();
+            for (int[] direction : directions) {
+                int x = room[0] + direction[0];
+                int y = room[1] + direction[1];
+                if (x > 0 && x < size - 1 && y > 0 && y < size - 1 && !maze[y][x]) {
+                    unvisited.add(new int[] { x, y });
+                }
+            }
+            if (unvisited.isEmpty()) {
+                stack.remove(stack.size() - 1);
+                continue;
+            }
+            int[] next = unvisited.get(random.nextInt(unvisited.size()));
+            maze[(room[1] + next[1]) / 2][(room[0] + next[0]) / 2] = true;
+            maze[next[1]][next[0]] = true;
+            stack.add(next);
+        }
+        return maze;
+    }
+
+    /**
+     * Measures a maze
+     * @param mazeSize The number of squares per side of the maze
+     * @return A line of csv data: obstacles, nanoseconds per step, nanoseconds per lookup with the index,
+     *         nanoseconds per lookup checking every obstacle
+     */
+    public String testMaze(int mazeSize) {
+        boolean[][] maze = generateMaze(mazeSize, new Random(0));
+        Terrain terrain = MazeMapGenerator.getMazeTerrain(maze, new Vector2(mazeSize * 2, mazeSize * 2));
+        int numObstacles = terrain.obstacles.size();
+        double stepTime = timeSteps(terrain);
+        double indexTime = timeLookups(terrain, true);
+        double scanTime = timeLookups(terrain, false);
+        System.out.println(numObstacles + " obstacles: " + stepTime + " ns/step, lookup " + indexTime
+                + " ns with the index, " + scanTime + " ns checking every obstacle");
+        return numObstacles + ", " + stepTime + ", " + indexTime + ", " + scanTime + "\n";
+    }
+
+    /**
+     * Takes the same shots on a maze with one box per square and on the same maze with merged boxes. Throws an
+     * exception if their final positions are further apart than {@link #MERGED_TOLERANCE}.
+     * @param mazeSize The number of squares per side of the maze
+     * @return A line of csv data: boxes per square, merged boxes, nanoseconds per step per square,
+     *         nanoseconds per step merged, shots with the same trajectory, largest distance between final positions
+     */
+    public String testMergedMaze(int mazeSize) {
+        boolean[][] maze = generateMaze(mazeSize, new Random(0));
+        Vector2 mapSize = new Vector2(mazeSize * 2, mazeSize * 2);
+        Terrain squares = MazeMapGenerator.getMazeTerrain(maze, mapSize, false);
+        Terrain merged = MazeMapGenerator.getMazeTerrain(maze, mapSize, true);
+        double mergedStepTime = timeSteps(merged);
+        double squaresStepTime = timeSteps(squares);
+
+        Ball ball = new Ball(new Vector2(3, 3), Vector2.zeroVector());
+        int numSame = 0;
+        double largestDistance = 0;
+        for (int i = 0; i < numShots; i++) {
+            double speed = 1 + i % 5;
+            Vector2 velocity = new Vector2(Math.cos(i * 0.7) * speed, Math.sin(i * 0.7) * speed);
+            ArrayList<Vector2> squaresShot = engine.simulateShot(velocity, ball, squares);
+            ArrayList<Vector2> mergedShot = engine.simulateShot(velocity, ball, merged);
+            boolean isSame = squaresShot.size() == mergedShot.size();
+            for (int j = 0; isSame && j < squaresShot.size(); j++) {
+                isSame = squaresShot.get(j).x == mergedShot.get(j).x && squaresShot.get(j).y == mergedShot.get(j).y;
+            }
+            if (isSame) {
+                numSame++;
+            }
+            Vector2 squaresEnd = squaresShot.get(squaresShot.size() - 1);
+            Vector2 mergedEnd = mergedShot.get(mergedShot.size() - 1);
+            double distance = squaresEnd.distanceTo(mergedEnd);
+            if (distance > MERGED_TOLERANCE) {
+                throw new RuntimeException("The shot " + velocity + " ended at " + mergedEnd
+                        + " on the merged maze instead of " + squaresEnd);
+            }
+            largestDistance = Math.max(largestDistance, distance);
+        }
+        System.out.println(mazeSize + "x" + mazeSize + " maze: " + squares.obstacles.size() + " boxes per square, "
+                + merged.obstacles.size() + " merged boxes, " + squaresStepTime + " ns/step per square, "
+                + mergedStepTime + " ns/step merged, " + numSame + "/" + numShots
+                + " shots the same, largest distance between final positions " + largestDistance);
+        return squares.obstacles.size() + ", " + merged.obstacles.size() + ", " + squaresStepTime + ", "
+                + mergedStepTime + ", " + numSame + ", " + largestDistance + "\n";
+    }
+
+    /**
+     * Finds the largest step size at which the shots on a maze are stable. A shot tunnels if the ball gets more
+     * than half its radius into an obstacle, at a step or between two steps. Its error is the distance between its
+     * final position and that of the same shot with a step size of {@link #REFERENCE_STEP_SIZE}. A step size is
+     * stable if no shot tunnels and the mean error is at most {@link #STABLE_MEAN_ERROR}, and so are all the
+     * smaller step sizes.
+     * @param mazeSize  The number of squares per side of the maze
+     * @param stepSizes The step sizes to try, from small to large
+     * @return A line of csv data for every step size: step size, tunneled shots, steps per shot, mean error,
+     *         largest error
+     */
+    public String testStepSizes(int mazeSize, double[] stepSizes) {
+        boolean[][] maze = generateMaze(mazeSize, new Random(0));
+        Terrain terrain = MazeMapGenerator.getMazeTerrain(maze, new Vector2(mazeSize * 2, mazeSize * 2));
+        ObstacleIndex index = terrain.getObstacleIndex();
+        int[] found = new int[index.getNumObstacles()];
+        SweepResult contact = new SweepResult();
+        Ball ball = new Ball(new Vector2(3, 3), Vector2.zeroVector());
+        double depthRadius = ball.radius / 2;
+
+        PhysicsEngine referenceEngine = new PhysicsEngine(new RungeKutta4Solver(REFERENCE_STEP_SIZE),
+                new SmallVelocityStoppingCondition(), engine.collisionSystem);
+        Vector2[] referencePositions = new Vector2[numShots];
+        for (int i = 0; i < numShots; i++) {
+            ArrayList<Vector2> positions = referenceEngine.simulateShot(getStepSizeShot(i), ball, terrain);
+            referencePositions[i] = positions.get(positions.size() - 1);
+        }
+
+        String data = "";
+        double largestStableStep = 0;
+        boolean isStable = true;
+        for (double stepSize : stepSizes) {
+            PhysicsEngine stepEngine = new PhysicsEngine(new RungeKutta4Solver(stepSize),
+                    new SmallVelocityStoppingCondition(), engine.collisionSystem);
+            int numFailed = 0;
+            int numSteps = 0;
+            double meanError = 0;
+            double largestError = 0;
+            for (int i = 0; i < numShots; i++) {
+                ArrayList<Vector2> positions = stepEngine.simulateShot(getStepSizeShot(i), ball, terrain);
+                numSteps += positions.size();
+                double error = positions.get(positions.size() - 1).distanceTo(referencePositions[i]);
+                meanError += error / numShots;
+                largestError = Math.max(largestError, error);
+                for (int j = 1; j < positions.size(); j++) {
+                    Vector2 from = positions.get(j - 1);
+                    Vector2 to = positions.get(j);
+                    contact.reset();
+                    int numFound = index.findObstacles(Math.min(from.x, to.x) - depthRadius,
+                            Math.min(from.y, to.y) - depthRadius, Math.max(from.x, to.x) + depthRadius,
+                            Math.max(from.y, to.y) + depthRadius, found);
+                    boolean isInside = false;
+                    for (int k = 0; k < numFound; k++) {
+                        IObstacle obstacle = index.getObstacle(found[k]);
+                        isInside |= obstacle.isBallColliding(to, depthRadius);
+                        obstacle.sweepBall(from.x, from.y, to.x, to.y, depthRadius, contact);
+                    }
+                    if (isInside || contact.hasContact()) {
+                        numFailed++;
+                        break;
+                    }
+                }
+            }
+            if (numFailed > 0 || meanError > STABLE_MEAN_ERROR) {
+                isStable = false;
+            } else if (isStable) {
+                largestStableStep = stepSize;
+            }
+            System.out.println("Step size " + stepSize + ": " + numFailed + "/" + numShots + " shots tunneled, "
+                    + (double) numSteps / numShots + " steps per shot, final position error " + meanError
+                    + " on average and " + largestError + " at most");
+            data += stepSize + ", " + numFailed + ", " + (double) numSteps / numShots + ", " + meanError + ", "
+                    + largestError + "\n";
+        }
+        System.out.println("Largest stable step size: " + largestStableStep);
+        return data;
+    }
+
+    /**
+     * Gets a shot of testStepSizes, from a fifth of the largest speed up to the largest speed
+     */
+    private static Vector2 getStepSizeShot(int i) {
+        double speed = Ball.maxSpeed * (i % 5 + 1) / 5;
+        return new Vector2(Math.cos(i * 0.7) * speed, Math.sin(i * 0.7) * speed);
+    }
+
+    private double timeSteps(Terrain terrain) {
+        // The center of the first room of the maze
+        Ball ball = new Ball(new Vector2(3, 3), Vector2.zeroVector());
+        int[] numSteps = new int[1];
+        double time = BenchmarkTimer.time(3, 1, () -> {
+            numSteps[0] = 0;
+            for (int i = 0; i < numShots; i++) {
+                double speed = 1 + i % 5;
+                Vector2 velocity = new Vector2(Math.cos(i * 0.7) * speed, Math.sin(i * 0.7) * speed);
+                numSteps[0] += engine.simulateShot(velocity, ball, terrain).size();
+            }
+        });
+        return time / numSteps[0];
+    }
+
+    /**
+     * Finds the obstacles touched by a ball moving a short distance at random positions in the maze
+     */
+    private double timeLookups(Terrain terrain, boolean useIndex) {
+        Random random = new Random(1);
+        int numLookups = 200000;
+        double[] xs = new double[numLookups];
+        double[] ys = new double[numLookups];
+        for (int i = 0; i < numLookups; i++) {
+            xs[i] = random.nextDouble() * terrain.bottomRightCorner.x;
+            ys[i] = random.nextDouble() * terrain.bottomRightCorner.y;
+        }
+        double searchRadius = 0.1;
+        ObstacleIndex index = terrain.getObstacleIndex();
+        int[] found = new int[index.getNumObstacles()];
+        int[] numTouched = new int[1];
+        double time = BenchmarkTimer.time(1, 1, () -> {
+            numTouched[0] = 0;
+            for (int i = 0; i < numLookups; i++) {
+                Vector2 position = new Vector2(xs[i], ys[i]);
+                if (useIndex) {
+                    int numFound = index.findObstacles(xs[i] - searchRadius, ys[i] - searchRadius,
+                            xs[i] + searchRadius, ys[i] + searchRadius, found);
+                    for (int j = 0; j < numFound; j++) {
+                        if (index.getObstacle(found[j]).isBallColliding(position, searchRadius)) {
+                            numTouched[0]++;
+                        }
+                    }
+                } else {
+                    for (IObstacle obstacle : terrain.obstacles) {
+                        if (obstacle.isBallColliding(position, searchRadius)) {
+                            numTouched[0]++;
+                        }
+                    }
+                }
+            }
+        });
+        System.out.println((useIndex ? "Index" : "Scan") + " touched " + numTouched[0] + " obstacles");
+        return time / numLookups;
+    }
+
+    public static void main(String[] args) {
+        CollisionBenchmark cb = new CollisionBenchmark(200);
+        String data = "obstacles, step, lookup (index), lookup (scan)\n";
+        for (int mazeSize : new int[] { 10, 25, 50 }) {
+            data += cb.testMaze(mazeSize);
+        }
+        System.out.println(data);
+
+        String mergeData = "boxes (squares), boxes (merged), step (squares), step (merged), same shots, "
+                + "largest distance\n";
+        for (int mazeSize : new int[] { 25, 50, 100 }) {
+            mergeData += cb.testMergedMaze(mazeSize);
+        }
+        System.out.println(mergeData);
+
+        String stepData = "step size, tunneled shots, steps per shot, mean error, largest error\n";
+        stepData += cb.testStepSizes(50, new double[] { 0.005, 0.01, 0.02, 0.05, 0.1, 0.2, 0.5, 1.0, 2.0 });
+        System.out.println(stepData);
+    }
+}
@@ -2,10 +2,13 @@ package physics;
 
 import function.Function;
 import physics.collisionsystems.StopCollisionSystem;
+import physics.solvers.DormandPrinceSolver;
 import physics.solvers.EulerSolver;
+import physics.solvers.IPrimitiveODESolver;
 import physics.solvers.RungeKutta2Solver;
 import physics.solvers.RungeKutta4Solver;
 import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import utility.BenchmarkTimer;
 import utility.math.Vector2;
 
 import java.io.File;
@@ -21,6 +24,7 @@ public class EngineTester {
         String data = "";
 
         Ball ball = new Ball(p0, Vector2.zeroVector());
+        terrain.disableSampleCache();
 
         // Test all the other engines
         for (int n=numStepSizes; n>0; n--) {
@@ -64,6 +68,7 @@ public class EngineTester {
     }
 
     public String testAllEngines(Terrain terrain, Vector2 v0, Vector2 p0, double stopT, int numStepSizes) {
+        terrain.disableSampleCache();
         double actualH = stopT/(4*numStepSizes);
         PhysicsEngine rk4 = new PhysicsEngine(
                 new RungeKutta4Solver(actualH),
@@ -142,6 +147,111 @@ public class EngineTester {
         return data;
     }
 
+    /**
+     * Compares the adaptive RK45 solver with RK4. For every tolerance, RK4 uses the largest fixed step size
+     * whose final position is at least as accurate as the one of RK45.
+     * 
+     * @param terrain    The terrain to shoot on
+     * @param v0         The initial velocity
+     * @param p0         The initial position
+     * @param stopT      The time of the final position
+     * @param tolerances The absolute and relative tolerances to give RK45
+     * @return csv data: tolerance, error, steps, rejected steps and time per shot of RK45,
+     *         then error, steps and time per shot of RK4
+     */
+    public String testAdaptiveSolver(Terrain terrain, Vector2 v0, Vector2 p0, double stopT, double[] tolerances) {
+        terrain.disableSampleCache();
+        double[] start = new double[] { p0.x, p0.y, v0.x, v0.y };
+        // Much more accurate than any of the tested solvers
+        double[] actual = integrate(new RungeKutta4Solver(stopT / 100000), terrain, start, stopT);
+
+        String data = "tolerance, rk45 error, rk45 steps, rk45 rejected steps, rk45 ns/shot, rk4 error, rk4 steps, "
+                + "rk4 ns/shot\n";
+        for (double tolerance : tolerances) {
+            DormandPrinceSolver rk45 = new DormandPrinceSolver(0.01, tolerance, tolerance);
+            double[] rk45Result = integrate(rk45, terrain, start, stopT);
+            double rk45Error = distance(rk45Result, actual);
+            int rk45Steps = (int) rk45Result[4];
+            int rk45Rejected = rk45.getNumRejectedSteps();
+            double rk45Time = timeShot(rk45, terrain, start, stopT);
+
+            // Find the smallest number of RK4 steps that is at least as accurate. Errors of a few step sizes can
+            // cancel out by chance, so the next step sizes have to be as accurate as well
+            int rk4Steps = 0;
+            double rk4Error = 0;
+            boolean isAccurate = false;
+            while (!isAccurate) {
+                rk4Steps++;
+                isAccurate = true;
+                for (int n = rk4Steps + 2; n >= rk4Steps; n--) {
+                    rk4Error = distance(integrate(new RungeKutta4Solver(stopT / n), terrain, start, stopT), actual);
+                    isAccurate &= rk4Error <= rk45Error;
+                }
+            }
+            double rk4Time = timeShot(new RungeKutta4Solver(stopT / rk4Steps), terrain, start, stopT);
+
+            System.out.println("tolerance " + tolerance + ": RK45 " + rk45Steps + " steps (" + rk45Rejected
+                    + " rejected), error " + rk45Error + ", " + rk45Time + " ns; RK4 " + rk4Steps
+                    + " steps, error " + rk4Error + ", " + rk4Time + " ns");
+            data += tolerance + ", " + rk45Error + ", " + rk45Steps + ", " + rk45Rejected + ", " + rk45Time + ", "
+                    + rk4Error + ", " + rk4Steps + ", " + rk4Time + "\n";
+        }
+        return data;
+    }
+
+    /**
+     * Integrates a state until a given time, shortening the last step to end exactly at that time
+     * 
+     * @return The final state {px, py, vx, vy} followed by the number of steps taken
+     */
+    private double[] integrate(IPrimitiveODESolver solver, Terrain terrain, double[] start, double stopT) {
+        PhysicsEngine engine = new PhysicsEngine(solver, new SmallVelocityStoppingCondition(),
+                new StopCollisionSystem());
+        solver.setStepSize(solver.getStepSize());
+        double[] state = Arrays.copyOf(start, 5);
+        int numSteps = 0;
+        if (solver instanceof DormandPrinceSolver) {
+            DormandPrinceSolver adaptiveSolver = (DormandPrinceSolver) solver;
+            double t = 0;
+            // Stop a little early, rounding errors in t should not cause an extra tiny step
+            while (t < stopT * (1 - 1e-12)) {
+                adaptiveSolver.limitNextStep(stopT - t);
+                solver.step(state, terrain, engine);
+                t += adaptiveSolver.getLastStepSize();
+                numSteps++;
+            }
+        } else {
+            // Count the steps instead of adding up the time, which could take an extra step due to rounding errors
+            long numFixedSteps = Math.round(stopT / solver.getStepSize());
+            for (; numSteps < numFixedSteps; numSteps++) {
+                solver.step(state, terrain, engine);
+            }
+        }
+        state[4] = numSteps;
+        return state;
+    }
+
+    /**
+     * Measures how long integrating until a given time takes
+     * 
+     * @return The nanoseconds per shot
+     */
+    private double timeShot(IPrimitiveODESolver solver, Terrain terrain, double[] start, double stopT) {
+        int numShots = 2000;
+        double[] sum = new double[1];
+        double time = BenchmarkTimer.time(2, 1, () -> {
+            for (int i = 0; i < numShots; i++) {
+                sum[0] += integrate(solver, terrain, start, stopT)[0];
+            }
+        });
+        BenchmarkTimer.preventElimination(sum[0]);
+        return time / numShots;
+    }
+
+    private double distance(double[] a, double[] b) {
+        return Math.sqrt((a[0] - b[0]) * (a[0] - b[0]) + (a[1] - b[1]) * (a[1] - b[1]));
+    }
+
     public void saveTestData(String data, String fileName) {
         try {
             File f = new File(System.getProperty("user.dir")+"/Phase 1/src/physics/results/"+fileName+".csv");
@@ -186,5 +296,20 @@ public class EngineTester {
                 100
         );
         et.saveTestData(data, "solvers-"+System.nanoTime());
+
+        String adaptiveData = et.testAdaptiveSolver(
+                new Terrain(
+                        "e**(-(x*x+y*y)/8)",
+                        0.2,
+                        0.1,
+                        new Vector2(-50, -50),
+                        new Vector2(50, 50)
+                ),
+                new Vector2(3, 0),
+                new Vector2(-1, 0.5),
+                2,
+                new double[] { 1e-6, 1e-7, 1e-8, 1e-9, 1e-10 }
+        );
+        et.saveTestData(adaptiveData, "adaptive-"+System.nanoTime());
     }
 }
@@ -0,0 +1,91 @@
+package physics;
+
+import java.util.Random;
+
+import datastorage.obstacles.IObstacle;
+import datastorage.obstacles.ObstacleBox;
+import datastorage.obstacles.ObstacleTree;
+import datastorage.obstacles.ObstacleWall;
+import utility.BenchmarkTimer;
+import utility.CollisionData;
+import utility.SweepResult;
+import utility.math.Vector2;
+
+/**
+ * Measures the time and the bytes allocated per collision check of every obstacle type, comparing
+ * {@link IObstacle#getCollisionData} with {@link IObstacle#sweepBall}.
+ */
+public class ObstacleSweepBenchmark {
+    private final int numChecks;
+    // Movements of a ball near the obstacles, of about the length of a step
+    private final Vector2[] fromPositions;
+    private final Vector2[] toPositions;
+
+    public ObstacleSweepBenchmark(int numChecks) {
+        this.numChecks = numChecks;
+        Random random = new Random(0);
+        fromPositions = new Vector2[numChecks];
+        toPositions = new Vector2[numChecks];
+        for (int i = 0; i < numChecks; i++) {
+            fromPositions[i] = new Vector2(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2);
+            toPositions[i] = fromPositions[i].translated(new Vector2(random.nextDouble() - 0.5,
+                    random.nextDouble() - 0.5));
+        }
+    }
+
+    /**
+     * Checks every movement against an obstacle in both ways
+     * @param obstacle The obstacle, around the origin
+     * @return A line of csv data: obstacle, nanoseconds and bytes per check with collision data, nanoseconds and
+     *         bytes per check with the sweep, contacts found with collision data, contacts found with the sweep
+     */
+    public String testObstacle(String name, IObstacle obstacle) {
+        double ballRadius = 0.05;
+        SweepResult result = new SweepResult();
+        int[] numContacts = new int[2];
+        double[] collisionDataResult = measure(() -> {
+            numContacts[0] = 0;
+            for (int i = 0; i < numChecks; i++) {
+                CollisionData collisionData = obstacle.getCollisionData(toPositions[i], fromPositions[i],
+                        ballRadius);
+                if (collisionData != null) {
+                    numContacts[0]++;
+                }
+            }
+        });
+        double[] sweepResult = measure(() -> {
+            numContacts[1] = 0;
+            for (int i = 0; i < numChecks; i++) {
+                result.reset();
+                if (obstacle.sweepBall(fromPositions[i].x, fromPositions[i].y, toPositions[i].x,
+                        toPositions[i].y, ballRadius, result)) {
+                    numContacts[1]++;
+                }
+            }
+        });
+        System.out.println(name + ": collision data " + collisionDataResult[1] + " ns, " + collisionDataResult[0]
+                + " bytes, " + numContacts[0] + " contacts; sweep " + sweepResult[1] + " ns, " + sweepResult[0]
+                + " bytes, " + numContacts[1] + " contacts");
+        return name + ", " + collisionDataResult[1] + ", " + collisionDataResult[0] + ", " + sweepResult[1] + ", "
+                + sweepResult[0] + ", " + numContacts[0] + ", " + numContacts[1] + "\n";
+    }
+
+    /**
+     * Runs a piece of code a few times to warm up and once to measure it
+     * @return The bytes allocated and the nanoseconds taken, per check
+     */
+    private double[] measure(Runnable code) {
+        long[] result = BenchmarkTimer.timeWithAllocations(3, code);
+        return new double[] { (double) result[0] / numChecks, (double) result[1] / numChecks };
+    }
+
+    public static void main(String[] args) {
+        ObstacleSweepBenchmark osb = new ObstacleSweepBenchmark(1000000);
+        String data = "obstacle, ns (collision data), bytes (collision data), ns (sweep), bytes (sweep), "
+                + "contacts (collision data), contacts (sweep)\n";
+        data += osb.testObstacle("Box", new ObstacleBox(new Vector2(-0.5, 0.6), new Vector2(0.8, -0.4)));
+        data += osb.testObstacle("Tree", new ObstacleTree(new Vector2(0.3, -0.2), 0.7, 0.8));
+        data += osb.testObstacle("Wall", new ObstacleWall(new Vector2(-0.6, -0.3), new Vector2(0.7, 0.5)));
+        System.out.println(data);
+    }
+}
@@ -5,7 +5,11 @@ import java.util.ArrayList;
 import datastorage.*;
 import physics.collisionsystems.ICollisionSystem;
 import physics.solvers.IODESolver;
+import physics.solvers.IPrimitiveODESolver;
 import physics.stoppingconditions.IStoppingCondition;
+import physics.terminationconditions.ShotTerminator;
+import physics.trajectories.DecimatedTrajectorySink;
+import physics.trajectories.ITrajectorySink;
 import utility.math.Vector2;
 
 public class PhysicsEngine {
@@ -15,6 +19,8 @@ public class PhysicsEngine {
     public final IODESolver odeSolver;
     public final IStoppingCondition stoppingCondition;
     public final ICollisionSystem collisionSystem;
+    // Whether the engine finds the moment the ball stops instead of using the stopping condition
+    public final boolean isDetectingStops;
 
     /**
      * Constructor. Creates a new instance of the physics engine
@@ -24,9 +30,37 @@ public class PhysicsEngine {
      * @param collisionSystem   The collision system to use
      */
     public PhysicsEngine(IODESolver odeSolver, IStoppingCondition stoppingCondition, ICollisionSystem collisionSystem) {
+        this(odeSolver, stoppingCondition, collisionSystem, false);
+    }
+
+    /**
+     * Constructor. Creates a new instance of the physics engine that can find the moment the ball stops.
+     * Before every step, the time at which the speed along the direction of travel reaches zero is calculated
+     * from the current acceleration. If that is within the step, or friction alone would turn the ball around
+     * during the step, the ball is moved to where it stops instead, and static friction decides if it stays
+     * there. The stopping condition is then not used, a ball only stops early if its velocity reverses during
+     * a step.
+     * 
+     * @param odeSolver         The ODE solver to use
+     * @param stoppingCondition The stopping condition to use, and to save with the game
+     * @param collisionSystem   The collision system to use
+     * @param isDetectingStops  {@code true} to find the moment the ball stops
+     */
+    public PhysicsEngine(IODESolver odeSolver, IStoppingCondition stoppingCondition, ICollisionSystem collisionSystem,
+            boolean isDetectingStops) {
         this.odeSolver = odeSolver;
         this.stoppingCondition = stoppingCondition;
         this.collisionSystem = collisionSystem;
+        this.isDetectingStops = isDetectingStops;
+    }
+
+    /**
+     * Creates an engine with the same rules and its own copy of the solver, for use by another thread
+     * 
+     * @return The new engine
+     */
+    public PhysicsEngine copy() {
+        return new PhysicsEngine(odeSolver.copy(), stoppingCondition, collisionSystem, isDetectingStops);
     }
 
     /**
@@ -38,33 +72,208 @@ public class PhysicsEngine {
      * @return ArrayList containing ball positions throughout the shot
      */
     public ArrayList<Vector2> simulateShot(Vector2 initialSpeed, Ball ball, Terrain terrain) {
+        DecimatedTrajectorySink trajectory = new DecimatedTrajectorySink(1);
+        simulateShot(initialSpeed, ball, terrain, trajectory);
+        return trajectory.getPositions();
+    }
+
+    /**
+     * Simulates a shot until the ball stops, passing the positions to a sink
+     * 
+     * @param initialSpeed The initial speed of the ball
+     * @param ball         The ball to shoot
+     * @param terrain      The terrain to shoot the ball on
+     * @param trajectory   The sink receiving the initial position and the position after every step
+     */
+    public void simulateShot(Vector2 initialSpeed, Ball ball, Terrain terrain, ITrajectorySink trajectory) {
+        simulateShot(initialSpeed, ball, terrain, trajectory, null);
+    }
+
+    /**
+     * Simulates a shot until the ball stops or a termination condition ends it, passing the positions to a sink
+     * 
+     * @param initialSpeed The initial speed of the ball
+     * @param ball         The ball to shoot
+     * @param terrain      The terrain to shoot the ball on
+     * @param trajectory   The sink receiving the initial position and the position after every step
+     * @param terminator   The termination conditions checked after every step, or {@code null}
+     */
+    public void simulateShot(Vector2 initialSpeed, Ball ball, Terrain terrain, ITrajectorySink trajectory,
+            ShotTerminator terminator) {
         BallState tempState = ball.state.copy();
-        ArrayList<Vector2> coordinates = new ArrayList<Vector2>();
         tempState.velocity = initialSpeed.copy();
         // Add the initial position
-        coordinates.add(tempState.position.copy());
+        trajectory.reset();
+        trajectory.addPosition(tempState.position.x, tempState.position.y);
+        // Reused every step, so that stepping does not allocate
+        BallState previousState = tempState.copy();
+        double[] stateBuffer = new double[4];
+        double[] acceleration = new double[3];
+        // How much the velocity changed during the last step, unknown before the first one
+        double velocityChange = Double.POSITIVE_INFINITY;
+        int numSteps = 0;
+        int numSavedSteps = 0;
+        boolean isTerminated = false;
 
         while (tempState.velocity.length() != 0) {
             clampVelocity(tempState);
-            BallState previousState = tempState.copy();
-            tempState = odeSolver.calculateNewBallState(tempState, terrain, this);
-
-            boolean shouldSetVelocityToZero = stoppingCondition.shouldStop(tempState, previousState,
-                    odeSolver.getStepSize());
-            if (shouldSetVelocityToZero) {
-                handleStaticFriction(tempState, terrain);
+            copyState(tempState, previousState);
+            double stopTime = isDetectingStops ? getStopTime(tempState, velocityChange, terrain, acceleration) : -1;
+            boolean hasStopped = stopTime >= 0;
+            if (hasStopped) {
+                moveToStop(tempState, stopTime, acceleration[0], acceleration[1]);
+            } else {
+                tempState = calculateNewBallState(tempState, terrain, stateBuffer);
+            }
+            tempState = finishStep(tempState, previousState, ball.radius, terrain, hasStopped);
+            if (isDetectingStops) {
+                velocityChange = getVelocityChange(tempState, previousState);
+            }
+            if (isTerminated) {
+                // Only counting the steps that ending the shot saves
+                numSavedSteps++;
+                continue;
             }
-            tempState = collisionSystem.modifyStateDueToCollisions(tempState, previousState, ball.radius,
-                    terrain);
-            handleBallInWater(tempState, terrain);
+            numSteps++;
             // Store the new position
-            coordinates.add(tempState.position.copy());
+            trajectory.addPosition(tempState.position.x, tempState.position.y);
+
+            if (terminator != null && terminator.shouldTerminate(tempState)) {
+                isTerminated = true;
+                if (!terminator.isMeasuringSavedSteps()) {
+                    break;
+                }
+            }
+        }
+        if (terminator != null) {
+            terminator.recordShot(numSteps, numSavedSteps, isTerminated);
         }
+    }
 
-        return coordinates;
+    /**
+     * Applies everything that happens after the solver advanced the ball: stopping, collisions and water
+     * 
+     * @param tempState     The state calculated by the solver
+     * @param previousState The state before the step
+     * @param radius        The radius of the ball
+     * @param terrain       The terrain the ball is on
+     * @param hasStopped    {@code true} if the ball was moved to where it stops instead of being advanced by the
+     *                      solver
+     * @return The final state of the step, which may be a new object
+     */
+    BallState finishStep(BallState tempState, BallState previousState, double radius, Terrain terrain,
+            boolean hasStopped) {
+        boolean shouldSetVelocityToZero;
+        if (hasStopped) {
+            shouldSetVelocityToZero = true;
+        } else if (isDetectingStops) {
+            // The ball stopped during the step without it being found beforehand, because the acceleration changed
+            shouldSetVelocityToZero = Vector2.dotProduct(tempState.velocity, previousState.velocity) < 0;
+        } else {
+            shouldSetVelocityToZero = stoppingCondition.shouldStop(tempState, previousState, odeSolver.getStepSize());
+        }
+        if (shouldSetVelocityToZero) {
+            handleStaticFriction(tempState, terrain);
+        }
+        tempState = collisionSystem.modifyStateDueToCollisions(tempState, previousState, radius, terrain);
+        handleBallInWater(tempState, terrain);
+        return tempState;
+    }
+
+    /**
+     * Gets the time until the ball stops, if it stops during the next step. The speed along the direction of
+     * travel changes by the acceleration along it, which is taken to stay the same during the step.
+     * A slowing ball that friction alone would turn around during the step is also stopped, because the solver
+     * cannot follow the direction of the friction then and makes the ball creep on instead.
+     * The acceleration is only calculated if the ball is slow compared to how much its velocity changed during
+     * the previous step.
+     * 
+     * @param state          The ball state before the step
+     * @param velocityChange The length of the change of the velocity during the previous step, or infinity
+     * @param terrain        The terrain the ball is on
+     * @param acceleration   Array of at least 3 elements, the first two receive the x- and y-acceleration
+     * @return The time until the ball stops, at most the step size, or -1 if it keeps moving for the whole step
+     */
+    double getStopTime(BallState state, double velocityChange, Terrain terrain, double[] acceleration) {
+        double px = state.position.x;
+        double py = state.position.y;
+        double vx = state.velocity.x;
+        double vy = state.velocity.y;
+        double speed = Math.sqrt(vx * vx + vy * vy);
+        double stepSize = odeSolver.getStepSize();
+        double frictionChange = G * terrain.getKineticFriction(px, py) * stepSize;
+        // Leaves room for the acceleration to double from one step to the next
+        if (speed > 2 * velocityChange + frictionChange) {
+            return -1;
+        }
+        acceleration(px, py, vx, vy, terrain, acceleration);
+        double forwardAcceleration = (acceleration[0] * vx + acceleration[1] * vy) / speed;
+        if (!(forwardAcceleration < 0)) {
+            // Speeding up, or not moving at all
+            return -1;
+        }
+        if (speed > Math.max(-forwardAcceleration * stepSize, frictionChange)) {
+            return -1;
+        }
+        return Math.min(speed / -forwardAcceleration, stepSize);
+    }
+
+    /**
+     * Gets the length of the change of the velocity during a step
+     * 
+     * @param tempState     The state after the step
+     * @param previousState The state before the step
+     * @return The length of the change
+     */
+    double getVelocityChange(BallState tempState, BallState previousState) {
+        double dx = tempState.velocity.x - previousState.velocity.x;
+        double dy = tempState.velocity.y - previousState.velocity.y;
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
-    private void clampVelocity(BallState state) {
+    /**
+     * Moves the ball to where it stops, with the acceleration at the start of the step
+     * 
+     * @param state    The ball state before the step, changed in place
+     * @param stopTime The time until the ball stops
+     * @param ax       The x-acceleration
+     * @param ay       The y-acceleration
+     */
+    void moveToStop(BallState state, double stopTime, double ax, double ay) {
+        state.position.x += state.velocity.x * stopTime + ax * stopTime * stopTime / 2;
+        state.position.y += state.velocity.y * stopTime + ay * stopTime * stopTime / 2;
+        state.velocity.x = 0;
+        state.velocity.y = 0;
+    }
+
+    /**
+     * Advances a state by one step. Solvers working on primitive states update it in place,
+     * any other solver creates a new state.
+     */
+    private BallState calculateNewBallState(BallState state, Terrain terrain, double[] stateBuffer) {
+        if (!(odeSolver instanceof IPrimitiveODESolver)) {
+            return odeSolver.calculateNewBallState(state, terrain, this);
+        }
+        stateBuffer[IPrimitiveODESolver.PX] = state.position.x;
+        stateBuffer[IPrimitiveODESolver.PY] = state.position.y;
+        stateBuffer[IPrimitiveODESolver.VX] = state.velocity.x;
+        stateBuffer[IPrimitiveODESolver.VY] = state.velocity.y;
+        ((IPrimitiveODESolver) odeSolver).step(stateBuffer, terrain, this);
+        state.position.x = stateBuffer[IPrimitiveODESolver.PX];
+        state.position.y = stateBuffer[IPrimitiveODESolver.PY];
+        state.velocity.x = stateBuffer[IPrimitiveODESolver.VX];
+        state.velocity.y = stateBuffer[IPrimitiveODESolver.VY];
+        return state;
+    }
+
+    private void copyState(BallState from, BallState to) {
+        to.position.x = from.position.x;
+        to.position.y = from.position.y;
+        to.velocity.x = from.velocity.x;
+        to.velocity.y = from.velocity.y;
+    }
+
+    void clampVelocity(BallState state) {
         if (state.velocity.length() > Ball.maxSpeed) {
             state.velocity.normalize().scale(Ball.maxSpeed);
         }
@@ -93,10 +302,91 @@ public class PhysicsEngine {
     }
 
     private Vector2 calculateSlope(Vector2 position, Terrain terrain) {
-        return new Vector2(terrain.xDerivativeAt(position), terrain.yDerivativeAt(position));
+        double[] sample = new double[3];
+        terrain.sampleAt(position, sample);
+        return new Vector2(sample[1], sample[2]);
+    }
+
+    /**
+     * Gets an upper bound on the distance the ball can still roll. Friction takes G * friction of kinetic energy
+     * per meter, and the ball gains at most the energy of descending to the lowest height of the terrain.
+     * The push given to a ball that stops on a slope steeper than the static friction is not included, so the
+     * bound only holds on terrains without such slopes.
+     * 
+     * @param speed        The speed of the ball
+     * @param height       The height of the ball
+     * @param lowestHeight The lowest height the ball can reach
+     * @param minFriction  The smallest kinetic friction on the terrain
+     * @return The largest distance, infinity if there is no bound
+     */
+    public double getMaxRemainingDistance(double speed, double height, double lowestHeight, double minFriction) {
+        if (minFriction <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double energy = speed * speed / 2 + G * Math.max(0, height - lowestHeight);
+        return energy / (G * minFriction);
     }
 
     // region Accessor methods
+    /**
+     * Gets the acceleration. The terrain is sampled once for both components.
+     * 
+     * @param state   The ball state to calculate the acceleration for
+     * @param terrain The terrain to calculate the acceleration on
+     * @return The acceleration vector
+     */
+    public Vector2 acceleration(BallState state, Terrain terrain) {
+        double[] acceleration = new double[3];
+        acceleration(state.position.x, state.position.y, state.velocity.x, state.velocity.y, terrain, acceleration);
+        return new Vector2(acceleration[0], acceleration[1]);
+    }
+
+    /**
+     * Gets the acceleration without allocating. The terrain is sampled once for both components.
+     * 
+     * @param px      The x-position of the ball
+     * @param py      The y-position of the ball
+     * @param vx      The x-velocity of the ball
+     * @param vy      The y-velocity of the ball
+     * @param terrain The terrain to calculate the acceleration on
+     * @param out     Array of at least 3 elements, the first two receive the x- and y-acceleration
+     */
+    public void acceleration(double px, double py, double vx, double vy, Terrain terrain, double[] out) {
+        terrain.sampleAt(px, py, out);
+        double slopeX = out[1];
+        double slopeY = out[2];
+        double friction = terrain.getKineticFriction(px, py);
+        out[0] = xAcceleration(vx, vy, slopeX, slopeY, friction);
+        out[1] = yAcceleration(vx, vy, slopeX, slopeY, friction);
+    }
+
+    /**
+     * Gets the accelerations of many balls at once. The terrain is sampled for all of them together,
+     * the results are the same as calling {@link #acceleration(double, double, double, double, Terrain, double[])}
+     * for every ball.
+     * 
+     * @param px      The x-positions of the balls
+     * @param py      The y-positions of the balls
+     * @param vx      The x-velocities of the balls
+     * @param vy      The y-velocities of the balls
+     * @param n       The number of balls, starting at index 0
+     * @param terrain The terrain to calculate the accelerations on
+     * @param sample  Three arrays of at least n elements, receiving the terrain samples
+     * @param ax      Receives the x-accelerations
+     * @param ay      Receives the y-accelerations
+     */
+    public void acceleration(double[] px, double[] py, double[] vx, double[] vy, int n, Terrain terrain,
+            double[][] sample, double[] ax, double[] ay) {
+        terrain.sampleAt(px, py, n, sample);
+        double[] slopeX = sample[1];
+        double[] slopeY = sample[2];
+        for (int i = 0; i < n; i++) {
+            double friction = terrain.getKineticFriction(px[i], py[i]);
+            ax[i] = xAcceleration(vx[i], vy[i], slopeX[i], slopeY[i], friction);
+            ay[i] = yAcceleration(vx[i], vy[i], slopeX[i], slopeY[i], friction);
+        }
+    }
+
     /**
      * Gets the x-acceleration
      * 
@@ -105,29 +395,49 @@ public class PhysicsEngine {
      * @return The x-acceleration value
      */
     public double xAcceleration(BallState state, Terrain terrain) {
-        double friction = terrain.getKineticFriction(state.position);
-        Vector2 slope = new Vector2(
-                terrain.xDerivativeAt(state.position),
-                terrain.yDerivativeAt(state.position));
-        double downHillForce = -G * slope.x;
-        double frictionForce = G * friction * state.velocity.x / state.velocity.length();
-        return (downHillForce - frictionForce);
+        return acceleration(state, terrain).x;
     }
 
     /**
-     * Gets the x-acceleration
+     * Gets the y-acceleration
      * 
      * @param state   The ball state to calculate the acceleration for
      * @param terrain The terrain to calculate the acceleration on
-     * @return The x-acceleration value
+     * @return The y-acceleration value
      */
     public double yAcceleration(BallState state, Terrain terrain) {
-        double friction = terrain.getKineticFriction(state.position);
-        Vector2 slope = new Vector2(
-                terrain.xDerivativeAt(state.position),
-                terrain.yDerivativeAt(state.position));
-        double downHillForce = -G * slope.y;
-        double frictionForce = G * friction * state.velocity.y / state.velocity.length();
+        return acceleration(state, terrain).y;
+    }
+
+    /**
+     * Gets the x-acceleration
+     * 
+     * @param vx       The x-velocity of the ball
+     * @param vy       The y-velocity of the ball
+     * @param slopeX   The x-derivative of the terrain at the position of the ball
+     * @param slopeY   The y-derivative of the terrain at the position of the ball
+     * @param friction The kinetic friction at the position of the ball
+     * @return The x-acceleration value
+     */
+    protected double xAcceleration(double vx, double vy, double slopeX, double slopeY, double friction) {
+        double downHillForce = -G * slopeX;
+        double frictionForce = G * friction * vx / Math.sqrt((vx * vx) + (vy * vy));
+        return (downHillForce - frictionForce);
+    }
+
+    /**
+     * Gets the y-acceleration
+     * 
+     * @param vx       The x-velocity of the ball
+     * @param vy       The y-velocity of the ball
+     * @param slopeX   The x-derivative of the terrain at the position of the ball
+     * @param slopeY   The y-derivative of the terrain at the position of the ball
+     * @param friction The kinetic friction at the position of the ball
+     * @return The y-acceleration value
+     */
+    protected double yAcceleration(double vx, double vy, double slopeX, double slopeY, double friction) {
+        double downHillForce = -G * slopeY;
+        double frictionForce = G * friction * vy / Math.sqrt((vx * vx) + (vy * vy));
         return (downHillForce - frictionForce);
     }
     // endregion
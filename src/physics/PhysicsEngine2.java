@@ -1,11 +1,8 @@
 package physics;
 
-import datastorage.BallState;
-import datastorage.Terrain;
 import physics.collisionsystems.ICollisionSystem;
 import physics.solvers.IODESolver;
 import physics.stoppingconditions.IStoppingCondition;
-import utility.math.Vector2;
 
 public class PhysicsEngine2 extends PhysicsEngine {
     /**
@@ -19,43 +16,70 @@ public class PhysicsEngine2 extends PhysicsEngine {
         super(odeSolver, stoppingCondition, collisionSystem);
     }
 
+    /**
+     * Constructor. Creates a new instance of the physics engine that can find the moment the ball stops
+     *
+     * @param odeSolver         The ODE solver to use
+     * @param stoppingCondition The stopping condition to use, and to save with the game
+     * @param collisionSystem   The collision system to use
+     * @param isDetectingStops  {@code true} to find the moment the ball stops
+     */
+    public PhysicsEngine2(IODESolver odeSolver, IStoppingCondition stoppingCondition, ICollisionSystem collisionSystem,
+            boolean isDetectingStops) {
+        super(odeSolver, stoppingCondition, collisionSystem, isDetectingStops);
+    }
+
+    @Override
+    public PhysicsEngine2 copy() {
+        return new PhysicsEngine2(odeSolver.copy(), stoppingCondition, collisionSystem, isDetectingStops);
+    }
+
+    /**
+     * Friction is weaker on slopes in this model, so the distance the ball can still roll is not bounded
+     * by its energy the way it is in {@link PhysicsEngine}
+     * 
+     * @return Infinity
+     */
+    @Override
+    public double getMaxRemainingDistance(double speed, double height, double lowestHeight, double minFriction) {
+        return Double.POSITIVE_INFINITY;
+    }
+
     /**
      * Gets the x-acceleration
      *
-     * @param state   The ball state to calculate the acceleration for
-     * @param terrain The terrain to calculate the acceleration on
+     * @param vx       The x-velocity of the ball
+     * @param vy       The y-velocity of the ball
+     * @param slopeX   The x-derivative of the terrain at the position of the ball
+     * @param slopeY   The y-derivative of the terrain at the position of the ball
+     * @param friction The kinetic friction at the position of the ball
      * @return The x-acceleration value
      */
     @Override
-    public double xAcceleration(BallState state, Terrain terrain) {
-        double friction = terrain.getKineticFriction(state.position);
-        Vector2 slope = new Vector2(
-                terrain.xDerivativeAt(state.position),
-                terrain.yDerivativeAt(state.position));
-        double downHillForce = -G * slope.x/(1+slope.x*slope.x + slope.y*slope.y);
-        double frictionForce1 = G * friction/Math.sqrt(1+slope.x*slope.x + slope.y*slope.y);
-        double slopeTerm = slope.x*state.velocity.x + slope.y*state.velocity.y;
-        double frictionForce2 = state.velocity.x/Math.sqrt(state.velocity.x*state.velocity.x + state.velocity.y*state.velocity.y + slopeTerm*slopeTerm);
+    protected double xAcceleration(double vx, double vy, double slopeX, double slopeY, double friction) {
+        double downHillForce = -G * slopeX/(1+slopeX*slopeX + slopeY*slopeY);
+        double frictionForce1 = G * friction/Math.sqrt(1+slopeX*slopeX + slopeY*slopeY);
+        double slopeTerm = slopeX*vx + slopeY*vy;
+        double frictionForce2 = vx/Math.sqrt(vx*vx + vy*vy + slopeTerm*slopeTerm);
         return downHillForce - frictionForce1*frictionForce2;
     }
 
     /**
-     * Gets the x-acceleration
+     * Gets the y-acceleration
      *
-     * @param state   The ball state to calculate the acceleration for
-     * @param terrain The terrain to calculate the acceleration on
-     * @return The x-acceleration value
+     * @param vx       The x-velocity of the ball
+     * @param vy       The y-velocity of the ball
+     * @param slopeX   The x-derivative of the terrain at the position of the ball
+     * @param slopeY   The y-derivative of the terrain at the position of the ball
+     * @param friction The kinetic friction at the position of the ball
+     * @return The y-acceleration value
      */
     @Override
-    public double yAcceleration(BallState state, Terrain terrain) {
-        double friction = terrain.getKineticFriction(state.position);
-        Vector2 slope = new Vector2(
-                terrain.xDerivativeAt(state.position),
-                terrain.yDerivativeAt(state.position));
-        double downHillForce = -G * slope.y/(1+slope.x*slope.x + slope.y*slope.y);
-        double frictionForce1 = G * friction/Math.sqrt(1+slope.x*slope.x + slope.y*slope.y);
-        double slopeTerm = slope.x*state.velocity.x + slope.y*state.velocity.y;
-        double frictionForce2 = state.velocity.y/Math.sqrt(state.velocity.x*state.velocity.x + state.velocity.y*state.velocity.y + slopeTerm*slopeTerm);
+    protected double yAcceleration(double vx, double vy, double slopeX, double slopeY, double friction) {
+        double downHillForce = -G * slopeY/(1+slopeX*slopeX + slopeY*slopeY);
+        double frictionForce1 = G * friction/Math.sqrt(1+slopeX*slopeX + slopeY*slopeY);
+        double slopeTerm = slopeX*vx + slopeY*vy;
+        double frictionForce2 = vy/Math.sqrt(vx*vx + vy*vy + slopeTerm*slopeTerm);
         return downHillForce - frictionForce1*frictionForce2;
     }
 }
@@ -0,0 +1,99 @@
+package physics;
+
+import java.util.ArrayList;
+
+import datastorage.Ball;
+import datastorage.BallState;
+import datastorage.Terrain;
+import physics.collisionsystems.StopCollisionSystem;
+import physics.solvers.EulerSolver;
+import physics.solvers.IPrimitiveODESolver;
+import physics.solvers.RungeKutta2Solver;
+import physics.solvers.RungeKutta4Solver;
+import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import utility.BenchmarkTerrains;
+import utility.BenchmarkTimer;
+import utility.math.Vector2;
+
+/**
+ * Measures the bytes allocated per step by the solvers, using the allocation counter of the HotSpot JVM.
+ */
+public class SolverAllocationBenchmark {
+    private final Terrain terrain;
+    private final int numSteps;
+
+    public SolverAllocationBenchmark(Terrain terrain, int numSteps) {
+        this.terrain = terrain;
+        this.numSteps = numSteps;
+    }
+
+    /**
+     * Compares stepping a primitive state in place with the {@code BallState} adapter
+     * @param solver The solver to test
+     * @return A line of csv data: solver, bytes per step and nanoseconds per step for both ways of stepping
+     */
+    public String testSolver(IPrimitiveODESolver solver) {
+        PhysicsEngine engine = new PhysicsEngine(solver, new SmallVelocityStoppingCondition(),
+                new StopCollisionSystem());
+        double[] primitiveResult = measure(() -> {
+            double[] state = new double[] { -3, 0, 1, 0.5 };
+            for (int i = 0; i < numSteps; i++) {
+                solver.step(state, terrain, engine);
+            }
+        });
+        double[] adapterResult = measure(() -> {
+            BallState state = new BallState(new Vector2(-3, 0), new Vector2(1, 0.5));
+            for (int i = 0; i < numSteps; i++) {
+                state = solver.calculateNewBallState(state, terrain, engine);
+            }
+        });
+        System.out.println(solver.getSolverName() + ": in place " + primitiveResult[0] + " bytes/step, "
+                + primitiveResult[1] + " ns/step; adapter " + adapterResult[0] + " bytes/step, " + adapterResult[1]
+                + " ns/step");
+        return solver.getSolverName() + ", " + primitiveResult[0] + ", " + primitiveResult[1] + ", "
+                + adapterResult[0] + ", " + adapterResult[1] + "\n";
+    }
+
+    /**
+     * Measures the bytes allocated per step by whole shots, which also store the trajectory
+     * @return The bytes per step
+     */
+    public double testShots() {
+        PhysicsEngine engine = new PhysicsEngine(new RungeKutta4Solver(0.01), new SmallVelocityStoppingCondition(),
+                new StopCollisionSystem());
+        Ball ball = new Ball(new Vector2(-3, 0), Vector2.zeroVector());
+        int[] totalSteps = new int[1];
+        double[] result = measure(() -> {
+            totalSteps[0] = 0;
+            for (int i = 0; i < 40; i++) {
+                double speed = 1 + i % 5;
+                Vector2 velocity = new Vector2(Math.cos(i * 0.7) * speed, Math.sin(i * 0.7) * speed);
+                ArrayList<Vector2> positions = engine.simulateShot(velocity, ball, terrain);
+                totalSteps[0] += positions.size();
+            }
+        });
+        double bytesPerStep = result[0] * numSteps / totalSteps[0];
+        System.out.println("Shots: " + bytesPerStep + " bytes/step");
+        return bytesPerStep;
+    }
+
+    /**
+     * Runs a piece of code once to warm up and once to measure it
+     * @return The bytes allocated and the nanoseconds taken, per step
+     */
+    private double[] measure(Runnable code) {
+        long[] result = BenchmarkTimer.timeWithAllocations(1, code);
+        return new double[] { (double) result[0] / numSteps, (double) result[1] / numSteps };
+    }
+
+    public static void main(String[] args) {
+        Terrain terrain = BenchmarkTerrains.createBotTesterTerrain();
+        SolverAllocationBenchmark sab = new SolverAllocationBenchmark(terrain, 1000000);
+        String data = "solver, in place bytes/step, in place ns/step, adapter bytes/step, adapter ns/step\n";
+        data += sab.testSolver(new EulerSolver(0.01));
+        data += sab.testSolver(new RungeKutta2Solver(0.01));
+        data += sab.testSolver(new RungeKutta4Solver(0.01));
+        System.out.println(data);
+        sab.testShots();
+    }
+}
@@ -0,0 +1,95 @@
+package physics;
+
+import java.util.Random;
+
+import datastorage.Ball;
+import datastorage.Terrain;
+import physics.collisionsystems.StopCollisionSystem;
+import physics.solvers.RungeKutta4Solver;
+import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import physics.trajectories.FinalPositionSink;
+import utility.BenchmarkTerrains;
+import utility.BenchmarkTimer;
+import utility.math.Vector2;
+
+/**
+ * Compares ending shots with the stopping condition to finding the moment the ball stops, see
+ * {@link PhysicsEngine#isDetectingStops}. Measures the steps per shot, the time per shot and how far the final
+ * positions are from the same shots simulated with a very small step.
+ */
+public class StopDetectionBenchmark {
+    private final Terrain terrain;
+    private final Ball ball;
+    private final Vector2[] shots;
+    private final Vector2[] referencePositions;
+
+    public StopDetectionBenchmark(Terrain terrain, Ball ball, int numShots) {
+        this.terrain = terrain;
+        this.ball = ball;
+        Random random = new Random(0);
+        shots = new Vector2[numShots];
+        for (int i = 0; i < numShots; i++) {
+            shots[i] = new Vector2(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1).normalize()
+                    .scale(random.nextDouble() * Ball.maxSpeed);
+        }
+        // The step is small enough for both ways of stopping to give the same positions
+        PhysicsEngine referenceEngine = new PhysicsEngine(new RungeKutta4Solver(0.0005),
+                new SmallVelocityStoppingCondition(), new StopCollisionSystem());
+        referencePositions = new Vector2[numShots];
+        FinalPositionSink trajectory = new FinalPositionSink();
+        for (int i = 0; i < numShots; i++) {
+            referenceEngine.simulateShot(shots[i], ball, terrain, trajectory);
+            referencePositions[i] = trajectory.getFinalPosition();
+        }
+    }
+
+    /**
+     * Simulates every shot with one step size
+     * @param stepSize         The step size of the solver
+     * @param isDetectingStops {@code true} to find the moment the ball stops, {@code false} to use the stopping
+     *                         condition
+     * @return A line of csv data: step size, stops detected, steps per shot, microseconds per shot,
+     *         mean distance to the reference, largest distance to the reference
+     */
+    public String testStepSize(double stepSize, boolean isDetectingStops) {
+        PhysicsEngine engine = new PhysicsEngine(new RungeKutta4Solver(stepSize),
+                new SmallVelocityStoppingCondition(), new StopCollisionSystem(), isDetectingStops);
+        FinalPositionSink trajectory = new FinalPositionSink();
+        long[] numSteps = new long[1];
+        double[] totalDistance = new double[1];
+        double[] largestDistance = new double[1];
+        double time = BenchmarkTimer.time(3, 1, () -> {
+            numSteps[0] = 0;
+            totalDistance[0] = 0;
+            largestDistance[0] = 0;
+            for (int i = 0; i < shots.length; i++) {
+                engine.simulateShot(shots[i], ball, terrain, trajectory);
+                // The initial position is not a step
+                numSteps[0] += trajectory.getNumPositions() - 1;
+                double distance = trajectory.getFinalPosition().distanceTo(referencePositions[i]);
+                totalDistance[0] += distance;
+                largestDistance[0] = Math.max(largestDistance[0], distance);
+            }
+        });
+        double stepsPerShot = (double) numSteps[0] / shots.length;
+        double timePerShot = time / 1e3 / shots.length;
+        double meanDistance = totalDistance[0] / shots.length;
+        System.out.println("Step size " + stepSize + (isDetectingStops ? " detecting stops: " : " stopping condition: ")
+                + stepsPerShot + " steps/shot, " + timePerShot + " us/shot, mean distance " + meanDistance
+                + ", largest distance " + largestDistance[0]);
+        return stepSize + ", " + isDetectingStops + ", " + stepsPerShot + ", " + timePerShot + ", " + meanDistance
+                + ", " + largestDistance[0] + "\n";
+    }
+
+    public static void main(String[] args) {
+        Terrain terrain = BenchmarkTerrains.createBotTesterTerrain();
+        Ball ball = new Ball(new Vector2(-3, 0), Vector2.zeroVector());
+        StopDetectionBenchmark sdb = new StopDetectionBenchmark(terrain, ball, 300);
+        String data = "step size, stops detected, steps per shot, us per shot, mean distance, largest distance\n";
+        for (double stepSize : new double[] { 0.005, 0.01, 0.02, 0.05, 0.1, 0.2 }) {
+            data += sdb.testStepSize(stepSize, false);
+            data += sdb.testStepSize(stepSize, true);
+        }
+        System.out.println(data);
+    }
+}
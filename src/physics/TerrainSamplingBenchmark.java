@@ -0,0 +1,87 @@
+package physics;
+
+import java.util.ArrayList;
+
+import datastorage.Ball;
+import datastorage.Terrain;
+import physics.collisionsystems.StopCollisionSystem;
+import physics.solvers.RungeKutta4Solver;
+import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import utility.BenchmarkTimer;
+import utility.math.Vector2;
+
+public class TerrainSamplingBenchmark {
+    private final PhysicsEngine engine;
+    private final int numShots;
+
+    public TerrainSamplingBenchmark(int numShots) {
+        this.engine = new PhysicsEngine(new RungeKutta4Solver(0.01), new SmallVelocityStoppingCondition(),
+                new StopCollisionSystem());
+        this.numShots = numShots;
+    }
+
+    /**
+     * Compares the precomputed grid with the terrain function for several grid resolutions
+     * @param function The terrain function
+     * @param cellSizes The distances between grid nodes to test
+     * @return csv data: cell size, height error, x-slope error, y-slope error, shots per second,
+     *         largest distance between the final positions of the grid and the function
+     */
+    public String testTerrain(String function, double[] cellSizes) {
+        String data = "";
+        Terrain terrain = new Terrain(function, 0.2, 0.08, new Vector2(-50, -50), new Vector2(50, 50));
+        terrain.obstacles = new ArrayList<>();
+        ArrayList<Vector2> analyticPositions = new ArrayList<>();
+        double analyticShotsPerSecond = timeShots(terrain, analyticPositions);
+        System.out.println(function + ": terrain function " + analyticShotsPerSecond + " shots/s");
+        data += "function, 0, 0, 0, " + analyticShotsPerSecond + ", 0\n";
+
+        for (double cellSize : cellSizes) {
+            double[] error = terrain.usePrecomputedSampling(cellSize);
+            ArrayList<Vector2> gridPositions = new ArrayList<>();
+            double shotsPerSecond = timeShots(terrain, gridPositions);
+            double maxDistance = 0;
+            for (int i = 0; i < gridPositions.size(); i++) {
+                maxDistance = Math.max(maxDistance, gridPositions.get(i).distanceTo(analyticPositions.get(i)));
+            }
+            System.out.println("    cell size " + cellSize + ": errors h " + error[0] + ", dh/dx " + error[1]
+                    + ", dh/dy " + error[2] + ", " + shotsPerSecond + " shots/s, final positions differ by at most "
+                    + maxDistance);
+            data += cellSize + ", " + error[0] + ", " + error[1] + ", " + error[2] + ", " + shotsPerSecond + ", "
+                    + maxDistance + "\n";
+        }
+        terrain.useAnalyticSampling();
+        return data;
+    }
+
+    /**
+     * Simulates a fan of shots from the starting position used by BotTester
+     * @param terrain The terrain to shoot on
+     * @param finalPositions List that receives the final position of every shot
+     * @return The number of shots simulated per second
+     */
+    private double timeShots(Terrain terrain, ArrayList<Vector2> finalPositions) {
+        Ball ball = new Ball(new Vector2(-3, 0), Vector2.zeroVector());
+        double time = BenchmarkTimer.time(1, 1, () -> {
+            finalPositions.clear();
+            for (int i = 0; i < numShots; i++) {
+                double speed = 1 + i % 5;
+                Vector2 velocity = new Vector2(Math.cos(i * 0.7) * speed, Math.sin(i * 0.7) * speed);
+                ArrayList<Vector2> positions = engine.simulateShot(velocity, ball, terrain);
+                finalPositions.add(positions.get(positions.size() - 1));
+            }
+        });
+        return numShots / (time / 1e9);
+    }
+
+    public static void main(String[] args) {
+        TerrainSamplingBenchmark tsb = new TerrainSamplingBenchmark(100);
+        double[] cellSizes = new double[] { 0.5, 0.25, 0.1 };
+        String data = "cell size, height error, x-slope error, y-slope error, shots/s, final position difference\n";
+        // Terrains used by GameStateLoader, BotTester and EngineTester
+        data += tsb.testTerrain("sin(x+y)", cellSizes);
+        data += tsb.testTerrain("0.4*(0.9-e**(-(x*x+y*y)/8))", cellSizes);
+        data += tsb.testTerrain("e**(-(x*x+y*y)/8)", cellSizes);
+        System.out.println(data);
+    }
+}
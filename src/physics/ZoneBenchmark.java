@@ -0,0 +1,106 @@
+package physics;
+
+import java.util.Random;
+
+import datastorage.Ball;
+import datastorage.Terrain;
+import datastorage.Zone;
+import physics.collisionsystems.StopCollisionSystem;
+import physics.solvers.RungeKutta4Solver;
+import physics.stoppingconditions.SmallVelocityStoppingCondition;
+import utility.BenchmarkTerrains;
+import utility.BenchmarkTimer;
+import utility.math.Vector2;
+
+public class ZoneBenchmark {
+    private final PhysicsEngine engine;
+    private final int numShots;
+
+    public ZoneBenchmark(int numShots) {
+        this.engine = new PhysicsEngine(new RungeKutta4Solver(0.01), new SmallVelocityStoppingCondition(),
+                new StopCollisionSystem());
+        this.numShots = numShots;
+    }
+
+    /**
+     * Measures the cost of a physics step and of a single friction lookup on a terrain with random sand zones
+     * @param terrain The terrain to add the zones to
+     * @param numZones The number of zones
+     * @return A line of csv data: zones, nanoseconds per step, nanoseconds per lookup with the index,
+     *         nanoseconds per lookup scanning all zones
+     */
+    public String testZones(Terrain terrain, int numZones) {
+        Random random = new Random(numZones);
+        Zone[] zones = new Zone[numZones];
+        for (int i = 0; i < numZones; i++) {
+            double x = random.nextDouble() * 100 - 50;
+            double y = random.nextDouble() * 100 - 50;
+            double size = 0.5 + random.nextDouble() * 2.5;
+            zones[i] = new Zone(new Vector2(x, y + size), new Vector2(x + size, y));
+            zones[i].kineticFriction = 0.1 + random.nextDouble() * 0.2;
+        }
+        terrain.zones = zones;
+
+        // Check that the index finds the same zones as scanning them
+        Vector2[] positions = new Vector2[10000];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new Vector2(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50);
+            if (terrain.getKineticFriction(positions[i]) != scanKineticFriction(terrain, positions[i])) {
+                throw new RuntimeException("The zone index disagrees with scanning the zones at " + positions[i]);
+            }
+        }
+
+        double stepTime = timeSteps(terrain);
+        double[] sum = new double[1];
+        double indexTime = BenchmarkTimer.time(20, 20, () -> {
+            for (Vector2 position : positions) {
+                sum[0] += terrain.getKineticFriction(position);
+            }
+        }) / positions.length;
+        double scanTime = BenchmarkTimer.time(20, 20, () -> {
+            for (Vector2 position : positions) {
+                sum[0] += scanKineticFriction(terrain, position);
+            }
+        }) / positions.length;
+        BenchmarkTimer.preventElimination(sum[0]);
+        System.out.println(numZones + " zones: " + stepTime + " ns/step, lookup " + indexTime + " ns (index) vs "
+                + scanTime + " ns (scan)");
+        return numZones + ", " + stepTime + ", " + indexTime + ", " + scanTime + "\n";
+    }
+
+    /**
+     * Finds the kinetic friction the way Terrain used to, by checking every zone
+     */
+    private double scanKineticFriction(Terrain terrain, Vector2 position) {
+        for (Zone zone : terrain.zones) {
+            if (zone.isPositionInside(position)) {
+                return zone.kineticFriction;
+            }
+        }
+        return terrain.kineticFriction;
+    }
+
+    private double timeSteps(Terrain terrain) {
+        Ball ball = new Ball(new Vector2(-3, 0), Vector2.zeroVector());
+        int[] numSteps = new int[1];
+        double time = BenchmarkTimer.time(1, 1, () -> {
+            numSteps[0] = 0;
+            for (int i = 0; i < numShots; i++) {
+                double speed = 1 + i % 5;
+                Vector2 velocity = new Vector2(Math.cos(i * 0.7) * speed, Math.sin(i * 0.7) * speed);
+                numSteps[0] += engine.simulateShot(velocity, ball, terrain).size();
+            }
+        });
+        return time / numSteps[0];
+    }
+
+    public static void main(String[] args) {
+        Terrain terrain = BenchmarkTerrains.createBotTesterTerrain();
+        ZoneBenchmark zb = new ZoneBenchmark(40);
+        String data = "zones, step, lookup (index), lookup (scan)\n";
+        for (int numZones : new int[] { 0, 10, 100, 1000, 10000 }) {
+            data += zb.testZones(terrain, numZones);
+        }
+        System.out.println(data);
+    }
+}
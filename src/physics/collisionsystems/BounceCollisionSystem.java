@@ -4,101 +4,113 @@ import java.util.ArrayList;
 
 import datastorage.*;
 import datastorage.obstacles.IObstacle;
-import utility.CollisionData;
+import utility.SweepResult;
 import utility.UtilityClass;
 import utility.math.Vector2;
 
+/**
+ * Bounces the ball off obstacles and the borders of the map. The movement of a step is checked for the first
+ * contact with an obstacle, the ball bounces off it, and the rest of the movement is checked again, until the
+ * movement ends without a contact or the most bounces per step are reached. The obstacles the ball could hit are
+ * found with the {@link ObstacleIndex} of the terrain, so a step only checks the obstacles near the ball.
+ */
 public class BounceCollisionSystem implements ICollisionSystem {
+    // The most bounces resolved in one step when no other number is given
+    public static final int DEFAULT_MAX_BOUNCES = 8;
+
     public ArrayList<IObstacle> obstacles;
+    private final int maxBounces;
+    // The indices of the obstacles near the ball, and the first contact with them. Copies of an engine share their
+    // collision system, so every thread has its own buffers
+    private final ThreadLocal<int[]> nearbyObstacles = ThreadLocal.withInitial(() -> new int[0]);
+    private final ThreadLocal<SweepResult> contacts = ThreadLocal.withInitial(SweepResult::new);
+
+    /**
+     * Constructor. Creates a collision system resolving up to {@link #DEFAULT_MAX_BOUNCES} bounces per step.
+     */
+    public BounceCollisionSystem() {
+        this(DEFAULT_MAX_BOUNCES);
+    }
+
+    /**
+     * Constructor. Creates a collision system.
+     * @param maxBounces The most bounces resolved in one step. If the ball hits an obstacle again after that, it
+     *                   stays at the contact for the rest of the step
+     */
+    public BounceCollisionSystem(int maxBounces) {
+        if (maxBounces < 1) {
+            throw new RuntimeException("The number of bounces per step must be at least 1");
+        }
+        this.maxBounces = maxBounces;
+    }
 
     public BallState modifyStateDueToCollisions(BallState state, BallState previousState, double ballRadius, Terrain terrain) {
-        Vector2 previousPosition = previousState.position;
         obstacles = terrain.obstacles;
-        double searchRadius = state.position.distanceTo(previousPosition) + ballRadius;
-        ArrayList<IObstacle> collidesWith = getTouchedObstacles(previousPosition, searchRadius);
-        CollisionData collisionData = getClosestCollisionData(collidesWith, state.position, previousPosition,
-                ballRadius);
-        if (collisionData != null) {
-            bounceBall(state, collisionData);
+        ObstacleIndex index = terrain.getObstacleIndex();
+        SweepResult contact = contacts.get();
+        double fromX = previousState.position.x;
+        double fromY = previousState.position.y;
+        double toX = state.position.x;
+        double toY = state.position.y;
+        for (int bounce = 0; findFirstContact(index, fromX, fromY, toX, toY, ballRadius, contact); bounce++) {
+            if (bounce == maxBounces) {
+                // Still hitting obstacles, so the ball stops at the contact instead of going through them
+                toX = contact.positionX;
+                toY = contact.positionY;
+                break;
+            }
+            bounceVelocity(state.velocity, contact);
+            // The rest of the movement is mirrored in the obstacle and slowed down like the velocity
+            double restX = toX - contact.positionX;
+            double restY = toY - contact.positionY;
+            double restIntoObstacle = restX * contact.normalX + restY * contact.normalY;
+            fromX = contact.positionX;
+            fromY = contact.positionY;
+            toX = fromX + (restX - 2 * restIntoObstacle * contact.normalX) * contact.bounciness;
+            toY = fromY + (restY - 2 * restIntoObstacle * contact.normalY) * contact.bounciness;
         }
+        state.position.x = toX;
+        state.position.y = toY;
 
         state.position = handleBallOutOfBounds(state, terrain);
         return state;
     }
 
     /**
-     *
-     * @param position
-     * @return the obstacle that the ball collided with or null if it didn't
+     * Finds the first contact of the ball with an obstacle while moving in a straight line
+     * @param index   The obstacle index of the terrain
+     * @param contact Receives the contact
+     * @return {@code true} if there is a contact
      */
-    private ArrayList<IObstacle> getTouchedObstacles(Vector2 position, double searchRadius) {
-        ArrayList<IObstacle> touchedObstacles = new ArrayList<>();
-        for (IObstacle obstacle : obstacles) {
-            if (obstacle.isBallColliding(position, searchRadius)) {
-                touchedObstacles.add(obstacle);
-            }
+    private boolean findFirstContact(ObstacleIndex index, double fromX, double fromY, double toX, double toY,
+            double ballRadius, SweepResult contact) {
+        int[] found = nearbyObstacles.get();
+        if (found.length < index.getNumObstacles()) {
+            found = new int[index.getNumObstacles()];
+            nearbyObstacles.set(found);
         }
-        return touchedObstacles;
-    }
-
-    private CollisionData getClosestCollisionData(ArrayList<IObstacle> collidesWith, Vector2 currentPosition,
-                                                  Vector2 previousPosition, double ballRadius) {
-        CollisionData closestCollisionData = null;
-        for (IObstacle iObstacle : collidesWith) {
-            if (iObstacle == null) {
-                continue;
-            }
-            CollisionData collisionData = iObstacle.getCollisionData(currentPosition, previousPosition, ballRadius);
-            if (collisionData == null) {
-                continue;
-            }
-            if (closestCollisionData == null) {
-                closestCollisionData = collisionData;
-                continue;
-            }
-            boolean foundACloserCollision = previousPosition
-                    .distanceTo(closestCollisionData.collisionPosition) > previousPosition
-                    .distanceTo(collisionData.collisionPosition);
-            if (foundACloserCollision) {
-                closestCollisionData = collisionData;
+        int numFound = index.findObstacles(Math.min(fromX, toX) - ballRadius, Math.min(fromY, toY) - ballRadius,
+                Math.max(fromX, toX) + ballRadius, Math.max(fromY, toY) + ballRadius, found);
+        contact.reset();
+        for (int i = 0; i < numFound; i++) {
+            IObstacle obstacle = index.getObstacle(found[i]);
+            if (obstacle != null) {
+                obstacle.sweepBall(fromX, fromY, toX, toY, ballRadius, contact);
             }
         }
-        return closestCollisionData;
+        return contact.hasContact();
     }
 
-    private void bounceBall(BallState state, CollisionData collisionData) {
-        calculateVelocityAfterCollision(state, collisionData);
-        calculatePositionAfterCollision(state, collisionData);
-    }
-
-    private void calculateVelocityAfterCollision(BallState state, CollisionData collisionData) {
-        state.velocity.reflect(collisionData.collisionNormal);
+    private void bounceVelocity(Vector2 velocity, SweepResult contact) {
+        double intoObstacle = velocity.x * contact.normalX + velocity.y * contact.normalY;
+        // A velocity already pointing away from the obstacle is not reflected back into it
+        if (intoObstacle < 0) {
+            velocity.x -= 2 * intoObstacle * contact.normalX;
+            velocity.y -= 2 * intoObstacle * contact.normalY;
+        }
         // For eg. if bounciness equals 0.8, the returned velocity vector will be 20%
         // shorter
-        state.velocity.scale(collisionData.bounciness);
-    }
-
-    private void calculatePositionAfterCollision(BallState state, CollisionData collisionData) {
-        // Calculation variables
-        Vector2 collisionPositionMinusRadius = countCollisionPositionMinusRadius(state, collisionData);
-        double moveDistanceAfterCollision = state.position.distanceTo(collisionPositionMinusRadius);
-        Vector2 moveVectorAfterCollision = state.velocity.normalized().scale(moveDistanceAfterCollision);
-
-        // Calculating the new position
-        Vector2 positionAfterCollision = collisionPositionMinusRadius.translated(moveVectorAfterCollision);
-        state.position = positionAfterCollision;
-    }
-
-    private Vector2 countCollisionPositionMinusRadius(BallState state, CollisionData collisionData) {
-        Vector2 collisionPos = collisionData.collisionPosition;
-        Vector2 translationByRadius = collisionData.collisionNormal.normalized().scale(collisionData.ballRadius);
-
-        Vector2 fromPreviousToCurrentPos = collisionData.previousPosition.deltaPositionTo(state.position);
-        double dot = Vector2.dotProduct(fromPreviousToCurrentPos, collisionData.collisionNormal);
-        if (dot < 0) {
-            return collisionPos.translated(translationByRadius);
-        }
-        return collisionPos.translated(translationByRadius.reverse());
+        velocity.scale(contact.bounciness);
     }
 
     private Vector2 handleBallOutOfBounds(BallState state, Terrain terrain) {
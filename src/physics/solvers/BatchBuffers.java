@@ -0,0 +1,43 @@
+package physics.solvers;
+
+/**
+ * The scratch arrays of a batch step, grown when a larger batch is stepped.
+ */
+class BatchBuffers {
+    // The state a stage is evaluated at
+    double[] px = new double[0];
+    double[] py = new double[0];
+    double[] vx = new double[0];
+    double[] vy = new double[0];
+    // The weighted sums of the derivatives of the stages
+    double[] sumPX = new double[0];
+    double[] sumPY = new double[0];
+    double[] sumVX = new double[0];
+    double[] sumVY = new double[0];
+    // The accelerations calculated by the engine
+    double[] ax = new double[0];
+    double[] ay = new double[0];
+    // The terrain samples
+    double[][] sample = new double[3][0];
+
+    /**
+     * Makes sure that every array holds at least n elements
+     */
+    void ensureCapacity(int n) {
+        if (px.length >= n) {
+            return;
+        }
+        int capacity = Math.max(n, px.length * 2);
+        px = new double[capacity];
+        py = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        sumPX = new double[capacity];
+        sumPY = new double[capacity];
+        sumVX = new double[capacity];
+        sumVY = new double[capacity];
+        ax = new double[capacity];
+        ay = new double[capacity];
+        sample = new double[3][capacity];
+    }
+}
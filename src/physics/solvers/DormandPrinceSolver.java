@@ -0,0 +1,211 @@
+package physics.solvers;
+
+import datastorage.Terrain;
+import physics.PhysicsEngine;
+
+/**
+ * The Dormand-Prince RK45 method with adaptive step sizes. Every step compares a 5th and a 4th order solution,
+ * and the step size is changed so that their difference stays within the tolerances.
+ * Steps whose error is too large are repeated with a smaller step size.
+ * <p>
+ * The step size given to the constructor is only used for the first step and as the velocity threshold of the
+ * stopping conditions, so shots stop at the same speed as with the fixed step solvers.
+ * The step sizes actually taken are given by {@link #getLastStepSize()}.
+ */
+public class DormandPrinceSolver implements IPrimitiveODESolver {
+    // Coefficients of the Butcher tableau. The last row also holds the weights of the 5th order solution
+    private static final double[][] A = {
+            {},
+            { 1.0 / 5 },
+            { 3.0 / 40, 9.0 / 40 },
+            { 44.0 / 45, -56.0 / 15, 32.0 / 9 },
+            { 19372.0 / 6561, -25360.0 / 2187, 64448.0 / 6561, -212.0 / 729 },
+            { 9017.0 / 3168, -355.0 / 33, 46732.0 / 5247, 49.0 / 176, -5103.0 / 18656 },
+            { 35.0 / 384, 0, 500.0 / 1113, 125.0 / 192, -2187.0 / 6784, 11.0 / 84 } };
+    // Differences between the weights of the 5th and the 4th order solution
+    private static final double[] E = { 71.0 / 57600, 0, -71.0 / 16695, 71.0 / 1920, -17253.0 / 339200, 22.0 / 525,
+            -1.0 / 40 };
+    private static final int NUM_STAGES = 7;
+
+    // Limits on how much the step size changes after a step
+    private static final double SAFETY_FACTOR = 0.9;
+    private static final double MIN_SCALE = 0.2;
+    private static final double MAX_SCALE = 5;
+    // Limits on the step size, relative to the initial step size
+    private static final double MIN_STEP_FACTOR = 1e-3;
+    private static final double MAX_STEP_FACTOR = 10;
+
+    private double h; // The initial step size
+    private double nextStep; // The step size the next step tries first
+    private double lastStep; // The step size of the last accepted step
+    private double stepLimit = Double.POSITIVE_INFINITY; // The largest step size allowed for the next step only
+    private final double absoluteTolerance;
+    private final double relativeTolerance;
+    private int numRejectedSteps;
+
+    // The derivatives {vx, vy, ax, ay} of every stage
+    private final double[][] k = new double[NUM_STAGES][4];
+    private final double[] stageState = new double[4];
+    private final double[] newState = new double[4];
+    // Receives the accelerations calculated by the engine
+    private final double[] acceleration = new double[3];
+    // The state the last stage was evaluated at. The last stage of a step is the first stage of the next one,
+    // unless the state was changed in between, for example by a collision
+    private final double[] lastStageState = new double[4];
+    private boolean isLastStageValid = false;
+
+    /**
+     * Constructor. Creates a new adaptive solver.
+     *
+     * @param h                 The step size of the first step
+     * @param absoluteTolerance The largest error allowed per step, in meters for positions and m/s for velocities
+     * @param relativeTolerance The largest error allowed per step, relative to the size of the values
+     */
+    public DormandPrinceSolver(double h, double absoluteTolerance, double relativeTolerance) {
+        if (absoluteTolerance <= 0 && relativeTolerance <= 0) {
+            throw new RuntimeException("At least one of the tolerances must be positive");
+        }
+        this.absoluteTolerance = Math.max(0, absoluteTolerance);
+        this.relativeTolerance = Math.max(0, relativeTolerance);
+        setStepSize(h);
+    }
+
+    @Override
+    public void step(double[] state, Terrain terrain, PhysicsEngine engine) {
+        double minStep = h * MIN_STEP_FACTOR;
+        double maxStep = h * MAX_STEP_FACTOR;
+        double limit = stepLimit;
+        stepLimit = Double.POSITIVE_INFINITY;
+        if (!isLastStageValid || !isSameState(state, lastStageState)) {
+            derivative(state, terrain, engine, k[0]);
+        } else {
+            System.arraycopy(k[NUM_STAGES - 1], 0, k[0], 0, 4);
+        }
+
+        while (true) {
+            double step = Math.min(nextStep, limit);
+            // Calculate the stages
+            for (int stage = 1; stage < NUM_STAGES; stage++) {
+                for (int i = 0; i < 4; i++) {
+                    double sum = 0;
+                    for (int j = 0; j < stage; j++) {
+                        sum += A[stage][j] * k[j][i];
+                    }
+                    stageState[i] = state[i] + step * sum;
+                }
+                derivative(stageState, terrain, engine, k[stage]);
+            }
+            // The last stage was evaluated at the 5th order solution
+            System.arraycopy(stageState, 0, newState, 0, 4);
+
+            double error = calculateError(state, newState, step);
+            // Scale the step size by the usual error ~ h^5 estimate
+            double scale = error == 0 ? MAX_SCALE : SAFETY_FACTOR * Math.pow(error, -0.2);
+            scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+
+            if (error <= 1 || step <= minStep) {
+                // Accept the step
+                lastStep = step;
+                nextStep = Math.max(minStep, Math.min(maxStep, step * scale));
+                System.arraycopy(newState, 0, state, 0, 4);
+                System.arraycopy(newState, 0, lastStageState, 0, 4);
+                isLastStageValid = true;
+                return;
+            }
+            // Reject the step and try again with a smaller one
+            numRejectedSteps++;
+            nextStep = Math.max(minStep, step * Math.min(1, scale));
+        }
+    }
+
+    /**
+     * Gets the error of a step relative to the tolerances
+     * @return The root mean square of the scaled error, the step is accepted if it is at most 1
+     */
+    private double calculateError(double[] state, double[] newState, double step) {
+        double sum = 0;
+        for (int i = 0; i < 4; i++) {
+            double error = 0;
+            for (int stage = 0; stage < NUM_STAGES; stage++) {
+                error += E[stage] * k[stage][i];
+            }
+            error *= step;
+            double tolerance = absoluteTolerance
+                    + relativeTolerance * Math.max(Math.abs(state[i]), Math.abs(newState[i]));
+            sum += (error / tolerance) * (error / tolerance);
+        }
+        return Math.sqrt(sum / 4);
+    }
+
+    /**
+     * Gets the derivative of a state
+     * @param out Receives {vx, vy, ax, ay}
+     */
+    private void derivative(double[] state, Terrain terrain, PhysicsEngine engine, double[] out) {
+        engine.acceleration(state[PX], state[PY], state[VX], state[VY], terrain, acceleration);
+        out[0] = state[VX];
+        out[1] = state[VY];
+        out[2] = acceleration[0];
+        out[3] = acceleration[1];
+    }
+
+    private boolean isSameState(double[] a, double[] b) {
+        return a[PX] == b[PX] && a[PY] == b[PY] && a[VX] == b[VX] && a[VY] == b[VY];
+    }
+
+    /**
+     * Gets the initial step size, which is also the velocity threshold used by the stopping conditions
+     */
+    @Override
+    public double getStepSize() {
+        return h;
+    }
+
+    /**
+     * Sets the initial step size and restarts the step size control
+     */
+    @Override
+    public void setStepSize(double h) {
+        this.h = h;
+        this.nextStep = h;
+        this.lastStep = h;
+        this.isLastStageValid = false;
+    }
+
+    /**
+     * Limits the size of the next step, for example to stop exactly at a given time
+     * @param maxStep The largest step size allowed for the next step
+     */
+    public void limitNextStep(double maxStep) {
+        stepLimit = maxStep;
+    }
+
+    public double getLastStepSize() {
+        return lastStep;
+    }
+
+    public double getAbsoluteTolerance() {
+        return absoluteTolerance;
+    }
+
+    public double getRelativeTolerance() {
+        return relativeTolerance;
+    }
+
+    /**
+     * Gets the number of steps that were repeated because their error was too large
+     */
+    public int getNumRejectedSteps() {
+        return numRejectedSteps;
+    }
+
+    @Override
+    public DormandPrinceSolver copy() {
+        return new DormandPrinceSolver(h, absoluteTolerance, relativeTolerance);
+    }
+
+    @Override
+    public String getSolverName() {
+        return "RK45";
+    }
+}
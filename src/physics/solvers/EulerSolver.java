@@ -1,31 +1,47 @@
 package physics.solvers;
 
-import datastorage.BallState;
 import datastorage.Terrain;
 import physics.PhysicsEngine;
-import utility.math.Vector2;
 
-public class EulerSolver implements IODESolver {
+public class EulerSolver implements IBatchODESolver {
 
     private double h; // The step size to use
+    // Receives the acceleration calculated by the engine
+    private final double[] acceleration = new double[3];
+    private final BatchBuffers buffers = new BatchBuffers();
 
     public EulerSolver(double h) {
         setStepSize(h);
     }
 
     @Override
-    public BallState calculateNewBallState(BallState state, Terrain terrain, PhysicsEngine engine) {
-        BallState newState = state.copy();
+    public void step(double[] state, Terrain terrain, PhysicsEngine engine) {
+        double px = state[PX], py = state[PY], vx = state[VX], vy = state[VY];
+        // Calculate the acceleration
+        engine.acceleration(px, py, vx, vy, terrain, acceleration);
         // Update the position
-        newState.position.translate(state.velocity.scaled(h));
+        state[PX] = px + vx * h;
+        state[PY] = py + vy * h;
         // Update the velocity
-        // Calculate the acceleration
-        Vector2 acceleration = new Vector2(
-                engine.xAcceleration(state, terrain),
-                engine.yAcceleration(state, terrain)
-        );
-        newState.velocity.translate(acceleration.scaled(h));
-        return newState;
+        state[VX] = vx + acceleration[0] * h;
+        state[VY] = vy + acceleration[1] * h;
+    }
+
+    @Override
+    public void stepBatch(double[] px, double[] py, double[] vx, double[] vy, int n, Terrain terrain,
+            PhysicsEngine engine) {
+        buffers.ensureCapacity(n);
+        double[] ax = buffers.ax, ay = buffers.ay;
+        // Calculate the accelerations
+        engine.acceleration(px, py, vx, vy, n, terrain, buffers.sample, ax, ay);
+        for (int i = 0; i < n; i++) {
+            // Update the position
+            px[i] = px[i] + vx[i] * h;
+            py[i] = py[i] + vy[i] * h;
+            // Update the velocity
+            vx[i] = vx[i] + ax[i] * h;
+            vy[i] = vy[i] + ay[i] * h;
+        }
     }
 
     @Override
@@ -38,6 +54,11 @@ public class EulerSolver implements IODESolver {
         this.h = h;
     }
 
+    @Override
+    public EulerSolver copy() {
+        return new EulerSolver(h);
+    }
+
     @Override
     public String getSolverName() {
         return "Euler";
@@ -0,0 +1,24 @@
+package physics.solvers;
+
+import datastorage.Terrain;
+import physics.PhysicsEngine;
+
+/**
+ * An ODE solver that can also advance many balls at once, stored as one array per component.
+ * Every stage of the method is calculated for all the balls before the next one, so the terrain is sampled
+ * for all of them together. The new states are the same as those of stepping every ball on its own.
+ */
+public interface IBatchODESolver extends IPrimitiveODESolver {
+    /**
+     * Advances many states by one step, in place
+     * @param px      The x-positions
+     * @param py      The y-positions
+     * @param vx      The x-velocities
+     * @param vy      The y-velocities
+     * @param n       The number of states, starting at index 0
+     * @param terrain The terrain the balls are on
+     * @param engine  The engine calculating the accelerations
+     */
+    public void stepBatch(double[] px, double[] py, double[] vx, double[] vy, int n, Terrain terrain,
+            PhysicsEngine engine);
+}
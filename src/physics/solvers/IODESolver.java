@@ -9,4 +9,11 @@ public interface IODESolver {
     public double getStepSize();
     public void setStepSize(double h);
     public String getSolverName();
+
+    /**
+     * Creates a solver with the same settings. Solvers keep scratch state between steps,
+     * so every thread simulating shots needs its own copy.
+     * @return The new solver
+     */
+    public IODESolver copy();
 }
@@ -0,0 +1,36 @@
+package physics.solvers;
+
+import datastorage.BallState;
+import datastorage.Terrain;
+import physics.PhysicsEngine;
+import utility.math.Vector2;
+
+/**
+ * An ODE solver that advances a ball state stored as four doubles, in place.
+ * Solvers keep their intermediate values in fields or scratch arrays they own, so a step does not allocate.
+ * This also means that one solver instance must not be used by several threads at once.
+ * {@link #calculateNewBallState(BallState, Terrain, PhysicsEngine)} is kept as an adapter for code using
+ * {@code BallState}s.
+ */
+public interface IPrimitiveODESolver extends IODESolver {
+    // Indices of the state buffer
+    public static final int PX = 0;
+    public static final int PY = 1;
+    public static final int VX = 2;
+    public static final int VY = 3;
+
+    /**
+     * Advances a state by one step
+     * @param state   The position and the velocity {px, py, vx, vy}, overwritten with the new state
+     * @param terrain The terrain the ball is on
+     * @param engine  The engine calculating the acceleration
+     */
+    public void step(double[] state, Terrain terrain, PhysicsEngine engine);
+
+    @Override
+    public default BallState calculateNewBallState(BallState state, Terrain terrain, PhysicsEngine engine) {
+        double[] buffer = new double[] { state.position.x, state.position.y, state.velocity.x, state.velocity.y };
+        step(buffer, terrain, engine);
+        return new BallState(new Vector2(buffer[PX], buffer[PY]), new Vector2(buffer[VX], buffer[VY]));
+    }
+}
@@ -1,45 +1,64 @@
 package physics.solvers;
 
-import datastorage.BallState;
 import datastorage.Terrain;
 import physics.PhysicsEngine;
-import utility.math.Vector2;
 
-public class RungeKutta2Solver implements IODESolver {
+public class RungeKutta2Solver implements IBatchODESolver {
     private double h;
+    // Receives the accelerations calculated by the engine
+    private final double[] acceleration = new double[3];
+    private final BatchBuffers buffers = new BatchBuffers();
 
     public RungeKutta2Solver(double h) {
         setStepSize(h);
     }
 
     @Override
-    public BallState calculateNewBallState(BallState state, Terrain terrain, PhysicsEngine engine) {
-        Vector2 k1Velocity, k1Acceleration; BallState k1State;
-        Vector2 k2Velocity, k2Acceleration; BallState k2State;
-
-        k1State = state.copy();
-        k1Velocity = k1State.velocity.copy();
-        k1Acceleration = new Vector2(
-                engine.xAcceleration(k1State, terrain),
-                engine.yAcceleration(k1State, terrain)
-        );
-
-        k2State = state.copy();
-        k2State.position.translate(k1Velocity.scaled(2*h/3));
-        k2State.velocity.translate(k1Acceleration.scaled(2*h/3));
-        k2Velocity = k2State.velocity;
-        k2Acceleration = new Vector2(
-                engine.xAcceleration(k2State, terrain),
-                engine.yAcceleration(k2State, terrain)
-        );
-
-        BallState newState = state.copy();
-        Vector2 positionUpdate = k1Velocity.translated(k2Velocity.scaled(3)).scaled(h/4);
-        Vector2 velocityUpdate = k1Acceleration.translated(k2Acceleration.scaled(3)).scaled(h/4);
-        newState.position.translate(positionUpdate);
-        newState.velocity.translate(velocityUpdate);
-
-        return newState;
+    public void step(double[] state, Terrain terrain, PhysicsEngine engine) {
+        double px = state[PX], py = state[PY], vx = state[VX], vy = state[VY];
+
+        double k1VelocityX = vx, k1VelocityY = vy;
+        engine.acceleration(px, py, vx, vy, terrain, acceleration);
+        double k1AccelerationX = acceleration[0], k1AccelerationY = acceleration[1];
+
+        double k2VelocityX = vx + k1AccelerationX * (2*h/3), k2VelocityY = vy + k1AccelerationY * (2*h/3);
+        engine.acceleration(px + k1VelocityX * (2*h/3), py + k1VelocityY * (2*h/3), k2VelocityX, k2VelocityY,
+                terrain, acceleration);
+        double k2AccelerationX = acceleration[0], k2AccelerationY = acceleration[1];
+
+        state[PX] = px + (k1VelocityX + k2VelocityX * 3) * (h/4);
+        state[PY] = py + (k1VelocityY + k2VelocityY * 3) * (h/4);
+        state[VX] = vx + (k1AccelerationX + k2AccelerationX * 3) * (h/4);
+        state[VY] = vy + (k1AccelerationY + k2AccelerationY * 3) * (h/4);
+    }
+
+    @Override
+    public void stepBatch(double[] px, double[] py, double[] vx, double[] vy, int n, Terrain terrain,
+            PhysicsEngine engine) {
+        buffers.ensureCapacity(n);
+        BatchBuffers b = buffers;
+
+        // k1, evaluated at the states themselves
+        engine.acceleration(px, py, vx, vy, n, terrain, b.sample, b.ax, b.ay);
+        for (int i = 0; i < n; i++) {
+            b.sumPX[i] = vx[i];
+            b.sumPY[i] = vy[i];
+            b.sumVX[i] = b.ax[i];
+            b.sumVY[i] = b.ay[i];
+            b.px[i] = px[i] + vx[i] * (2*h/3);
+            b.py[i] = py[i] + vy[i] * (2*h/3);
+            b.vx[i] = vx[i] + b.ax[i] * (2*h/3);
+            b.vy[i] = vy[i] + b.ay[i] * (2*h/3);
+        }
+
+        // k2
+        engine.acceleration(b.px, b.py, b.vx, b.vy, n, terrain, b.sample, b.ax, b.ay);
+        for (int i = 0; i < n; i++) {
+            px[i] = px[i] + (b.sumPX[i] + b.vx[i] * 3) * (h/4);
+            py[i] = py[i] + (b.sumPY[i] + b.vy[i] * 3) * (h/4);
+            vx[i] = vx[i] + (b.sumVX[i] + b.ax[i] * 3) * (h/4);
+            vy[i] = vy[i] + (b.sumVY[i] + b.ay[i] * 3) * (h/4);
+        }
     }
 
     @Override
@@ -52,6 +71,11 @@ public class RungeKutta2Solver implements IODESolver {
         this.h = h;
     }
     
+    @Override
+    public RungeKutta2Solver copy() {
+        return new RungeKutta2Solver(h);
+    }
+
     @Override
     public String getSolverName() {
         return "RK2";
@@ -1,65 +1,104 @@
 package physics.solvers;
 
-import datastorage.BallState;
 import datastorage.Terrain;
 import physics.PhysicsEngine;
-import utility.math.Vector2;
 
-public class RungeKutta4Solver implements IODESolver {
+public class RungeKutta4Solver implements IBatchODESolver {
     private double h;
+    // Receives the accelerations calculated by the engine
+    private final double[] acceleration = new double[3];
+    private final BatchBuffers buffers = new BatchBuffers();
 
     public RungeKutta4Solver(double h) {
         setStepSize(h);
     }
 
     @Override
-    public BallState calculateNewBallState(BallState state, Terrain terrain, PhysicsEngine engine) {
-        Vector2 k1Velocity, k1Acceleration; BallState k1State;
-        Vector2 k2Velocity, k2Acceleration; BallState k2State;
-        Vector2 k3Velocity, k3Acceleration; BallState k3State;
-        Vector2 k4Velocity, k4Acceleration; BallState k4State;
-
-        k1State = state.copy();
-        k1Velocity = k1State.velocity.copy();
-        k1Acceleration = new Vector2(
-                engine.xAcceleration(k1State, terrain),
-                engine.yAcceleration(k1State, terrain)
-        );
-
-        k2State = state.copy();
-        k2State.position.translate(k1Velocity.scaled(h/2));
-        k2State.velocity.translate(k1Acceleration.scaled(h/2));
-        k2Velocity = k2State.velocity;
-        k2Acceleration = new Vector2(
-                engine.xAcceleration(k2State, terrain),
-                engine.yAcceleration(k2State, terrain)
-        );
-
-        k3State = state.copy();
-        k3State.position.translate(k2Velocity.scaled(h/2));
-        k3State.velocity.translate(k2Acceleration.scaled(h/2));
-        k3Velocity = k3State.velocity;
-        k3Acceleration = new Vector2(
-                engine.xAcceleration(k3State, terrain),
-                engine.yAcceleration(k3State, terrain)
-        );
-
-        k4State = state.copy();
-        k4State.position.translate(k3Velocity.scaled(h));
-        k4State.velocity.translate(k3Acceleration.scaled(h));
-        k4Velocity = k4State.velocity;
-        k4Acceleration = new Vector2(
-                engine.xAcceleration(k4State, terrain),
-                engine.yAcceleration(k4State, terrain)
-        );
-
-        BallState newState = state.copy();
-        Vector2 positionUpdate = k1Velocity.translated(k2Velocity.scaled(2)).translated(k3Velocity.scaled(2)).translated(k4Velocity).scaled(h/6);
-        Vector2 velocityUpdate = k1Acceleration.translated(k2Acceleration.scaled(2)).translated(k3Acceleration.scaled(2)).translated(k4Acceleration).scaled(h/6);
-        newState.position.translate(positionUpdate);
-        newState.velocity.translate(velocityUpdate);
-
-        return newState;
+    public void step(double[] state, Terrain terrain, PhysicsEngine engine) {
+        double px = state[PX], py = state[PY], vx = state[VX], vy = state[VY];
+
+        double k1VelocityX = vx, k1VelocityY = vy;
+        engine.acceleration(px, py, vx, vy, terrain, acceleration);
+        double k1AccelerationX = acceleration[0], k1AccelerationY = acceleration[1];
+
+        double k2VelocityX = vx + k1AccelerationX * (h/2), k2VelocityY = vy + k1AccelerationY * (h/2);
+        engine.acceleration(px + k1VelocityX * (h/2), py + k1VelocityY * (h/2), k2VelocityX, k2VelocityY, terrain,
+                acceleration);
+        double k2AccelerationX = acceleration[0], k2AccelerationY = acceleration[1];
+
+        double k3VelocityX = vx + k2AccelerationX * (h/2), k3VelocityY = vy + k2AccelerationY * (h/2);
+        engine.acceleration(px + k2VelocityX * (h/2), py + k2VelocityY * (h/2), k3VelocityX, k3VelocityY, terrain,
+                acceleration);
+        double k3AccelerationX = acceleration[0], k3AccelerationY = acceleration[1];
+
+        double k4VelocityX = vx + k3AccelerationX * h, k4VelocityY = vy + k3AccelerationY * h;
+        engine.acceleration(px + k3VelocityX * h, py + k3VelocityY * h, k4VelocityX, k4VelocityY, terrain,
+                acceleration);
+        double k4AccelerationX = acceleration[0], k4AccelerationY = acceleration[1];
+
+        state[PX] = px + (k1VelocityX + k2VelocityX * 2 + k3VelocityX * 2 + k4VelocityX) * (h/6);
+        state[PY] = py + (k1VelocityY + k2VelocityY * 2 + k3VelocityY * 2 + k4VelocityY) * (h/6);
+        state[VX] = vx + (k1AccelerationX + k2AccelerationX * 2 + k3AccelerationX * 2 + k4AccelerationX) * (h/6);
+        state[VY] = vy + (k1AccelerationY + k2AccelerationY * 2 + k3AccelerationY * 2 + k4AccelerationY) * (h/6);
+    }
+
+    /**
+     * Same arithmetic as {@link #step(double[], Terrain, PhysicsEngine)}, with the weighted sums of the stages
+     * added up as the stages are calculated
+     */
+    @Override
+    public void stepBatch(double[] px, double[] py, double[] vx, double[] vy, int n, Terrain terrain,
+            PhysicsEngine engine) {
+        buffers.ensureCapacity(n);
+        BatchBuffers b = buffers;
+
+        // k1, evaluated at the states themselves
+        engine.acceleration(px, py, vx, vy, n, terrain, b.sample, b.ax, b.ay);
+        for (int i = 0; i < n; i++) {
+            b.sumPX[i] = vx[i];
+            b.sumPY[i] = vy[i];
+            b.sumVX[i] = b.ax[i];
+            b.sumVY[i] = b.ay[i];
+            b.px[i] = px[i] + vx[i] * (h/2);
+            b.py[i] = py[i] + vy[i] * (h/2);
+            b.vx[i] = vx[i] + b.ax[i] * (h/2);
+            b.vy[i] = vy[i] + b.ay[i] * (h/2);
+        }
+
+        // k2
+        engine.acceleration(b.px, b.py, b.vx, b.vy, n, terrain, b.sample, b.ax, b.ay);
+        for (int i = 0; i < n; i++) {
+            b.sumPX[i] = b.sumPX[i] + b.vx[i] * 2;
+            b.sumPY[i] = b.sumPY[i] + b.vy[i] * 2;
+            b.sumVX[i] = b.sumVX[i] + b.ax[i] * 2;
+            b.sumVY[i] = b.sumVY[i] + b.ay[i] * 2;
+            b.px[i] = px[i] + b.vx[i] * (h/2);
+            b.py[i] = py[i] + b.vy[i] * (h/2);
+            b.vx[i] = vx[i] + b.ax[i] * (h/2);
+            b.vy[i] = vy[i] + b.ay[i] * (h/2);
+        }
+
+        // k3
+        engine.acceleration(b.px, b.py, b.vx, b.vy, n, terrain, b.sample, b.ax, b.ay);
+        for (int i = 0; i < n; i++) {
+            b.sumPX[i] = b.sumPX[i] + b.vx[i] * 2;
+            b.sumPY[i] = b.sumPY[i] + b.vy[i] * 2;
+            b.sumVX[i] = b.sumVX[i] + b.ax[i] * 2;
+            b.sumVY[i] = b.sumVY[i] + b.ay[i] * 2;
+            b.px[i] = px[i] + b.vx[i] * h;
+            b.py[i] = py[i] + b.vy[i] * h;
+            b.vx[i] = vx[i] + b.ax[i] * h;
+            b.vy[i] = vy[i] + b.ay[i] * h;
+        }
+
+        // k4
+        engine.acceleration(b.px, b.py, b.vx, b.vy, n, terrain, b.sample, b.ax, b.ay);
+        for (int i = 0; i < n; i++) {
+            px[i] = px[i] + (b.sumPX[i] + b.vx[i]) * (h/6);
+            py[i] = py[i] + (b.sumPY[i] + b.vy[i]) * (h/6);
+            vx[i] = vx[i] + (b.sumVX[i] + b.ax[i]) * (h/6);
+            vy[i] = vy[i] + (b.sumVY[i] + b.ay[i]) * (h/6);
+        }
     }
 
     @Override
@@ -72,6 +111,11 @@ public class RungeKutta4Solver implements IODESolver {
         this.h = h;
     }
     
+    @Override
+    public RungeKutta4Solver copy() {
+        return new RungeKutta4Solver(h);
+    }
+
     @Override
     public String getSolverName() {
         // TODO Auto-generated method stub
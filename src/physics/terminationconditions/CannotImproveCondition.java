@@ -0,0 +1,32 @@
+package physics.terminationconditions;
+
+import datastorage.BallState;
+import datastorage.Target;
+
+/**
+ * Ends a shot once its final distance to the target cannot be smaller than the one of the best shot so far.
+ * The distance at that moment is returned as the value of the shot, which is also not smaller,
+ * so a bot looking for the smallest final distance makes the same choices.
+ */
+public class CannotImproveCondition implements ITerminationCondition {
+    private final Target target;
+    private double bestDistance = Double.POSITIVE_INFINITY;
+
+    public CannotImproveCondition(Target target) {
+        this.target = target;
+    }
+
+    @Override
+    public boolean shouldTerminate(BallState state, double maxRemainingDistance) {
+        double distance = state.position.distanceTo(target.position);
+        return distance - maxRemainingDistance >= bestDistance;
+    }
+
+    /**
+     * @param value The final distance to the target of the best shot so far
+     */
+    @Override
+    public void setBestShotValue(double value) {
+        bestDistance = value;
+    }
+}
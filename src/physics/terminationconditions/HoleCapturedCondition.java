@@ -0,0 +1,22 @@
+package physics.terminationconditions;
+
+import datastorage.BallState;
+import datastorage.Target;
+
+/**
+ * Ends a shot once the ball cannot leave the target anymore. The shot then gets the value of the position it
+ * was captured at, not of the position it would have stopped at.
+ */
+public class HoleCapturedCondition implements ITerminationCondition {
+    private final Target target;
+
+    public HoleCapturedCondition(Target target) {
+        this.target = target;
+    }
+
+    @Override
+    public boolean shouldTerminate(BallState state, double maxRemainingDistance) {
+        double distance = state.position.distanceTo(target.position);
+        return distance + maxRemainingDistance <= target.radius;
+    }
+}
@@ -0,0 +1,22 @@
+package physics.terminationconditions;
+
+import datastorage.BallState;
+
+/**
+ * Decides that the outcome of a shot is already known, so the simulation can end before the ball stops
+ */
+public interface ITerminationCondition {
+    /**
+     * @param state                The state of the ball after a step
+     * @param maxRemainingDistance An upper bound on the distance the ball can still roll
+     * @return {@code true} if the rest of the shot does not have to be simulated
+     */
+    public boolean shouldTerminate(BallState state, double maxRemainingDistance);
+
+    /**
+     * Called by bots when they find a better shot
+     * @param value The heuristic value of the best shot so far
+     */
+    public default void setBestShotValue(double value) {
+    }
+}
@@ -0,0 +1,156 @@
+package physics.terminationconditions;
+
+import java.util.ArrayList;
+
+import datastorage.BallState;
+import datastorage.GameState;
+import datastorage.Terrain;
+import datastorage.obstacles.IObstacle;
+import physics.PhysicsEngine;
+
+/**
+ * Checks the termination conditions registered for a search after every step of a shot,
+ * and counts the steps they save. Create one for every search, the bound it uses depends on the
+ * zones and obstacles at that time.
+ */
+public class ShotTerminator {
+    private final ArrayList<ITerminationCondition> conditions = new ArrayList<ITerminationCondition>();
+    private final Terrain terrain;
+    private final PhysicsEngine engine;
+    private final double lowestHeight;
+    private final double minFriction;
+    private final boolean isDistanceBounded;
+    // Receives the height and the slope at the position of the ball
+    private final double[] sample = new double[3];
+
+    private double bestShotValue;
+    private boolean hasBestShotValue = false;
+    // When set, shots keep being simulated after they could have ended to count the saved steps
+    private boolean isMeasuringSavedSteps = false;
+
+    private int numShots;
+    private int numTerminatedShots;
+    private long numSteps;
+    private long numSavedSteps;
+
+    /**
+     * Constructor. Creates a terminator without conditions.
+     * @param gameState The game state the shots are taken in
+     */
+    public ShotTerminator(GameState gameState) {
+        this.terrain = gameState.getTerrain();
+        this.engine = gameState.getPhysicsEngine();
+        // The ball stops in water, so it never gets lower than 0
+        this.lowestHeight = Math.max(0, terrain.lowestHeight);
+        this.minFriction = terrain.getMinKineticFriction();
+        // A bounce that adds energy would break the bound on the remaining distance. So would a ball stopping
+        // on a slope steeper than the static friction, which the engine pushes down the slope
+        boolean isDistanceBounded = terrain.getMaxSlope() <= terrain.getMinStaticFriction();
+        if (terrain.obstacles != null) {
+            for (IObstacle obstacle : terrain.obstacles) {
+                if (obstacle.getBounciness() > 1) {
+                    isDistanceBounded = false;
+                }
+            }
+        }
+        this.isDistanceBounded = isDistanceBounded;
+    }
+
+    public void addCondition(ITerminationCondition condition) {
+        conditions.add(condition);
+    }
+
+    /**
+     * Checks the conditions after a step
+     * @param state The state of the ball
+     * @return {@code true} if any of them ends the shot
+     */
+    public boolean shouldTerminate(BallState state) {
+        if (conditions.isEmpty() || !isDistanceBounded) {
+            return false;
+        }
+        terrain.sampleAt(state.position.x, state.position.y, sample);
+        double maxRemainingDistance = engine.getMaxRemainingDistance(state.velocity.length(), sample[0],
+                lowestHeight, minFriction);
+        for (ITerminationCondition condition : conditions) {
+            if (condition.shouldTerminate(state, maxRemainingDistance)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Passes the value of the best shot so far to the conditions
+     * @param value The heuristic value of the best shot
+     */
+    public void setBestShotValue(double value) {
+        bestShotValue = value;
+        hasBestShotValue = true;
+        for (ITerminationCondition condition : conditions) {
+            condition.setBestShotValue(value);
+        }
+    }
+
+    /**
+     * Counts a simulated shot
+     * @param numSteps      The number of steps that were simulated
+     * @param numSavedSteps The number of steps skipped by ending the shot early, only known while measuring
+     * @param isTerminated  Whether a condition ended the shot
+     */
+    public void recordShot(int numSteps, int numSavedSteps, boolean isTerminated) {
+        numShots++;
+        this.numSteps += numSteps;
+        this.numSavedSteps += numSavedSteps;
+        if (isTerminated) {
+            numTerminatedShots++;
+        }
+    }
+
+    /**
+     * Adds the counts of another terminator, for example one used by another thread
+     * @param other The terminator to add the shots of
+     */
+    public void addCounts(ShotTerminator other) {
+        numShots += other.numShots;
+        numTerminatedShots += other.numTerminatedShots;
+        numSteps += other.numSteps;
+        numSavedSteps += other.numSavedSteps;
+    }
+
+    public boolean hasBestShotValue() {
+        return hasBestShotValue;
+    }
+
+    public double getBestShotValue() {
+        return bestShotValue;
+    }
+
+    public int getNumShots() {
+        return numShots;
+    }
+
+    public int getNumTerminatedShots() {
+        return numTerminatedShots;
+    }
+
+    public long getNumSteps() {
+        return numSteps;
+    }
+
+    public long getNumSavedSteps() {
+        return numSavedSteps;
+    }
+
+    public boolean isMeasuringSavedSteps() {
+        return isMeasuringSavedSteps;
+    }
+
+    /**
+     * Makes the engine finish shots that could have ended early, only counting their steps.
+     * This is slower and meant for testing bots.
+     */
+    public void setMeasuringSavedSteps(boolean isMeasuring) {
+        isMeasuringSavedSteps = isMeasuring;
+    }
+}
@@ -0,0 +1,44 @@
+package physics.trajectories;
+
+import utility.math.Vector2;
+
+/**
+ * Keeps the final position of a shot and how close the ball got to a target
+ */
+public class ClosestApproachSink extends FinalPositionSink {
+    private final Vector2 target;
+    private double closestDistance;
+
+    /**
+     * Constructor. Creates a sink measuring the distance to a target.
+     * @param target The position to measure the distance to
+     */
+    public ClosestApproachSink(Vector2 target) {
+        this.target = target;
+        this.closestDistance = Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        closestDistance = Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public void addPosition(double x, double y) {
+        super.addPosition(x, y);
+        double dx = x - target.x;
+        double dy = y - target.y;
+        double distance = Math.sqrt((dx * dx) + (dy * dy));
+        if (distance < closestDistance) {
+            closestDistance = distance;
+        }
+    }
+
+    /**
+     * Gets the smallest distance between the ball and the target during the shot
+     */
+    public double getClosestDistance() {
+        return closestDistance;
+    }
+}
@@ -0,0 +1,54 @@
+package physics.trajectories;
+
+import java.util.ArrayList;
+
+import utility.math.Vector2;
+
+/**
+ * Stores every n-th position of a shot, and always the first and the final one
+ */
+public class DecimatedTrajectorySink extends FinalPositionSink {
+    private final int interval;
+    private ArrayList<Vector2> positions = new ArrayList<Vector2>();
+    // Whether the final position is in the list
+    private boolean isFinalStored;
+
+    /**
+     * Constructor. Creates a sink storing every n-th position.
+     * @param interval The number of steps between stored positions, 1 stores every position
+     */
+    public DecimatedTrajectorySink(int interval) {
+        if (interval < 1) {
+            throw new RuntimeException("The interval must be at least 1, got " + interval);
+        }
+        this.interval = interval;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        // A new list, the previous one may still be used by the caller
+        positions = new ArrayList<Vector2>();
+    }
+
+    @Override
+    public void addPosition(double x, double y) {
+        isFinalStored = numPositions % interval == 0;
+        if (isFinalStored) {
+            positions.add(new Vector2(x, y));
+        }
+        super.addPosition(x, y);
+    }
+
+    /**
+     * Gets the stored positions of the last shot, ending with its final position
+     * @return The positions
+     */
+    public ArrayList<Vector2> getPositions() {
+        if (!isFinalStored && numPositions > 0) {
+            positions.add(getFinalPosition());
+            isFinalStored = true;
+        }
+        return positions;
+    }
+}
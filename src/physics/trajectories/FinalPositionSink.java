@@ -0,0 +1,44 @@
+package physics.trajectories;
+
+import utility.math.Vector2;
+
+/**
+ * Only keeps the final position of a shot. The other recording sinks extend it,
+ * so the final position is always available.
+ */
+public class FinalPositionSink implements ITrajectorySink {
+    protected double finalX;
+    protected double finalY;
+    protected int numPositions;
+
+    @Override
+    public void reset() {
+        numPositions = 0;
+    }
+
+    @Override
+    public void addPosition(double x, double y) {
+        finalX = x;
+        finalY = y;
+        numPositions++;
+    }
+
+    public double getFinalX() {
+        return finalX;
+    }
+
+    public double getFinalY() {
+        return finalY;
+    }
+
+    public Vector2 getFinalPosition() {
+        return new Vector2(finalX, finalY);
+    }
+
+    /**
+     * Gets the number of positions of the shot, which is the number of steps plus one
+     */
+    public int getNumPositions() {
+        return numPositions;
+    }
+}
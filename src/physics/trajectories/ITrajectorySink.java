@@ -0,0 +1,20 @@
+package physics.trajectories;
+
+/**
+ * Receives the positions of the ball while a shot is simulated, so that the caller decides what is stored.
+ * A lambda can be used to stream the positions, for example to render them.
+ */
+public interface ITrajectorySink {
+    /**
+     * Called once at the start of every shot, before its first position
+     */
+    public default void reset() {
+    }
+
+    /**
+     * Called with the initial position of the ball and with its position after every step
+     * @param x The x-position of the ball
+     * @param y The y-position of the ball
+     */
+    public void addPosition(double x, double y);
+}
@@ -0,0 +1,28 @@
+package physics.trajectories;
+
+import utility.math.Vector2;
+
+/**
+ * What a shot evaluation needs to know about the trajectory, from the cheapest to the most expensive to record
+ */
+public enum TrajectoryMode {
+    FINAL_POSITION,
+    CLOSEST_APPROACH,
+    ALL_POSITIONS;
+
+    /**
+     * Creates a sink recording what this mode needs
+     * @param target The target, used to measure the closest approach
+     * @return The sink
+     */
+    public FinalPositionSink createSink(Vector2 target) {
+        switch (this) {
+            case FINAL_POSITION:
+                return new FinalPositionSink();
+            case CLOSEST_APPROACH:
+                return new ClosestApproachSink(target);
+            default:
+                return new DecimatedTrajectorySink(1);
+        }
+    }
+}
@@ -27,8 +27,11 @@ public class GameStateLoader {
    // region private Variables
    // Singular values
    private static double solverStep;
+   private static double solverAbsoluteTolerance;
+   private static double solverRelativeTolerance;
 
-   private static IODESolver ODEsolver;
+   // The solver is built once the whole file is read, so that its settings may come after it
+   private static String ODEsolverName;
    private static IStoppingCondition stoppingCondition;
    private static ICollisionSystem collisionSystem;
 
@@ -67,6 +70,8 @@ public class GameStateLoader {
 
    // region default variable values
    private final static double defsolverStep = 0.01;
+   private final static double defsolverAbsoluteTolerance = 1e-6;
+   private final static double defsolverRelativeTolerance = 1e-6;
 
    private final static IODESolver defODEsolver = new RungeKutta4Solver(defsolverStep);
    private final static IStoppingCondition defstoppingCondition = new SmallVelocityStoppingCondition();
@@ -119,7 +124,10 @@ public class GameStateLoader {
 
    private static void resetVariables() {
       solverStep = 0;
-      ODEsolver = null;
+      // NaN until set, since a tolerance of 0 is valid
+      solverAbsoluteTolerance = Double.NaN;
+      solverRelativeTolerance = Double.NaN;
+      ODEsolverName = null;
       stoppingCondition = null;
       collisionSystem = null;
 
@@ -214,8 +222,14 @@ public class GameStateLoader {
       if (lineContainsKeywordAndEqualSign(line, "solverStep")) {
          solverStep = readDouble(line);
       }
+      if (lineContainsKeywordAndEqualSign(line, "solverAbsoluteTolerance")) {
+         solverAbsoluteTolerance = readDouble(line);
+      }
+      if (lineContainsKeywordAndEqualSign(line, "solverRelativeTolerance")) {
+         solverRelativeTolerance = readDouble(line);
+      }
       if (lineContainsKeywordAndEqualSign(line, "ODEsolver")) {
-         ODEsolver = readSolver(line);
+         ODEsolverName = readString(line);
       }
       if (lineContainsKeywordAndEqualSign(line, "stoppingCondition")) {
          stoppingCondition = readStoppingCondition(line);
@@ -317,20 +331,16 @@ public class GameStateLoader {
    }
 
    // region Read Objects
-   private static IODESolver readSolver(String line) {
-      try {
-         String name = line.substring(line.lastIndexOf("=") + 1);
-         return getSolverFromName(name);
-      } catch (IndexOutOfBoundsException e) {
-         System.out.println("There was nothing after the = sign");
-         return defODEsolver;
-      }
-   }
-
    private static IODESolver getSolverFromName(String name) {
       if (solverStep == 0) {
          solverStep = defsolverStep;
       }
+      if (Double.isNaN(solverAbsoluteTolerance)) {
+         solverAbsoluteTolerance = defsolverAbsoluteTolerance;
+      }
+      if (Double.isNaN(solverRelativeTolerance)) {
+         solverRelativeTolerance = defsolverRelativeTolerance;
+      }
 
       if (name.contains("Euler")) {
          return new EulerSolver(solverStep);
@@ -338,6 +348,10 @@ public class GameStateLoader {
       if (name.contains("RK2")) {
          return new RungeKutta2Solver(solverStep);
       }
+      // Checked before RK4, which it contains
+      if (name.contains("RK45")) {
+         return new DormandPrinceSolver(solverStep, solverAbsoluteTolerance, solverRelativeTolerance);
+      }
       if (name.contains("RK4")) {
          return new RungeKutta4Solver(solverStep);
       } else {
@@ -744,10 +758,10 @@ public class GameStateLoader {
       IStoppingCondition savedCondition;
       ICollisionSystem savedCollisionSystem;
 
-      if (ODEsolver == null) {
+      if (ODEsolverName == null) {
          savedSolver = defODEsolver;
       } else {
-         savedSolver = ODEsolver;
+         savedSolver = getSolverFromName(ODEsolverName);
       }
       if (stoppingCondition == null) {
          savedCondition = defstoppingCondition;
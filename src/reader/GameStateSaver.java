@@ -8,6 +8,7 @@ import datastorage.obstacles.ObstacleBox;
 import datastorage.obstacles.ObstacleTree;
 import datastorage.obstacles.ObstacleWall;
 import physics.*;
+import physics.solvers.DormandPrinceSolver;
 
 public class GameStateSaver {
 
@@ -59,6 +60,11 @@ public class GameStateSaver {
 
    private static void savePhysicsEngine(PhysicsEngine physicsEngine) {
       printWriter.println("solverStep = " + physicsEngine.odeSolver.getStepSize() + delimiter);
+      if (physicsEngine.odeSolver instanceof DormandPrinceSolver) {
+         DormandPrinceSolver solver = (DormandPrinceSolver) physicsEngine.odeSolver;
+         printWriter.println("solverAbsoluteTolerance = " + solver.getAbsoluteTolerance() + delimiter);
+         printWriter.println("solverRelativeTolerance = " + solver.getRelativeTolerance() + delimiter);
+      }
       printWriter.println("ODEsolver = " + physicsEngine.odeSolver.getSolverName() + delimiter);
       printWriter.println("stoppingCondition = " + physicsEngine.stoppingCondition.getConditionName() + delimiter);
       printWriter.println("collisionSystem = " + physicsEngine.collisionSystem.getName() + delimiter);
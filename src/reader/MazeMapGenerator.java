@@ -25,12 +25,28 @@ public class MazeMapGenerator {
      * @param mazeGrid a rectuangular grid with {@code true} signifying path and
      *                 {@code false} values signifying obstacles
      * @return a Terrain object with obstacles that form a maze specified in the
-     *         {@code mazeGrid}
+     *         {@code mazeGrid}, with neighbouring obstacle squares merged into larger boxes
      */
     public static Terrain getMazeTerrain(boolean[][] mazeGrid, Vector2 mapSize) {
+        return getMazeTerrain(mazeGrid, mapSize, true);
+    }
+
+    /**
+     * @param mazeGrid   a rectuangular grid with {@code true} signifying path and
+     *                   {@code false} values signifying obstacles
+     * @param mergeBoxes whether neighbouring obstacle squares are merged into larger boxes,
+     *                   or every square gets its own box
+     * @return a Terrain object with obstacles that form a maze specified in the
+     *         {@code mazeGrid}
+     */
+    public static Terrain getMazeTerrain(boolean[][] mazeGrid, Vector2 mapSize, boolean mergeBoxes) {
         Terrain terrain = new Terrain(defaultFunction, staticFriction, kineticFriction, startingCorner,
                 countLimitingCorner(mazeGrid, mapSize));
-        terrain.obstacles = (ArrayList<IObstacle>) createObstacles(mazeGrid);
+        if (mergeBoxes) {
+            terrain.obstacles = createMergedObstacles(mazeGrid);
+        } else {
+            terrain.obstacles = createObstacles(mazeGrid);
+        }
         return terrain;
     }
 
@@ -60,14 +76,65 @@ public class MazeMapGenerator {
     private static void handleTile(int x, int y, boolean[][] mazeGrid, ArrayList<IObstacle> obstacles) {
         boolean tileIsObstacle = mazeGrid[y][x] == false;
         if (tileIsObstacle) {
-            IObstacle obstacle = createObstacle(x, y);
+            IObstacle obstacle = createObstacle(x, y, x + 1, y + 1);
             obstacles.add(obstacle);
         }
     }
 
-    private static IObstacle createObstacle(int x, int y) {
-        Vector2 bottomLeftPosition = translateGridPositionToGameUnits(x, y);
-        Vector2 topRightPosition = translateGridPositionToGameUnits(x + 1, y + 1);
+    /**
+     * Covers the obstacle squares with as few boxes as a greedy search finds. Going row by row, every square
+     * that is not covered yet starts a box, which is first made as wide and then as high as possible.
+     */
+    private static ArrayList<IObstacle> createMergedObstacles(boolean[][] mazeGrid) {
+        ArrayList<IObstacle> obstacles = new ArrayList<IObstacle>();
+        boolean[][] covered = new boolean[mazeGrid.length][];
+        for (int y = 0; y < mazeGrid.length; y++) {
+            covered[y] = new boolean[mazeGrid[y].length];
+        }
+        for (int y = 0; y < mazeGrid.length; y++) {
+            for (int x = 0; x < mazeGrid[y].length; x++) {
+                if (!isFreeObstacleSquare(x, y, mazeGrid, covered)) {
+                    continue;
+                }
+                int endX = x + 1;
+                while (isFreeObstacleSquare(endX, y, mazeGrid, covered)) {
+                    endX++;
+                }
+                int endY = y + 1;
+                while (isFreeObstacleRow(x, endX, endY, mazeGrid, covered)) {
+                    endY++;
+                }
+                for (int coveredY = y; coveredY < endY; coveredY++) {
+                    for (int coveredX = x; coveredX < endX; coveredX++) {
+                        covered[coveredY][coveredX] = true;
+                    }
+                }
+                obstacles.add(createObstacle(x, y, endX, endY));
+            }
+        }
+        return obstacles;
+    }
+
+    private static boolean isFreeObstacleRow(int startX, int endX, int y, boolean[][] mazeGrid,
+            boolean[][] covered) {
+        for (int x = startX; x < endX; x++) {
+            if (!isFreeObstacleSquare(x, y, mazeGrid, covered)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether a square is inside the grid, an obstacle and not covered by a box yet
+     */
+    private static boolean isFreeObstacleSquare(int x, int y, boolean[][] mazeGrid, boolean[][] covered) {
+        return y < mazeGrid.length && x < mazeGrid[y].length && !mazeGrid[y][x] && !covered[y][x];
+    }
+
+    private static IObstacle createObstacle(int startX, int startY, int endX, int endY) {
+        Vector2 bottomLeftPosition = translateGridPositionToGameUnits(startX, startY);
+        Vector2 topRightPosition = translateGridPositionToGameUnits(endX, endY);
         return new ObstacleBox(bottomLeftPosition, topRightPosition);
 
     }
@@ -0,0 +1,29 @@
+package utility;
+
+import datastorage.Target;
+import datastorage.Terrain;
+import utility.math.Vector2;
+
+import java.util.ArrayList;
+
+/**
+ * Creates the terrains the benchmarks are run on, so that they all measure the same course
+ */
+public final class BenchmarkTerrains {
+    private BenchmarkTerrains() {
+    }
+
+    /**
+     * Creates the terrain used by BotTester, without obstacles
+     * @return A new terrain with the target of BotTester at (4, 1)
+     */
+    public static Terrain createBotTesterTerrain() {
+        Terrain terrain = new Terrain("0.4*(0.9-e**(-(x*x+y*y)/8))", 0.2, 0.08, new Vector2(-50, -50),
+                new Vector2(50, 50));
+        terrain.obstacles = new ArrayList<>();
+        terrain.target = new Target();
+        terrain.target.position = new Vector2(4, 1);
+        terrain.target.radius = 0.15;
+        return terrain;
+    }
+}
@@ -0,0 +1,62 @@
+package utility;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Times code for the benchmarks. The code is first run a few times without measuring it, so that the JIT compiler
+ * has compiled it by the time it is measured.
+ */
+public final class BenchmarkTimer {
+    private BenchmarkTimer() {
+    }
+
+    /**
+     * Runs code a number of times and measures the last rounds
+     * @param numWarmUpRounds The number of rounds run before measuring
+     * @param numRounds       The number of measured rounds
+     * @param round           The code of one round
+     * @return The average nanoseconds per measured round
+     */
+    public static double time(int numWarmUpRounds, int numRounds, Runnable round) {
+        for (int i = 0; i < numWarmUpRounds; i++) {
+            round.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < numRounds; i++) {
+            round.run();
+        }
+        return (double) (System.nanoTime() - start) / numRounds;
+    }
+
+    /**
+     * Runs code a number of times and measures the last round, including the bytes it allocates. The bytes are
+     * counted by the allocation counter of the HotSpot JVM, which only sees the calling thread.
+     * @param numWarmUpRounds The number of rounds run before measuring
+     * @param round           The code of one round
+     * @return The bytes allocated and the nanoseconds taken by the measured round
+     */
+    public static long[] timeWithAllocations(int numWarmUpRounds, Runnable round) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < numWarmUpRounds; i++) {
+            round.run();
+        }
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        round.run();
+        long time = System.nanoTime() - start;
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new long[] { bytes, time };
+    }
+
+    /**
+     * Uses a result, so that the JIT compiler cannot remove the code calculating it
+     * @param result The result
+     */
+    public static void preventElimination(double result) {
+        if (result == Double.MIN_VALUE) {
+            System.out.println(result);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package utility;
+
+import utility.math.Vector2;
+
+/**
+ * The first contact of a ball moving in a straight line with an obstacle. Unlike {@link CollisionData} it only
+ * holds primitives, so one result can be reused for every step. The obstacles only store a contact that is earlier
+ * than the one already in the result, so checking several obstacles with the same result finds the first contact.
+ */
+public class SweepResult {
+    // Fraction of the movement done before the contact, infinite if there is no contact
+    public double timeOfImpact = Double.POSITIVE_INFINITY;
+    // Center of the ball at the contact
+    public double positionX;
+    public double positionY;
+    // Unit normal of the obstacle at the contact, pointing towards the ball
+    public double normalX;
+    public double normalY;
+    public double bounciness;
+
+    /**
+     * Forgets the contact, call this before checking the obstacles of a new movement
+     */
+    public void reset() {
+        timeOfImpact = Double.POSITIVE_INFINITY;
+    }
+
+    public boolean hasContact() {
+        return timeOfImpact != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Stores a contact
+     * @return {@code true}, so that kernels can return the result of storing
+     */
+    public boolean set(double timeOfImpact, double positionX, double positionY, double normalX, double normalY) {
+        this.timeOfImpact = timeOfImpact;
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        return true;
+    }
+
+    /**
+     * Converts the contact into collision data, for code that still uses {@link CollisionData}
+     * @param previousPosition The position the ball moved from
+     * @param ballRadius       The radius of the ball
+     * @return The collision data, or {@code null} if there is no contact
+     */
+    public CollisionData toCollisionData(Vector2 previousPosition, double ballRadius) {
+        if (!hasContact()) {
+            return null;
+        }
+        CollisionData collisionData = new CollisionData();
+        // The point where the ball touches the obstacle
+        collisionData.collisionPosition = new Vector2(positionX - normalX * ballRadius,
+                positionY - normalY * ballRadius);
+        collisionData.collisionNormal = new Vector2(normalX, normalY);
+        collisionData.bounciness = bounciness;
+        collisionData.ballRadius = ballRadius;
+        collisionData.previousPosition = previousPosition;
+        return collisionData;
+    }
+}
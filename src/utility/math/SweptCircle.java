@@ -0,0 +1,165 @@
+package utility.math;
+
+import utility.SweepResult;
+
+/**
+ * Continuous collision checks of a circle moving in a straight line, using only primitives. The circle moves from
+ * {@code (px, py)} by {@code (dx, dy)}, and every shape is grown by the radius of the circle, so that the checks
+ * follow the center of the circle as a ray.
+ * <p>
+ * A contact is only stored if it is earlier than the contact already in the result. A circle that starts inside a
+ * shape touches it at time 0 if it moves further in, and does not touch it if it moves out.
+ */
+public final class SweptCircle {
+    private SweptCircle() {
+    }
+
+    /**
+     * Checks a ray against a circle
+     * @param radius The radius of the circle, including the radius of the moving circle
+     * @return {@code true} if an earlier contact was stored
+     */
+    public static boolean sweepCircle(double px, double py, double dx, double dy, double centerX, double centerY,
+            double radius, SweepResult result) {
+        double mx = px - centerX;
+        double my = py - centerY;
+        double a = dx * dx + dy * dy;
+        double b = mx * dx + my * dy;
+        double c = mx * mx + my * my - radius * radius;
+        if (c <= 0) {
+            return sweepFromInside(px, py, dx, dy, mx, my, result);
+        }
+        // Outside and not moving closer
+        if (b >= 0) {
+            return false;
+        }
+        double discriminant = b * b - a * c;
+        if (discriminant < 0) {
+            return false;
+        }
+        double t = (-b - Math.sqrt(discriminant)) / a;
+        if (t > 1 || t >= result.timeOfImpact) {
+            return false;
+        }
+        double hitX = px + t * dx;
+        double hitY = py + t * dy;
+        return result.set(t, hitX, hitY, (hitX - centerX) / radius, (hitY - centerY) / radius);
+    }
+
+    /**
+     * Checks a ray against a capsule, the points within a distance of a line segment
+     * @param radius The distance, including the radius of the moving circle
+     * @return {@code true} if an earlier contact was stored
+     */
+    public static boolean sweepCapsule(double px, double py, double dx, double dy, double ax, double ay, double bx,
+            double by, double radius, SweepResult result) {
+        double ex = bx - ax;
+        double ey = by - ay;
+        double lengthSquared = ex * ex + ey * ey;
+        // The point of the segment closest to the start
+        double s = lengthSquared == 0 ? 0 : ((px - ax) * ex + (py - ay) * ey) / lengthSquared;
+        s = Math.max(0, Math.min(1, s));
+        double mx = px - (ax + s * ex);
+        double my = py - (ay + s * ey);
+        if (mx * mx + my * my <= radius * radius) {
+            return sweepFromInside(px, py, dx, dy, mx, my, result);
+        }
+        boolean hasHit = false;
+        if (lengthSquared != 0) {
+            // The two sides, moved out from the segment by the radius
+            double length = Math.sqrt(lengthSquared);
+            double nx = -ey / length;
+            double ny = ex / length;
+            double offsetX = nx * radius;
+            double offsetY = ny * radius;
+            hasHit |= sweepFace(px, py, dx, dy, ax + offsetX, ay + offsetY, bx + offsetX, by + offsetY, nx, ny,
+                    result);
+            hasHit |= sweepFace(px, py, dx, dy, ax - offsetX, ay - offsetY, bx - offsetX, by - offsetY, -nx, -ny,
+                    result);
+        }
+        hasHit |= sweepCircle(px, py, dx, dy, ax, ay, radius, result);
+        hasHit |= sweepCircle(px, py, dx, dy, bx, by, radius, result);
+        return hasHit;
+    }
+
+    /**
+     * Checks a ray against an axis-aligned rectangle with rounded corners
+     * @param radius The radius of the corners, the distance the rectangle is grown by
+     * @return {@code true} if an earlier contact was stored
+     */
+    public static boolean sweepRoundedRectangle(double px, double py, double dx, double dy, double minX,
+            double minY, double maxX, double maxY, double radius, SweepResult result) {
+        double mx = px - Math.max(minX, Math.min(maxX, px));
+        double my = py - Math.max(minY, Math.min(maxY, py));
+        if (mx * mx + my * my <= radius * radius) {
+            if (mx == 0 && my == 0) {
+                // Inside the rectangle itself, so the ball is pushed out of the closest side
+                double left = px - minX;
+                double right = maxX - px;
+                double bottom = py - minY;
+                double top = maxY - py;
+                double closest = Math.min(Math.min(left, right), Math.min(bottom, top));
+                mx = closest == left ? -1 : closest == right ? 1 : 0;
+                my = mx != 0 ? 0 : closest == bottom ? -1 : 1;
+            }
+            return sweepFromInside(px, py, dx, dy, mx, my, result);
+        }
+        boolean hasHit = false;
+        hasHit |= sweepFace(px, py, dx, dy, minX - radius, minY, minX - radius, maxY, -1, 0, result);
+        hasHit |= sweepFace(px, py, dx, dy, maxX + radius, minY, maxX + radius, maxY, 1, 0, result);
+        hasHit |= sweepFace(px, py, dx, dy, minX, minY - radius, maxX, minY - radius, 0, -1, result);
+        hasHit |= sweepFace(px, py, dx, dy, minX, maxY + radius, maxX, maxY + radius, 0, 1, result);
+        hasHit |= sweepCircle(px, py, dx, dy, minX, minY, radius, result);
+        hasHit |= sweepCircle(px, py, dx, dy, maxX, minY, radius, result);
+        hasHit |= sweepCircle(px, py, dx, dy, minX, maxY, radius, result);
+        hasHit |= sweepCircle(px, py, dx, dy, maxX, maxY, radius, result);
+        return hasHit;
+    }
+
+    /**
+     * Checks a ray against one side of a shape, a line segment that can only be crossed from the outside
+     * @param nx The x coordinate of the unit normal of the side, pointing out of the shape
+     * @param ny The y coordinate of the unit normal of the side, pointing out of the shape
+     */
+    private static boolean sweepFace(double px, double py, double dx, double dy, double ax, double ay, double bx,
+            double by, double nx, double ny, SweepResult result) {
+        double startDistance = (px - ax) * nx + (py - ay) * ny;
+        double approach = dx * nx + dy * ny;
+        if (startDistance < 0 || approach >= 0) {
+            return false;
+        }
+        double t = startDistance / -approach;
+        if (t > 1 || t >= result.timeOfImpact) {
+            return false;
+        }
+        double hitX = px + t * dx;
+        double hitY = py + t * dy;
+        double ex = bx - ax;
+        double ey = by - ay;
+        double along = (hitX - ax) * ex + (hitY - ay) * ey;
+        if (along < 0 || along > ex * ex + ey * ey) {
+            return false;
+        }
+        return result.set(t, hitX, hitY, nx, ny);
+    }
+
+    /**
+     * Handles a ray starting inside a shape
+     * @param mx The x coordinate of the direction out of the shape
+     * @param my The y coordinate of the direction out of the shape
+     */
+    private static boolean sweepFromInside(double px, double py, double dx, double dy, double mx, double my,
+            SweepResult result) {
+        double length = Math.sqrt(mx * mx + my * my);
+        if (length == 0) {
+            // Exactly on the center of the shape, so the ball is pushed back the way it came
+            mx = -dx;
+            my = -dy;
+            length = Math.sqrt(mx * mx + my * my);
+        }
+        if (length == 0 || result.timeOfImpact <= 0 || mx * dx + my * dy >= 0) {
+            return false;
+        }
+        return result.set(0, px, py, mx / length, my / length);
+    }
+}